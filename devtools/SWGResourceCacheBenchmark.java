@@ -0,0 +1,228 @@
+package devtools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGMutableResource;
+import swg.crafting.resources.SWGResource;
+import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceMgr;
+import swg.model.SWGCGalaxy;
+
+/**
+ * A micro-benchmark which compares look-ups in the resource cache with the
+ * linear scans that the cache used to do. For 10,000, 100,000, and 500,000
+ * cached resources this utility times look-ups by SWGCraft ID and by name and
+ * galaxy, both in the cache and in a plain list that is scanned the way the
+ * former implementation did.
+ * <p>
+ * The resource cache is package private, this utility is a resource manager
+ * without a GUI and it uses the protected API of the manager: resources are
+ * created and cached by {@link SWGResourceMgr#getKnownTrusted(
+ * SWGMutableResource)} and they are looked up by the
+ * {@code cachedInstance} methods. These methods synchronize on the cache, the
+ * overhead of the uncontended lock is included in the cache timings. Both
+ * paths are warmed up by {@link #WARMUPS} rounds before they are timed.
+ * <p>
+ * Run this utility from the SWGAide folder, it needs crafting/servers.xml for
+ * the galaxy constants.
+ */
+public class SWGResourceCacheBenchmark extends SWGResourceMgr {
+
+    /**
+     * The number of look-ups per identifier and size.
+     */
+    private static final int LOOKUPS = 2000;
+
+    /**
+     * The sizes of the cache to benchmark.
+     */
+    private static final int[] SIZES = { 10000, 100000, 500000 };
+
+    /**
+     * The number of rounds which warm up both paths before they are timed.
+     */
+    private static final int WARMUPS = 5;
+
+    /**
+     * Creates an instance of this type, the resource manager without a GUI.
+     */
+    private SWGResourceCacheBenchmark() {
+        super(SIZES[SIZES.length - 1]);
+    }
+
+    /**
+     * Helper method which times look-ups by the specified identifiers in the
+     * cache and prints the result if it is timed.
+     *
+     * @param ids the IDs to look up
+     * @param res resources which names and galaxies are looked up
+     * @param timed {@code true} to print the timings, {@code false} to warm up
+     * @return the number of found resources
+     */
+    private static int benchCache(long[] ids, SWGResource[] res,
+            boolean timed) {
+
+        int found = 0;
+        long t = System.nanoTime();
+        for (long id : ids)
+            if (cachedInstance(id) != null) ++found;
+        long tid = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        for (SWGResource r : res)
+            if (cachedInstance(r.getName(), r.galaxy()) != null) ++found;
+        long tname = System.nanoTime() - t;
+
+        if (timed) print("cache", tid, tname);
+        return found;
+    }
+
+    /**
+     * Helper method which times look-ups by the specified identifiers in the
+     * list, scanned as the former cache did, and prints the result if it is
+     * timed.
+     *
+     * @param list the list to scan
+     * @param ids the IDs to look up
+     * @param res resources which names and galaxies are looked up
+     * @param timed {@code true} to print the timings, {@code false} to warm up
+     * @return the number of found resources
+     */
+    private static int benchList(List<SWGKnownResource> list, long[] ids,
+            SWGResource[] res, boolean timed) {
+
+        int found = 0;
+        long t = System.nanoTime();
+        for (long id : ids) {
+            for (SWGKnownResource kr : list)
+                if (kr.id() == id) {
+                    ++found;
+                    break;
+                }
+        }
+        long tid = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        for (SWGResource r : res) {
+            for (SWGKnownResource kr : list)
+                if (kr.galaxy().equals(r.galaxy())
+                        && kr.getName().equals(r.getName())) {
+                    ++found;
+                    break;
+                }
+        }
+        long tname = System.nanoTime() - t;
+
+        if (timed) print("list", tid, tname);
+        return found;
+    }
+
+    /**
+     * Runs the benchmark for the specified size.
+     *
+     * @param mgr the resource manager
+     * @param size the number of resources
+     * @param rcs spawnable resource classes
+     * @param gxs galaxy constants
+     */
+    private static void doJob(SWGResourceMgr mgr, int size,
+            List<SWGResourceClass> rcs, List<SWGCGalaxy> gxs) {
+
+        System.out.println(String.format("%n%,d resources", size));
+        mgr.clear();
+        List<SWGKnownResource> list = new ArrayList<SWGKnownResource>(size);
+
+        for (int i = 0; i < size; ++i) {
+            SWGMutableResource mr = new SWGMutableResource(
+                    name(i), rcs.get(i % rcs.size()));
+            mr.galaxy(gxs.get(i % gxs.size()));
+            mr.id(i + 1);
+            list.add(getKnownTrusted(mr));
+        }
+
+        Random rnd = new Random(size);
+        long[] ids = new long[LOOKUPS];
+        SWGResource[] res = new SWGResource[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; ++i) {
+            ids[i] = rnd.nextInt(size) + 1;
+            res[i] = list.get(rnd.nextInt(size));
+        }
+
+        // warm up both paths before they are timed, a part of the list is
+        // scanned since the full scans are slow
+        List<SWGKnownResource> part = list.subList(0, Math.min(size, 10000));
+        for (int i = 0; i < WARMUPS; ++i) {
+            benchList(part, ids, res, false);
+            benchCache(ids, res, false);
+        }
+
+        int fl = benchList(list, ids, res, true);
+        int fc = benchCache(ids, res, true);
+        if (fl != fc)
+            System.err.println("  Mismatch: list=" + fl + " cache=" + fc);
+    }
+
+    /**
+     * Starts this utility. No arguments are used.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        try {
+            List<SWGCGalaxy> gxs = new ArrayList<SWGCGalaxy>();
+            for (Object o : SWGCGalaxy.values())
+                gxs.add((SWGCGalaxy) o);
+            if (gxs.isEmpty()) {
+                System.err.println("No galaxies, run from the SWGAide folder");
+                return;
+            }
+
+            List<SWGResourceClass> rcs = new ArrayList<SWGResourceClass>();
+            for (String n : SWGResourceClass.rcNames()) {
+                SWGResourceClass rc = SWGResourceClass.rc(n);
+                if (rc.isSpawnable() && !rc.isSpaceOrRecycled()) rcs.add(rc);
+            }
+
+            SWGResourceMgr mgr = new SWGResourceCacheBenchmark();
+            for (int size : SIZES)
+                doJob(mgr, size, rcs, gxs);
+
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper method which returns a unique resource name for the specified
+     * integer.
+     *
+     * @param i an integer
+     * @return a resource name
+     */
+    private static String name(int i) {
+        StringBuilder sb = new StringBuilder("Bench");
+        int n = i;
+        do {
+            sb.append((char) ('a' + (n % 26)));
+            n /= 26;
+        } while (n > 0);
+        return sb.toString();
+    }
+
+    /**
+     * Helper method which prints the timings for the specified container.
+     *
+     * @param what the name of the container
+     * @param tid nanoseconds for look-ups by ID
+     * @param tname nanoseconds for look-ups by name and galaxy
+     */
+    private static void print(String what, long tid, long tname) {
+        System.out.println(String.format(
+                "  %-6s by ID: %,12d ns/op    by name: %,12d ns/op",
+                what, Long.valueOf(tid / LOOKUPS),
+                Long.valueOf(tname / LOOKUPS)));
+    }
+}
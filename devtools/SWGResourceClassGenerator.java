@@ -67,6 +67,13 @@ public class SWGResourceClassGenerator {
      */
     private static PrintStream classIDtoInstance;
 
+    /**
+     * The print stream for the array that maps a numeric SWGCraft ID to the
+     * greatest sort index in the sub-tree of the resource class, see
+     * SWGResourceClassInfo.swgIDtoLast
+     */
+    private static PrintStream classIDtoLast;
+
     /**
      * The print stream for the map that maps a proper resource class name and
      * its type token to their shared SWGCraft ID, see
@@ -121,6 +128,20 @@ public class SWGResourceClassGenerator {
             + "  static final List<SWGResourceClass> swgIDtoInstance ="
             + " rcList(LISTSIZE + 1);%n%n";
 
+    /**
+     * The string for the array that maps a numeric swgID (SWGCraft) to the
+     * greatest sort index in the sub-tree of the resource class
+     */
+    private static final String paramIDtoLast =
+        "  /**%n"
+            + "   * Maps a numeric SWGCraft ID to the greatest sort index in%n"
+            + "   * the sub-tree of the resource class. The sort index is the%n"
+            + "   * pre-order number of a resource class in the tree, hence a%n"
+            + "   * sub-tree spans the sort indexes from its top class to the%n"
+            + "   * number in this array. Unused IDs map to 0.%n"
+            + "   */%n"
+            + "  static final int[] swgIDtoLast = new int[LISTSIZE + 1];%n%n";
+
     /**
      * The string for the static constant LISTSIZE, which is set by
      * {@link #highestID}
@@ -161,7 +182,8 @@ public class SWGResourceClassGenerator {
             + "  }%n";
 
     /**
-     * An index used in comparators for resource classes
+     * An index used in comparators for resource classes; the resource classes
+     * are generated in pre-order so this is also their pre-order number
      */
     private static int sortIndex = 0;
 
@@ -240,6 +262,11 @@ public class SWGResourceClassGenerator {
             }
         }
 
+        // all subclasses are generated, the sort index is the greatest
+        // within the sub-tree of the current resource type
+        classIDtoLast.printf("      swgIDtoLast[%3s] = %d;%n", swgID,
+                Integer.valueOf(sortIndex));
+
         int h = Integer.parseInt(swgID);
         if (h > highestID)
             highestID = h;
@@ -301,10 +328,12 @@ public class SWGResourceClassGenerator {
 
             ByteArrayOutputStream streamTypeToInt = new ByteArrayOutputStream();
             ByteArrayOutputStream streamIDtoInst = new ByteArrayOutputStream();
+            ByteArrayOutputStream streamIDtoLast = new ByteArrayOutputStream();
             ByteArrayOutputStream streamIDtoName = new ByteArrayOutputStream();
 
             classTypeToInt = new PrintStream(streamTypeToInt);
             classIDtoInstance = new PrintStream(streamIDtoInst);
+            classIDtoLast = new PrintStream(streamIDtoLast);
 
             Document xml = ZXml.parse(new File(sourceXML));
 
@@ -345,6 +374,7 @@ public class SWGResourceClassGenerator {
             staticClass.printf("class SWGResourceClassInfo {%n%n");
             staticClass.printf(paramListSize, Integer.valueOf(highestID));
             staticClass.printf(paramIDtoInstance);
+            staticClass.printf(paramIDtoLast);
             staticClass.printf(paramTypeToInt, getOdd(highestID * 2.67));
 
             staticClass.printf(staticBlockBegin);
@@ -352,6 +382,8 @@ public class SWGResourceClassGenerator {
             staticClass.printf(_EOL);
             staticClass.printf(streamIDtoInst.toString());
             staticClass.printf(_EOL);
+            staticClass.printf(streamIDtoLast.toString());
+            staticClass.printf(_EOL);
             staticClass.printf(_EOL);
             staticClass.printf(streamIDtoName.toString());
             staticClass.printf(staticBlockEnd);
@@ -0,0 +1,322 @@
+package devtools;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import swg.SWGConstants;
+import swg.crafting.Stat;
+import swg.crafting.resources.SWGMutableResource;
+import swg.crafting.resources.SWGPlanetAvailabilityInfo;
+import swg.crafting.resources.SWGResource;
+import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceList;
+import swg.crafting.resources.SWGResourceStats;
+import swg.model.SWGCGalaxy;
+import swg.model.SWGPlanet;
+import swg.swgcraft.SWGResourceManager;
+import swg.tools.ZXml;
+
+/**
+ * A harness which compares the StAX parser for the resource feed from
+ * SWGCraft.org with the DOM parser that it replaced. For each recorded feed
+ * this utility parses the file with both parsers and compares the resource
+ * lists field by field: the order, SWGCraft ID, name, resource class, galaxy,
+ * depletion, stats, and the planet records. Each difference is printed and
+ * the exit code is the number of feeds which differ.
+ * <p>
+ * The DOM parser is a copy of the former implementation of
+ * {@code SWGResourceManager.localXmlParse(File, SWGCGalaxy)} and its helper
+ * methods; it must not be changed but to mirror the former implementation.
+ * <p>
+ * The arguments are the feeds to compare; the galaxy of a feed is parsed from
+ * its file name, which is "swgcraft-galaxy-current.xml". Without arguments
+ * the feeds in SWGAide's cache folder are compared. Run this utility from the
+ * SWGAide folder, it needs crafting/servers.xml for the galaxy constants.
+ *
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+public class SWGResourceFeedParity {
+
+    /**
+     * The pattern for the file name of a recorded feed, its group is the name
+     * of the galaxy.
+     */
+    private static final Pattern FEED =
+            Pattern.compile("swgcraft-(.+)-current\\.xml");
+
+    /**
+     * The maximum number of differences which are printed per feed.
+     */
+    private static final int PRINT_MAX = 20;
+
+    /**
+     * Helper method which compares the specified lists field by field and
+     * prints the differences. The lists are parsed from the same feed, the
+     * first by the DOM parser and the second by the StAX parser.
+     *
+     * @param dom the resources parsed by the DOM parser
+     * @param stax the resources parsed by the StAX parser
+     * @return the number of differences
+     */
+    private static int compare(SWGResourceList dom, SWGResourceList stax) {
+        List<String> diffs = new ArrayList<String>();
+        if (dom.size() != stax.size())
+            diffs.add(String.format("size: dom=%s stax=%s",
+                    Integer.valueOf(dom.size()), Integer.valueOf(stax.size())));
+
+        for (int i = 0; i < Math.min(dom.size(), stax.size()); ++i) {
+            SWGResource d = dom.get(i);
+            SWGResource s = stax.get(i);
+            String at = String.format("#%s %s: ", Integer.valueOf(i), d);
+
+            diff(diffs, at + "id", Long.valueOf(d.id()), Long.valueOf(s.id()));
+            diff(diffs, at + "name", d.getName(), s.getName());
+            diff(diffs, at + "class", d.rc(), s.rc());
+            diff(diffs, at + "galaxy", d.galaxy(), s.galaxy());
+            diff(diffs, at + "depleted",
+                    Long.valueOf(d.depleted()), Long.valueOf(s.depleted()));
+
+            for (Stat st : Stat.values())
+                diff(diffs, at + st.getName(),
+                        Integer.valueOf(d.stats().value(st)),
+                        Integer.valueOf(s.stats().value(st)));
+
+            diff(diffs, at + "planets", d.availability(), s.availability());
+            for (SWGPlanet p : d.availability()) {
+                SWGPlanetAvailabilityInfo dp = d.availabilityFor(p);
+                SWGPlanetAvailabilityInfo sp = s.availabilityFor(p);
+                if (sp == null) continue; // reported by planets
+                diff(diffs, at + p + " date", Long.valueOf(dp.available()),
+                        Long.valueOf(sp.available()));
+                diff(diffs, at + p + " by",
+                        dp.availableBy(), sp.availableBy());
+            }
+        }
+
+        for (int i = 0; i < Math.min(diffs.size(), PRINT_MAX); ++i)
+            System.out.println("  " + diffs.get(i));
+        if (diffs.size() > PRINT_MAX)
+            System.out.println(String.format("  ... %s more",
+                    Integer.valueOf(diffs.size() - PRINT_MAX)));
+
+        return diffs.size();
+    }
+
+    /**
+     * Helper method which adds a difference to the specified list if the two
+     * values are not equal.
+     *
+     * @param diffs the list of differences
+     * @param what a description of the field
+     * @param d the value from the DOM parser, or {@code null}
+     * @param s the value from the StAX parser, or {@code null}
+     */
+    private static void diff(List<String> diffs, String what, Object d, Object s) {
+        if (d == null
+                ? s != null
+                : !d.equals(s))
+            diffs.add(String.format("%s: dom=%s stax=%s", what, d, s));
+    }
+
+    /**
+     * Helper method which compares the two parsers for the specified feed and
+     * prints the result.
+     *
+     * @param feed a recorded feed
+     * @return {@code true} if the parsers agree
+     */
+    private static boolean doJob(File feed) {
+        Matcher m = FEED.matcher(feed.getName());
+        if (!m.matches()) {
+            System.err.println("Not a feed: " + feed);
+            return false;
+        }
+        System.out.println(feed);
+
+        try {
+            SWGCGalaxy gxy = galaxy(m.group(1));
+
+            long t = System.nanoTime();
+            SWGResourceList dom = domParse(feed, gxy);
+            long td = System.nanoTime() - t;
+
+            InputStream in =
+                    new BufferedInputStream(new FileInputStream(feed));
+            SWGResourceList stax;
+            t = System.nanoTime();
+            try {
+                stax = SWGResourceManager.localXmlParse(in, gxy);
+            } finally {
+                in.close();
+            }
+            long ts = System.nanoTime() - t;
+
+            int n = compare(dom, stax);
+            System.out.println(String.format(
+                    "  %,d resources, %,d differences   dom: %,d ms   stax: %,d ms",
+                    Integer.valueOf(dom.size()), Integer.valueOf(n),
+                    Long.valueOf(td / 1000000), Long.valueOf(ts / 1000000)));
+            return n == 0;
+
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Helper method which parses the specified feed by the DOM parser, see
+     * the class comment. This is the former
+     * {@code SWGResourceManager.localXmlParse(File, SWGCGalaxy)}.
+     *
+     * @param xmlFile the XML file to parse from
+     * @param gxy a galaxy constant
+     * @return a list of {@link SWGMutableResource}, or an empty list
+     * @throws Exception if there is an error
+     */
+    private static SWGResourceList domParse(File xmlFile, SWGCGalaxy gxy)
+            throws Exception {
+
+        Document xml = ZXml.parse(xmlFile);
+
+        SWGResourceList resources = new SWGResourceList(1024);
+
+        NodeList nList = xml.getElementsByTagName("resource");
+        for (int i = 0; i < nList.getLength(); ++i) {
+            Element resElem = (Element) nList.item(i);
+
+            long id = ZXml.longFromAttr(resElem, "swgcraft_id");
+
+            SWGMutableResource mr = (SWGMutableResource) resources.getByID(id);
+
+            if (mr == null) { // this one is new
+                mr = domResource(resElem, id, gxy);
+                if (mr == null) continue; // may be a space resource, ignore
+                resources.add(mr);
+            }
+
+            domPlanet(mr, resElem);
+        }
+
+        return resources.toReturn();
+    }
+
+    /**
+     * Helper method which adds a planet availability record to the specified
+     * resource, from the planet element which contains the specified resource
+     * element. This is the former
+     * {@code SWGResourceManager.resourceAddPlanet(SWGMutableResource, Element)}.
+     *
+     * @param mr the resource to add a planet record to
+     * @param xml the XML element to start with
+     */
+    private static void domPlanet(SWGMutableResource mr, Element xml) {
+        Element current = xml;
+        while (current != null
+                && !current.getNodeName().equalsIgnoreCase("planet")) {
+            // traverse up the XML document two levels to determine the planet
+            current = (Element) current.getParentNode();
+        }
+
+        if (current == null)
+            return; // sanity
+
+        SWGPlanetAvailabilityInfo pInfo = new SWGPlanetAvailabilityInfo(
+                SWGPlanet.fromName(current.getAttribute("name")),
+                ZXml.longFromElem(xml, "available_timestamp"),
+                ZXml.stringFromElem(xml, "available_by"));
+
+        mr.availability(pInfo);
+    }
+
+    /**
+     * Helper method which creates a resource from the specified element, or
+     * returns {@code null} for a space resource. This is the former
+     * {@code SWGResourceManager.resourceFromXML(Element, long, SWGCGalaxy)}.
+     *
+     * @param xml the element that contains the resource data
+     * @param id the unique SWGCraft ID for the resource
+     * @param galaxy a galaxy constant
+     * @return a new mutable resource object, or {@code null}
+     */
+    private static SWGMutableResource domResource(
+            Element xml, long id, SWGCGalaxy galaxy) {
+
+        String tok = ZXml.stringFromElem(xml, "swgcraft_type_id");
+        SWGResourceClass type = SWGResourceClass.rc(tok);
+        if (type.isSpaceOrRecycled()) return null;
+
+        String name = ZXml.stringFromElem(xml, "name");
+
+        SWGMutableResource mr = new SWGMutableResource(name, type);
+        mr.galaxy(galaxy);
+        mr.id(id);
+        mr.depleted(false);
+
+        int[] values = new int[Stat.COUNT];
+        for (Stat s : Stat.values()) {
+            values[s.i] = ZXml.intFromElem(xml, s.getName());
+        }
+        mr.stats(new SWGResourceStats(values), false);
+
+        return mr;
+    }
+
+    /**
+     * Helper method which returns the galaxy constant for the specified name
+     * from the file name of a feed, which is in lower case.
+     *
+     * @param name a galaxy name in any case
+     * @return a galaxy constant
+     * @throws IllegalArgumentException if the name is invalid
+     */
+    private static SWGCGalaxy galaxy(String name) {
+        for (Object o : SWGCGalaxy.values())
+            if (((SWGCGalaxy) o).getName().equalsIgnoreCase(name))
+                return (SWGCGalaxy) o;
+
+        throw new IllegalArgumentException("Invalid galaxy: " + name);
+    }
+
+    /**
+     * Starts this utility, see the class comment.
+     *
+     * @param args the feeds to compare, or none
+     */
+    public static void main(String[] args) {
+        List<File> feeds = new ArrayList<File>();
+        for (String a : args)
+            feeds.add(new File(a));
+
+        if (feeds.isEmpty()) {
+            File[] fs = SWGConstants.getCacheDirectory().listFiles();
+            if (fs != null)
+                for (File f : fs)
+                    if (FEED.matcher(f.getName()).matches()) feeds.add(f);
+        }
+        if (feeds.isEmpty()) {
+            System.err.println("No feeds, run from the SWGAide folder");
+            return;
+        }
+
+        int failed = 0;
+        for (File f : feeds)
+            if (!doJob(f)) ++failed;
+
+        System.out.println(failed == 0
+                ? "All feeds agree"
+                : failed + " of " + feeds.size() + " feeds differ");
+        System.exit(failed);
+    }
+}
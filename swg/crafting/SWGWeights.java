@@ -242,6 +242,11 @@ public final class SWGWeights extends SWGValues {
      * <p>
      * If the resource <b>has no</b> <i>expected value </i> in union with this
      * instance the rate is 0, see {@link #hasMinimumOneStat(SWGResource)}.
+     * <p>
+     * Clients which rate many resources with the same arguments should rather
+     * use a {@link swg.crafting.resources.SWGWeightRater} which returns equal
+     * rates but computes the multipliers for caps just once and allocates no
+     * objects per resource.
      * 
      * @param res a resource to rate by this instance
      * @param caps the resource class for upper caps, or {@code null}
@@ -252,7 +257,7 @@ public final class SWGWeights extends SWGValues {
      * @throws NullPointerException if the resource is {@code null}
      */
     public double rate(SWGResource res, SWGResourceClass caps, boolean zeroIsMax) {
-        if (caps != null && !res.rc().isSub(caps.getClass()))
+        if (caps != null && !res.rc().isSub(caps))
             throw new IllegalArgumentException(String.format(
                     "%s is not subclass of %s",
                     res.rc().rcName(), caps.rcName()));
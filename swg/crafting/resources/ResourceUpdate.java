@@ -13,6 +13,10 @@ import swg.swgcraft.SWGResourceManager;
  * ignore the notification, and also if the job must be dispatched on a worker
  * thread.
  * <P>
+ * A notification for a new download may carry a {@link Delta} with the
+ * resources that were added, changed, or depleted by the download. If the
+ * delta is {@code null} any resource of the galaxy may have changed.
+ * <P>
  * It is {@link SWGResourceManager} that publishes notifications of this type.
  * Clients implements the interface {@link UpdateSubscriber} and subscribes via
  * {@link SWGResourceManager#addSubscriber(UpdateSubscriber)} and revokes via
@@ -23,6 +27,12 @@ import swg.swgcraft.SWGResourceManager;
  */
 public final class ResourceUpdate implements UpdateNotification {
 
+    /**
+     * The resources which are changed by the update, or {@code null}. If this
+     * member is {@code null} any resource may have changed.
+     */
+    public final Delta delta;
+
     /**
      * An optional object for the subscriber, or {@code null}. See the comments
      * for the specified type if there is a requirement on this argument.
@@ -52,6 +62,28 @@ public final class ResourceUpdate implements UpdateNotification {
      *             if there is an argument which is {@code null}
      */
     public ResourceUpdate(UpdateType type, Object optional) {
+        this(type, optional, null);
+    }
+
+    /**
+     * Creates an instance of this type with an optional object that relates to
+     * the specified type of update, and with the resources that are changed by
+     * the update. See {@link #ResourceUpdate(UpdateType, Object)}.
+     * 
+     * @param type
+     *            the type of update this notification is about
+     * @param optional
+     *            an optional object, which can be of any kind; see comment for
+     *            the specified type if there is a requirement on this argument
+     * @param delta
+     *            the resources that are changed by the update, or {@code null}
+     *            if any resource may have changed
+     * @throws IllegalArgumentException
+     *             if {@code optional} is invalid for the specified type
+     * @throws NullPointerException
+     *             if the type is {@code null}
+     */
+    public ResourceUpdate(UpdateType type, Object optional, Delta delta) {
         if (type == null)
             throw new NullPointerException("Argument is null");
         if ((type == UpdateType.LOCAL_SUBMISSION || type == UpdateType.NEW_DOWNLOAD)
@@ -60,6 +92,59 @@ public final class ResourceUpdate implements UpdateNotification {
 
         this.type = type;
         this.optional = optional;
+        this.delta = delta;
+    }
+
+    /**
+     * This type contains the resources of a galaxy which are changed by an
+     * update. The sets are disjoint and they are populated by the resource
+     * manager, clients must not modify them.
+     */
+    public static final class Delta {
+
+        /**
+         * The resources that are new to the update, that is they were not
+         * contained in the previous download for the galaxy.
+         */
+        public final SWGResourceSet added;
+
+        /**
+         * The resources that are marked depleted by the update.
+         */
+        public final SWGResourceSet depleted;
+
+        /**
+         * The resources that are contained in the update and in the previous
+         * download for the galaxy, but which data or state is changed.
+         */
+        public final SWGResourceSet updated;
+
+        /**
+         * Creates an empty instance of this type.
+         */
+        Delta() {
+            added = new SWGResourceSet();
+            depleted = new SWGResourceSet();
+            updated = new SWGResourceSet();
+        }
+
+        /**
+         * Determines if this instance is empty, that is if the update did not
+         * change any resource.
+         * 
+         * @return {@code true} if no resource is changed
+         */
+        public boolean isEmpty() {
+            return added.isEmpty() && depleted.isEmpty() && updated.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Delta[added=%s, updated=%s, depleted=%s]",
+                    Integer.valueOf(added.size()),
+                    Integer.valueOf(updated.size()),
+                    Integer.valueOf(depleted.size()));
+        }
     }
 
     /**
@@ -6,7 +6,6 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Map;
 
-import swg.SWGAide;
 import swg.crafting.Stat;
 import swg.model.SWGCGalaxy;
 import swg.model.SWGPlanet;
@@ -41,7 +40,8 @@ import swg.swgcraft.SWGResourceManager;
  * This type implements {@link Serializable} but its super-type does not. Thus
  * {@link #writeObject(ObjectOutputStream)} and
  * {@link #readObject(ObjectInputStream)} manages serialization of all
- * non-transient fields.
+ * non-transient fields, by the compact binary form of
+ * {@link SWGResourceCodec}.
  * <p>
  * XXX In a future no instance of this kind must exist without a SWGCraft ID.
  * Currently only a known galaxy is required.
@@ -120,18 +120,35 @@ public final class SWGKnownResource extends SWGResource implements Serializable
      * Deserialize this instance of {@link SWGKnownResource}. This method is
      * required since the super type does not implement {@link Serializable}.
      * 
+     * <p>
+     * If the first byte is {@link SWGResourceCodec#VERSION} the fields are
+     * read by the codec. Otherwise the stream is from before the codec and the
+     * byte is the first byte of the depleted date, which is -1, a date, or
+     * {@link Long#MAX_VALUE}; none of these begins with the version byte.
+     * 
      * @param ois an object input stream to read this instance from
      * @throws ClassNotFoundException if the class for call this cannot be found
      * @throws IOException if there is an I/O error
-     * @serialData The seven fields in {@link SWGResource} by their declared
-     *             type and in the following order: depletedDate, galaxy, name,
-     *             planetAvailMap, stats, swgcraftID, type.
+     * @serialData The version of the form followed by the seven fields in
+     *             {@link SWGResource} in the following order: depletedDate,
+     *             galaxy, name, planetAvailMap, stats, swgcraftID, type; see
+     *             {@link SWGResourceCodec}.
      */
     private void readObject(ObjectInputStream ois)
             throws ClassNotFoundException, IOException {
 
         ois.defaultReadObject();
-        deserialDepletedDate(ois.readLong());
+        int b = ois.readUnsignedByte();
+        if (b == SWGResourceCodec.VERSION) {
+            SWGResourceCodec.read(this, ois);
+            return;
+        }
+
+        // the form from before the codec, by their declared types
+        long dd = b;
+        for (int i = 0; i < 7; ++i)
+            dd = (dd << 8) | ois.readUnsignedByte();
+        deserialDepletedDate(dd);
         deserialGalaxy((SWGCGalaxy) ois.readObject());
         deserialName((String) ois.readObject());
 
@@ -149,24 +166,19 @@ public final class SWGKnownResource extends SWGResource implements Serializable
     /**
      * This method adds the deserialized object to SWGAide's cache and returns
      * {@code this}. If there is an instance that logically equals {@code this}
-     * the cached instance is returned.
+     * the cached instance is returned. That is the case for a resource which
+     * is written to several chunks of SWGAide's DAT file, one chunk per key
+     * which value contains the resource, see SimplePrefsKeeper.
      * 
      * @return this
      */
     private Object readResolve() {
         SWGKnownResource ret;
-        // there should not be a cached instance...
-        // but if there is, log it as an error and unify so the cached is used
+        // unify on the already cached instance, if there is one
         SWGKnownResource cached = SWGResourceCache.addDeserialized(this);
-        if (cached != null) {
-            SWGAide.printError("SWGKnownResource:readResolve",
-                    new IllegalStateException(String.format(
-                            "Cache error: this=%s %s; cached=%s %s",
-                            this, Integer.toHexString(hashCode()),
-                            cached, Integer.toHexString(cached.hashCode()))));
-            ret = cached; // unify on the already cached instance
-        } else
-            ret = this;
+        ret = cached != null
+                ? cached
+                : this;
 
         SWGResourceClass t = ret.rc();
         if (t.isSpaceOrRecycled()) {
@@ -184,19 +196,14 @@ public final class SWGKnownResource extends SWGResource implements Serializable
      * 
      * @param oos an object output stream to write this instance to
      * @throws IOException if there is an I/O error
-     * @serialData The seven fields in {@link SWGResource} by their declared
-     *             type and in the following order: depletedDate, galaxy, name,
-     *             planetAvailMap, stats, swgcraftID, type.
+     * @serialData The version of the form followed by the seven fields in
+     *             {@link SWGResource} in the following order: depletedDate,
+     *             galaxy, name, planetAvailMap, stats, swgcraftID, type; see
+     *             {@link SWGResourceCodec}.
      */
     private void writeObject(ObjectOutputStream oos) throws IOException {
         oos.defaultWriteObject();
-        oos.writeLong(depleted());
-        oos.writeObject(galaxy());
-        oos.writeObject(getName());
-        oos.writeObject(serialAvailMap());
-        oos.writeObject(safeStats());
-        oos.writeLong(id());
-        oos.writeObject(rc());
+        SWGResourceCodec.write(this, oos);
     }
 
     /**
@@ -6,6 +6,7 @@ import java.util.Date;
 import swg.model.SWGPlanet;
 import swg.swgcraft.SWGResourceManager;
 import swg.tools.ZString;
+import swg.tools.ZStringPool;
 
 /**
  * This type is a availability record for a particular resource at an identified
@@ -48,6 +49,7 @@ public final class SWGPlanetAvailabilityInfo implements Serializable {
 
     /**
      * The username of the person who reported this resource to SWGCraft.org.
+     * The username is pooled, see {@link ZStringPool}.
      */
     final String availableBy;
 
@@ -77,7 +79,7 @@ public final class SWGPlanetAvailabilityInfo implements Serializable {
 
         this.planet = p;
         this.availableBy = user != null
-                ? user
+                ? ZStringPool.pooled(user)
                 : "";
         this.availableDate = date > 0
                 ? date
@@ -0,0 +1,355 @@
+package swg.crafting.resources;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import swg.crafting.SWGWeights;
+import swg.crafting.Stat;
+
+/**
+ * This type is a cache for the rates of resources. A rate is computed by a
+ * {@link SWGWeightRater}, one per set of arguments, and it is cached per
+ * resource and per set of arguments, the values of the weights, the resource
+ * class for caps, and the zero-is-max option. GUI elements that
+ * display rates compute the same rates for every refresh, but the stats of a
+ * resource change just if it is updated.
+ * <p>
+ * The cache is bounded to {@link #MAX_KEYS} sets of arguments, the least
+ * recently used set is evicted first. For each set of arguments the rates are
+ * weakly keyed by the resources, hence a resource which is no longer in use
+ * can be garbage collected. Resources are compared by identity.
+ * <p>
+ * The resource manager invalidates the rates of a resource when its stats or
+ * its resource class is updated, and all rates are cleared when there is a
+ * notification for which it is unknown which resources are updated, see
+ * {@code SWGResourceManager#notifySubscribers(ResourceUpdate)}.
+ * <p>
+ * This type is thread safe. The sets of arguments are looked up without a
+ * lock, and without a copy of the weights which are copied just when a set is
+ * added, and the rates for a set of arguments synchronize on their own monitor,
+ * hence threads which rate by different weights do not contend; a rate is
+ * computed under that monitor, an invalidation cannot be overtaken.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+public final class SWGRateCache {
+
+    /**
+     * The maximum number of sets of arguments for which rates are cached.
+     */
+    public static final int MAX_KEYS = 128;
+
+    /**
+     * The cache of rates. A map of sets of arguments which map to their rates,
+     * the least recently used set is found by {@link Rates#used}.
+     */
+    private static final ConcurrentMap<Key, Rates> rates =
+            new ConcurrentHashMap<Key, Rates>();
+
+    /**
+     * The number of rates that are found in the cache, for the sets of
+     * arguments that are evicted or cleared.
+     */
+    private static final AtomicLong retiredHits = new AtomicLong();
+
+    /**
+     * The number of rates that are computed, for the sets of arguments that
+     * are evicted or cleared.
+     */
+    private static final AtomicLong retiredMisses = new AtomicLong();
+
+    /**
+     * The stats in the order of {@link Stat#values()}, which returns a new
+     * array for each invocation.
+     */
+    private static final Stat[] STATS = Stat.values();
+
+    /**
+     * This type should not be instantiated.
+     */
+    private SWGRateCache() {
+        throw new AssertionError(); // prevent instantiation
+    }
+
+    /**
+     * Clears all rates from the cache. The hit ratio is not reset.
+     */
+    public static void clear() {
+        for (Map.Entry<Key, Rates> e : rates.entrySet())
+            if (rates.remove(e.getKey(), e.getValue()))
+                e.getValue().retire();
+    }
+
+    /**
+     * Helper method which evicts the least recently used sets of arguments
+     * while there are more than {@link #MAX_KEYS} of them. This method is
+     * invoked when a set is added, it synchronizes on the cache so that just
+     * one thread evicts.
+     */
+    private static void evict() {
+        synchronized (rates) {
+            while (rates.size() > MAX_KEYS) {
+                Map.Entry<Key, Rates> lru = null;
+                for (Map.Entry<Key, Rates> e : rates.entrySet())
+                    if (lru == null || e.getValue().used - lru.getValue().used < 0)
+                        lru = e;
+
+                if (lru == null) return;
+                if (rates.remove(lru.getKey(), lru.getValue()))
+                    lru.getValue().retire();
+            }
+        }
+    }
+
+    /**
+     * Returns the ratio of the rates which are found in the cache to all rates
+     * that are asked for, or 0.0 if no rate is asked for yet. The ratio is for
+     * the session.
+     * 
+     * @return the hit ratio in the range [0.0 1.0]
+     */
+    public static double hitRatio() {
+        long h = retiredHits.get();
+        long all = h + retiredMisses.get();
+        for (Rates r : rates.values())
+            synchronized (r) {
+                h += r.hits;
+                all += r.hits + r.misses;
+            }
+        return all > 0
+                ? (double) h / all
+                : 0.0;
+    }
+
+    /**
+     * Removes all rates for the specified resource from the cache. This method
+     * must be invoked when the stats or the resource class of the resource is
+     * updated.
+     * 
+     * @param kr a resource
+     */
+    public static void invalidate(SWGKnownResource kr) {
+        for (Rates r : rates.values())
+            synchronized (r) {
+                r.map.remove(kr);
+            }
+    }
+
+    /**
+     * Returns the rate for the specified resource. This method returns the
+     * same value as {@link SWGWeights#rate(SWGResource, SWGResourceClass,
+     * boolean)} for the same arguments. If the rate is cached it is returned,
+     * otherwise it is computed and cached.
+     * 
+     * @param kr a resource to rate
+     * @param weights the weights to rate the resource by
+     * @param caps the resource class for upper caps, or {@code null}
+     * @param zeroIsMax {@code true} if zero-values are considered
+     * @return the resource rate in the range [0.0 1000.0]
+     * @throws IllegalArgumentException if the resource class does not match the
+     *         resource class for caps
+     * @throws NullPointerException if the resource or the weights is {@code
+     *         null}
+     */
+    public static double rate(SWGKnownResource kr, SWGWeights weights,
+            SWGResourceClass caps, boolean zeroIsMax) {
+
+        Key key = new Key(weights, caps, zeroIsMax); // no copy of weights
+        Rates r = rates.get(key);
+        if (r == null) {
+            // added before a rate is computed, an invalidation finds it
+            Rates n = new Rates(new SWGWeightRater(weights, caps, zeroIsMax));
+            r = rates.putIfAbsent(key.copy(), n);
+            if (r == null) {
+                r = n;
+                if (rates.size() > MAX_KEYS) evict();
+            }
+        }
+        r.used = System.nanoTime();
+
+        synchronized (r) {
+            if (r.retired) {
+                retiredMisses.incrementAndGet();
+                return r.rater.rate(kr);
+            }
+
+            Double d = r.map.get(kr);
+            if (d != null) {
+                ++r.hits;
+                return d.doubleValue();
+            }
+
+            // computed under the lock, an invalidation cannot be overtaken
+            ++r.misses;
+            double v = r.rater.rate(kr);
+            r.map.put(kr, Double.valueOf(v));
+            return v;
+        }
+    }
+
+    /**
+     * The rates for one set of arguments, weakly keyed by resources. The
+     * fields but {@link #used} are guarded by the monitor of the instance.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class Rates {
+
+        /**
+         * The number of rates that are found in this instance.
+         */
+        long hits;
+
+        /**
+         * The rates, weakly keyed by resources.
+         */
+        final Map<SWGKnownResource, Double> map =
+                new WeakHashMap<SWGKnownResource, Double>();
+
+        /**
+         * The number of rates that are computed for this instance.
+         */
+        long misses;
+
+        /**
+         * A flag which denotes that this instance is evicted or cleared from
+         * the cache, no more rates are added to it.
+         */
+        boolean retired;
+
+        /**
+         * The rater for the set of arguments of this instance.
+         */
+        final SWGWeightRater rater;
+
+        /**
+         * The time when this instance was last used, for eviction.
+         */
+        volatile long used = System.nanoTime();
+
+        /**
+         * Creates an instance of this type for the specified rater.
+         * 
+         * @param rater the rater for the set of arguments
+         */
+        Rates(SWGWeightRater rater) {
+            this.rater = rater;
+        }
+
+        /**
+         * Marks this instance as retired and adds its counts to the counts of
+         * the cache. A thread that still rates by this instance computes its
+         * rate but does not add it, the miss is counted by the cache.
+         */
+        synchronized void retire() {
+            retired = true;
+            map.clear();
+            retiredHits.addAndGet(hits);
+            retiredMisses.addAndGet(misses);
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * A set of arguments for a rate, the weights, the resource class for caps,
+     * and the zero-is-max option. A key for a lookup refers to the weights of
+     * the caller, a key which is added to the cache refers to a copy of the
+     * weights, see {@link #copy()}. Instances of this type are immutable but
+     * the weights of the caller are not.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class Key {
+
+        /**
+         * The resource class for caps, or {@code null}.
+         */
+        private final SWGResourceClass caps;
+
+        /**
+         * The hash code of this instance.
+         */
+        private final int hash;
+
+        /**
+         * The weights, not copied unless this instance is a copy.
+         */
+        private final SWGWeights weights;
+
+        /**
+         * The zero-is-max option.
+         */
+        private final boolean zeroIsMax;
+
+        /**
+         * Creates an instance of this type for the specified arguments. The
+         * weights are not copied, see {@link #copy()}.
+         * 
+         * @param weights the weights
+         * @param caps the resource class for caps, or {@code null}
+         * @param zeroIsMax the zero-is-max option
+         */
+        Key(SWGWeights weights, SWGResourceClass caps, boolean zeroIsMax) {
+            this.weights = weights;
+            this.caps = caps;
+            this.zeroIsMax = zeroIsMax;
+
+            int h = 1; // as Arrays#hashCode(int[]) but without a copy
+            for (Stat s : STATS)
+                h = h * 31 + weights.value(s);
+            h = h * 31 + (caps != null
+                    ? caps.rcID()
+                    : -1);
+            hash = h * 31 + (zeroIsMax
+                    ? 1
+                    : 0);
+        }
+
+        /**
+         * Creates an instance of this type which is a copy of the specified
+         * key, with a copy of its weights.
+         * 
+         * @param key the key to copy
+         */
+        private Key(Key key) {
+            this.weights = new SWGWeights(key.weights.values(), false);
+            this.caps = key.caps;
+            this.zeroIsMax = key.zeroIsMax;
+            this.hash = key.hash;
+        }
+
+        /**
+         * Returns a copy of this instance with a copy of its weights. This
+         * method is invoked before a key is added to the cache, so that a
+         * modification of the weights of the caller does not modify the key.
+         * 
+         * @return a copy of this instance
+         */
+        Key copy() {
+            return new Key(this);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+
+            Key o = (Key) obj;
+            return hash == o.hash && caps == o.caps
+                    && zeroIsMax == o.zeroIsMax
+                    && weights.equals(o.weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
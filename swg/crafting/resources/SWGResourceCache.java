@@ -1,7 +1,9 @@
 package swg.crafting.resources;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import swg.gui.SWGFrame;
 import swg.model.SWGCGalaxy;
@@ -64,6 +66,25 @@ import swg.tools.SimplePrefsKeeper;
  * downloading resources from SWGCraft.org.</li>
  * </ol>
  * <p>
+ * <b>Indexes: </b>The cache is partitioned per galaxy. Each partition
+ * contains the resources of its galaxy, a map by name, two sub-indexes of
+ * spawning and depleted resources respectively, and buckets of resources per
+ * resource class. Furthermore the cache maintains a map by SWGCraft ID. Thus
+ * look-ups by any of the identifiers are constant time and the getters for a
+ * galaxy never scan resources of other galaxies, also for a cache that tracks
+ * several galaxies with years of history. A query for a resource class reads
+ * the buckets for the range of classes in its sub-tree, see
+ * {@link SWGResourceClassTree#subtree(SWGResourceClass)}, rather than testing
+ * each resource of the galaxy.
+ * <p>
+ * The identifiers, the resource class, and the depleted state of a cached
+ * resource can change, such as an ID is supplied, a name is corrected, or the
+ * resource is depleted. The resource manager must invoke
+ * {@link #reindex(SWGKnownResource, long, String, SWGCGalaxy)} whenever an
+ * identifier is changed and {@link #update(SWGKnownResource)} whenever the
+ * class or the depleted state is changed, so that the indexes are kept
+ * consistent.
+ * <p>
  * <b>Note: </b>This type must be instantiated before deserialization of
  * resource storage can begin. This is done so that {@link SWGFrame#SWGFrame()}
  * creates an instance of {@link SWGResourceManager} which creates an instance
@@ -79,15 +100,28 @@ import swg.tools.SimplePrefsKeeper;
 final class SWGResourceCache {
 
     /**
-     * The list that is the container in this implementation.
+     * A map of the partitions of this cache, mapped to by galaxy names;
+     * {@link SWGCGalaxy} does not implement {@link Object#hashCode()}. The
+     * partition for resources without a galaxy is mapped to by {@code null}.
+     */
+    private static Map<String, Partition> galaxies;
+
+    /**
+     * A map of the cached resources which have a SWGCraft ID, mapped to by
+     * their IDs. Only the first added instance for an ID is mapped.
      */
-    private static List<SWGKnownResource> cache;
+    private static Map<Long, SWGKnownResource> ids;
 
     /**
      * The resource manager.
      */
     private static SWGResourceMgr manager;
 
+    /**
+     * The number of elements in this cache.
+     */
+    private static int size;
+
     /**
      * Creates an instance of this type wit the specified initial size.
      * 
@@ -104,33 +138,56 @@ final class SWGResourceCache {
 
         SWGResourceCache.manager = manager;
 
-        cache = new ArrayList<SWGKnownResource>(initSize);
+        galaxies = new HashMap<String, Partition>();
+        ids = new HashMap<Long, SWGKnownResource>(initSize * 2);
     }
 
     /**
      * Adds the specified resource object to this cache. If the argument is
      * {@code null} it is ignored.
      * <p>
-     * This method <b>does not</b> guard against doubles, the resource manager
-     * must call {@link #getInstance(SWGResource)} before calling this method.
+     * This method <b>does not</b> guard against logical doubles, the resource
+     * manager must call {@link #getInstance(SWGResource)} before calling this
+     * method.
      * 
      * @param resource the resource to add to the cache
      * @return {@code true} if the resource was added to this cache, {@code
-     *         false} otherwise or if the argument is {@code null}
+     *         false} if it is already cached or if the argument is {@code null}
      */
     boolean add(SWGKnownResource resource) {
         return (resource == null)
                 ? false
-                : cache.add(resource);
+                : addHelper(resource);
     }
-    
+
     /**
      * Clears all contents from the resource cache. This method must only be
      * used if there is an error loading the SWGAide.DAT file, to make room for
      * loading a backup file, if one exists.
      */
     void clear() {
-        cache.clear();
+        galaxies.clear();
+        ids.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns a set of resources which are depleted at the specified galaxy,
+     * but not yet purged. If no instance is found {@link SWGResourceSet#EMPTY}
+     * is returned.
+     * 
+     * @param galaxy a galaxy constant
+     * @return a set of depleted resources, or {@link SWGResourceSet#EMPTY}
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    SWGResourceSet getDepleted(SWGCGalaxy galaxy) {
+        if (galaxy == null)
+            throw new NullPointerException("Argument is null");
+
+        Partition p = galaxies.get(galaxy.getName());
+        return p == null
+                ? SWGResourceSet.EMPTY
+                : snapshot(p.depleted);
     }
 
     /**
@@ -144,11 +201,7 @@ final class SWGResourceCache {
         if (swgCraftID <= 0)
             throw new IllegalArgumentException("Invalid ID: " + swgCraftID);
 
-        for (SWGKnownResource kr : cache) {
-            if (kr.id() == swgCraftID)
-                return kr;
-        }
-        return null;
+        return ids.get(Long.valueOf(swgCraftID));
     }
 
     /**
@@ -163,11 +216,10 @@ final class SWGResourceCache {
         if (name == null || galaxy == null)
             throw new NullPointerException("An argument is null");
 
-        for (SWGKnownResource kr : cache) {
-            if (kr.galaxy().equals(galaxy) && kr.getName().equals(name))
-                return kr;
-        }
-        return null;
+        Partition p = galaxies.get(galaxy.getName());
+        return p == null
+                ? null
+                : p.names.get(name);
     }
 
     /**
@@ -223,12 +275,10 @@ final class SWGResourceCache {
         if (galaxy == null)
             throw new NullPointerException("Argument is null");
 
-        SWGResourceSet ret = new SWGResourceSet(cache.size());
-        for (SWGKnownResource kr : cache) {
-            if (kr.galaxy().equals(galaxy))
-                ret.privateAdd(kr); // we are sure kr is valid
-        }
-        return ret.get();
+        Partition p = galaxies.get(galaxy.getName());
+        return p == null
+                ? SWGResourceSet.EMPTY
+                : snapshot(p.all);
     }
 
     /**
@@ -237,7 +287,7 @@ final class SWGResourceCache {
      * @return the number of elements in this cache
      */
     int getSize() {
-        return cache.size();
+        return size;
     }
 
     /**
@@ -254,12 +304,10 @@ final class SWGResourceCache {
         if (galaxy == null)
             throw new NullPointerException("Argument is null");
 
-        SWGResourceSet ret = new SWGResourceSet(cache.size());
-        for (SWGKnownResource kr : cache) {
-            if (kr.galaxy().equals(galaxy) && !kr.isDepleted())
-                ret.privateAdd(kr); // we are sure kr is valid
-        }
-        return ret.get();
+        Partition p = galaxies.get(galaxy.getName());
+        return p == null
+                ? SWGResourceSet.EMPTY
+                : snapshot(p.spawning);
     }
 
     /**
@@ -267,6 +315,10 @@ final class SWGResourceCache {
      * at the specified galaxy. This implementation filters for resources which
      * resource class equals or inherits from the specified resource class. If
      * no instances are found {@link SWGResourceSet#EMPTY} is returned.
+     * <p>
+     * Once the tree of resource classes is built this method reads the buckets
+     * of the galaxy for the classes of the sub-tree of the specified class,
+     * before that it tests each resource of the galaxy.
      * 
      * @param type
      *            the resource class to filter for
@@ -280,15 +332,116 @@ final class SWGResourceCache {
         if (type == null || galaxy == null)
             throw new NullPointerException("An argument is null");
 
-        SWGResourceSet ret = new SWGResourceSet(cache.size());
-        Class<? extends SWGResourceClass> c = type.getClass();
-        for (SWGKnownResource kr : cache) {
-            if (kr.galaxy().equals(galaxy) && kr.rc().isSub(c))
-                ret.privateAdd(kr); // we are sure kr is valid
+        Partition p = galaxies.get(galaxy.getName());
+        if (p == null) return SWGResourceSet.EMPTY;
+
+        SWGResourceSet ret;
+        if (SWGResourceClassTree.isBuilt()) {
+            ret = new SWGResourceSet();
+            for (SWGResourceClass rc : SWGResourceClassTree.subtree(type)) {
+                Set<SWGKnownResource> b = p.classes.get(rc);
+                if (b != null)
+                    for (SWGKnownResource kr : b)
+                        ret.privateAdd(kr); // we are sure kr is valid
+            }
+        } else {
+            ret = new SWGResourceSet(p.all.size());
+            for (SWGKnownResource kr : p.all) {
+                if (kr.rc().isSub(type))
+                    ret.privateAdd(kr); // we are sure kr is valid
+            }
         }
         return ret.get();
     }
 
+    /**
+     * Updates the maps of this cache for the specified resource which
+     * identifiers are possibly changed. The arguments denote the former
+     * identifiers of the resource, mappings from these to the resource are
+     * removed before it is mapped by its current identifiers. If the galaxy is
+     * changed the resource is moved to the partition of its current galaxy. If
+     * the resource is not cached this method does nothing.
+     * <p>
+     * The resource manager must invoke this method whenever it updates the
+     * SWGCraft ID, the name, or the galaxy of a cached resource.
+     * 
+     * @param kr the possibly updated resource
+     * @param oldID the former SWGCraft ID, or a value &le; 0
+     * @param oldName the former name
+     * @param oldGalaxy the former galaxy, or {@code null}
+     */
+    void reindex(SWGKnownResource kr, long oldID, String oldName,
+            SWGCGalaxy oldGalaxy) {
+
+        if (kr.id() == oldID && kr.getName().equals(oldName)
+                && (oldGalaxy == null
+                        ? kr.galaxy() == null
+                        : oldGalaxy.equals(kr.galaxy())))
+            return;
+
+        Partition p = galaxies.get(gxyName(oldGalaxy));
+        if (p == null || !p.all.remove(kr)) return; // not cached
+
+        --size;
+        p.spawning.remove(kr);
+        p.depleted.remove(kr);
+        p.unclass(kr);
+        if (p.names.get(oldName) == kr) p.names.remove(oldName);
+        if (oldID > 0 && ids.get(Long.valueOf(oldID)) == kr)
+            ids.remove(Long.valueOf(oldID));
+
+        addHelper(kr);
+    }
+
+    /**
+     * Updates the sub-indexes of spawning and depleted resources and the
+     * buckets of resource classes for the specified resource. If the resource
+     * is not cached this method does nothing.
+     * <p>
+     * The resource manager must invoke this method whenever it updates the
+     * resource class or the depleted state of a cached resource.
+     * 
+     * @param kr a resource which class or depleted state is possibly changed
+     */
+    void update(SWGKnownResource kr) {
+        Partition p = galaxies.get(gxyName(kr.galaxy()));
+        if (p != null && p.all.contains(kr)) {
+            p.state(kr);
+            p.classify(kr);
+        }
+    }
+
+    /**
+     * Helper method which adds the specified resource to the partition for its
+     * galaxy and to the map of IDs. If an identifier of the resource is already
+     * mapped to by another instance the previous mapping is retained.
+     * 
+     * @param kr the resource to add
+     * @return {@code true} if the resource was added, {@code false} if it was
+     *         already cached
+     */
+    private static boolean addHelper(SWGKnownResource kr) {
+        String gn = gxyName(kr.galaxy());
+        Partition p = galaxies.get(gn);
+        if (p == null) {
+            p = new Partition();
+            galaxies.put(gn, p);
+        }
+        if (!p.all.add(kr)) return false;
+
+        ++size;
+        p.state(kr);
+        p.classify(kr);
+        if (!p.names.containsKey(kr.getName())) p.names.put(kr.getName(), kr);
+
+        long id = kr.id();
+        if (id > 0) {
+            Long key = Long.valueOf(id);
+            if (!ids.containsKey(key)) ids.put(key, kr);
+        }
+        return true;
+    }
+
     /**
      * Helper method which is tightly coupled with
      * {@link SWGKnownResource#readResolve}, which is the only method that is
@@ -309,7 +462,7 @@ final class SWGResourceCache {
 
         SWGKnownResource prev = contains(deserialized);
         if (prev == null) {
-            cache.add(deserialized);
+            addHelper(deserialized);
             return null;
         }
         return prev;
@@ -317,15 +470,15 @@ final class SWGResourceCache {
 
     /**
      * Helper method for {@link #getInstance(SWGResource)} and for
-     * {@link #addDeserialized(SWGKnownResource)}. Scans this cache for an
-     * element that is logically equal to the specified resource and if there is
-     * such an element it is returned.
+     * {@link #addDeserialized(SWGKnownResource)}. Looks up an element that is
+     * logically equal to the specified resource and if there is such an
+     * element it is returned.
      * <p>
-     * This method scans using these identifiers for comparison, in this order:
-     * 1) by reference (the == operator), 2) by SWGCraft ID, 3) by name/galaxy,
-     * and 4) by name/resource-class. The first element that equals any of these
-     * identifiers is returned. If no such element is found {@code null} is
-     * returned. See {@link SWGResource} regarding the identifiers.
+     * This method looks up using these identifiers for comparison, in this
+     * order: 1) by SWGCraft ID and 2) by name/galaxy; if the argument itself is
+     * cached it is found by either identifier. The first element that equals
+     * any of these identifiers is returned. If no such element is found {@code
+     * null} is returned. See {@link SWGResource} regarding the identifiers.
      * 
      * @param res
      *            the resource to find
@@ -333,23 +486,137 @@ final class SWGResourceCache {
      *         null}
      */
     private static SWGKnownResource contains(SWGResource res) {
-        // Notes on performance: lists, and ArrayList in particular, have
-        // extremely good marshaling performance plus the fact that there is
-        // usually less than 500 concurrently spawning resources at a galaxy.
-        // Even if a user tracks several galaxies this method will work well.
-
         long id = res.id();
-        SWGCGalaxy gx = res.galaxy();
-        String name = res.getName();
-
-        for (SWGKnownResource kr : cache) {
-            if (kr == res)
-                return kr;
-            if (id > 0 && id == kr.id())
-                return kr;
-            if (gx.equals(kr.galaxy()) && name.equals(kr.getName()))
-                return kr;
+        if (id > 0) {
+            SWGKnownResource kr = ids.get(Long.valueOf(id));
+            if (kr != null) return kr;
+        }
+
+        if (res.galaxy() == null) return null;
+
+        Partition p = galaxies.get(res.galaxy().getName());
+        return p == null
+                ? null
+                : p.names.get(res.getName());
+    }
+
+    /**
+     * Helper method which returns the name of the specified galaxy, or {@code
+     * null} if the argument is {@code null}.
+     * 
+     * @param gxy a galaxy constant, or {@code null}
+     * @return the name of the galaxy, or {@code null}
+     */
+    private static String gxyName(SWGCGalaxy gxy) {
+        return gxy == null
+                ? null
+                : gxy.getName();
+    }
+
+    /**
+     * Helper method which returns a new set with the elements of the specified
+     * index, or {@link SWGResourceSet#EMPTY} if the index is empty.
+     * 
+     * @param index an index of a partition
+     * @return a set of resources, or {@link SWGResourceSet#EMPTY}
+     */
+    private static SWGResourceSet snapshot(Set<SWGKnownResource> index) {
+        if (index.isEmpty()) return SWGResourceSet.EMPTY;
+
+        SWGResourceSet ret = new SWGResourceSet(index.size());
+        for (SWGKnownResource kr : index)
+            ret.privateAdd(kr); // we are sure kr is valid
+        return ret;
+    }
+
+    /**
+     * This type is the partition of the cache for one galaxy. The sets are
+     * ordered by insertion, a resource that changes state or class is added
+     * last to its new sub-index or bucket.
+     */
+    private static final class Partition {
+
+        /**
+         * The resources of the galaxy of this partition.
+         */
+        final Set<SWGKnownResource> all =
+                new LinkedHashSet<SWGKnownResource>();
+
+        /**
+         * The buckets of the resources of this partition, mapped to by their
+         * resource classes. Resource classes are singletons.
+         */
+        final Map<SWGResourceClass, Set<SWGKnownResource>> classes =
+                new HashMap<SWGResourceClass, Set<SWGKnownResource>>();
+
+        /**
+         * The sub-index of depleted resources of this partition.
+         */
+        final Set<SWGKnownResource> depleted =
+                new LinkedHashSet<SWGKnownResource>();
+
+        /**
+         * A map of the resources of this partition, mapped to by their names.
+         * Only the first added instance for a name is mapped.
+         */
+        final Map<String, SWGKnownResource> names =
+                new HashMap<String, SWGKnownResource>();
+
+        /**
+         * The sub-index of spawning resources of this partition.
+         */
+        final Set<SWGKnownResource> spawning =
+                new LinkedHashSet<SWGKnownResource>();
+
+        /**
+         * Helper method which adds the specified resource to the bucket for
+         * its resource class. If the resource is not in that bucket it is
+         * first removed from the bucket of its former class.
+         * 
+         * @param kr a resource of this partition
+         */
+        void classify(SWGKnownResource kr) {
+            Set<SWGKnownResource> b = classes.get(kr.rc());
+            if (b == null) {
+                b = new LinkedHashSet<SWGKnownResource>();
+                classes.put(kr.rc(), b);
+            } else if (b.contains(kr))
+                return;
+
+            unclass(kr);
+            b.add(kr);
+        }
+
+        /**
+         * Helper method which removes the specified resource from the bucket
+         * it is in, if any. The bucket for the current class of the resource
+         * is tried first; a former class is unknown but a class change is
+         * rare, hence then the buckets are scanned.
+         * 
+         * @param kr a resource of this partition
+         */
+        void unclass(SWGKnownResource kr) {
+            Set<SWGKnownResource> c = classes.get(kr.rc());
+            if (c != null && c.remove(kr)) return;
+
+            for (Set<SWGKnownResource> b : classes.values())
+                if (b.remove(kr)) return;
+        }
+
+        /**
+         * Helper method which adds the specified resource to the sub-index
+         * for its depleted state and removes it from the other sub-index.
+         * 
+         * @param kr a resource of this partition
+         */
+        void state(SWGKnownResource kr) {
+            if (kr.isDepleted()) {
+                spawning.remove(kr);
+                depleted.add(kr);
+            } else {
+                depleted.remove(kr);
+                spawning.add(kr);
+            }
         }
-        return null;
     }
 }
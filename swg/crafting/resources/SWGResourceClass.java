@@ -208,13 +208,22 @@ public abstract class SWGResourceClass implements Serializable,
 
     /**
      * Determines if this is a resource class that is a sub-type of the
-     * suggested super-class; invokes {@link #isSub(Class)}.
+     * suggested super-class. This method returns {@code true} if this instance
+     * is the same class or a sub-class of the argument.
+     * <p>
+     * The sort index of a resource class is its pre-order number in the tree
+     * of resource classes and {@link SWGResourceClassInfo#swgIDtoLast} denotes
+     * the greatest sort index within a sub-tree, both are generated. Hence
+     * this method compares two integers rather than the classes, use this
+     * method rather than {@link #isSub(Class)} where performance matters.
      * 
      * @param zuper the suggested super-class
      * @return {@code true} if {@code this} &le; {@code zuper}
      */
     public boolean isSub(SWGResourceClass zuper) {
-        return isSub(zuper.getClass());
+        int i = sortIndex();
+        return zuper.sortIndex() <= i
+                && i <= SWGResourceClassInfo.swgIDtoLast[zuper.rcID()];
     }
 
     /**
@@ -36,6 +36,15 @@ class SWGResourceClassInfo {
    */
   static final List<SWGResourceClass> swgIDtoInstance = rcList(LISTSIZE + 1);
 
+  /**
+   * Maps a numeric SWGCraft ID to the greatest sort index in
+   * the sub-tree of the resource class. The sort index is the
+   * pre-order number of a resource class in the tree, hence a
+   * sub-tree spans the sort indexes from its top class to the
+   * number in this array. Unused IDs map to 0.
+   */
+  static final int[] swgIDtoLast = new int[LISTSIZE + 1];
+
   /**
    * Maps a proper resource class name, or its type token, to
    * the numerical SWGCraft resource class ID
@@ -2497,6 +2506,823 @@ class SWGResourceClassInfo {
       swgIDtoInstance.set(766, SWGObsidianAsteroid.getInstance());
       swgIDtoInstance.set(762, SWGSilicaceousAsteroid.getInstance());
 
+      swgIDtoLast[816] = 5;
+      swgIDtoLast[ 97] = 6;
+      swgIDtoLast[ 98] = 7;
+      swgIDtoLast[ 99] = 8;
+      swgIDtoLast[100] = 9;
+      swgIDtoLast[101] = 10;
+      swgIDtoLast[102] = 11;
+      swgIDtoLast[103] = 12;
+      swgIDtoLast[104] = 13;
+      swgIDtoLast[105] = 14;
+      swgIDtoLast[106] = 15;
+      swgIDtoLast[737] = 16;
+      swgIDtoLast[ 51] = 16;
+      swgIDtoLast[817] = 18;
+      swgIDtoLast[107] = 19;
+      swgIDtoLast[108] = 20;
+      swgIDtoLast[109] = 21;
+      swgIDtoLast[110] = 22;
+      swgIDtoLast[111] = 23;
+      swgIDtoLast[112] = 24;
+      swgIDtoLast[113] = 25;
+      swgIDtoLast[114] = 26;
+      swgIDtoLast[115] = 27;
+      swgIDtoLast[116] = 28;
+      swgIDtoLast[749] = 29;
+      swgIDtoLast[ 52] = 29;
+      swgIDtoLast[814] = 29;
+      swgIDtoLast[818] = 32;
+      swgIDtoLast[775] = 33;
+      swgIDtoLast[776] = 34;
+      swgIDtoLast[777] = 35;
+      swgIDtoLast[778] = 36;
+      swgIDtoLast[780] = 37;
+      swgIDtoLast[781] = 38;
+      swgIDtoLast[782] = 39;
+      swgIDtoLast[783] = 40;
+      swgIDtoLast[784] = 41;
+      swgIDtoLast[785] = 42;
+      swgIDtoLast[779] = 43;
+      swgIDtoLast[774] = 43;
+      swgIDtoLast[815] = 43;
+      swgIDtoLast[813] = 43;
+      swgIDtoLast[  1] = 43;
+      swgIDtoLast[808] = 48;
+      swgIDtoLast[379] = 50;
+      swgIDtoLast[380] = 51;
+      swgIDtoLast[381] = 52;
+      swgIDtoLast[382] = 53;
+      swgIDtoLast[383] = 54;
+      swgIDtoLast[384] = 55;
+      swgIDtoLast[385] = 56;
+      swgIDtoLast[386] = 57;
+      swgIDtoLast[387] = 58;
+      swgIDtoLast[388] = 59;
+      swgIDtoLast[724] = 60;
+      swgIDtoLast[613] = 61;
+      swgIDtoLast[182] = 61;
+      swgIDtoLast[389] = 63;
+      swgIDtoLast[390] = 64;
+      swgIDtoLast[391] = 65;
+      swgIDtoLast[392] = 66;
+      swgIDtoLast[393] = 67;
+      swgIDtoLast[394] = 68;
+      swgIDtoLast[395] = 69;
+      swgIDtoLast[396] = 70;
+      swgIDtoLast[397] = 71;
+      swgIDtoLast[398] = 72;
+      swgIDtoLast[745] = 73;
+      swgIDtoLast[631] = 74;
+      swgIDtoLast[183] = 74;
+      swgIDtoLast[ 84] = 74;
+      swgIDtoLast[806] = 76;
+      swgIDtoLast[327] = 78;
+      swgIDtoLast[328] = 79;
+      swgIDtoLast[329] = 80;
+      swgIDtoLast[330] = 81;
+      swgIDtoLast[331] = 82;
+      swgIDtoLast[332] = 83;
+      swgIDtoLast[333] = 84;
+      swgIDtoLast[334] = 85;
+      swgIDtoLast[335] = 86;
+      swgIDtoLast[336] = 87;
+      swgIDtoLast[723] = 88;
+      swgIDtoLast[612] = 89;
+      swgIDtoLast[175] = 89;
+      swgIDtoLast[369] = 91;
+      swgIDtoLast[370] = 92;
+      swgIDtoLast[371] = 93;
+      swgIDtoLast[372] = 94;
+      swgIDtoLast[373] = 95;
+      swgIDtoLast[374] = 96;
+      swgIDtoLast[375] = 97;
+      swgIDtoLast[376] = 98;
+      swgIDtoLast[377] = 99;
+      swgIDtoLast[378] = 100;
+      swgIDtoLast[744] = 101;
+      swgIDtoLast[630] = 102;
+      swgIDtoLast[181] = 102;
+      swgIDtoLast[337] = 104;
+      swgIDtoLast[338] = 105;
+      swgIDtoLast[339] = 106;
+      swgIDtoLast[340] = 107;
+      swgIDtoLast[341] = 108;
+      swgIDtoLast[342] = 109;
+      swgIDtoLast[343] = 110;
+      swgIDtoLast[344] = 111;
+      swgIDtoLast[345] = 112;
+      swgIDtoLast[346] = 113;
+      swgIDtoLast[732] = 114;
+      swgIDtoLast[617] = 115;
+      swgIDtoLast[177] = 115;
+      swgIDtoLast[317] = 117;
+      swgIDtoLast[318] = 118;
+      swgIDtoLast[319] = 119;
+      swgIDtoLast[320] = 120;
+      swgIDtoLast[321] = 121;
+      swgIDtoLast[322] = 122;
+      swgIDtoLast[323] = 123;
+      swgIDtoLast[324] = 124;
+      swgIDtoLast[325] = 125;
+      swgIDtoLast[326] = 126;
+      swgIDtoLast[719] = 127;
+      swgIDtoLast[610] = 128;
+      swgIDtoLast[174] = 128;
+      swgIDtoLast[357] = 130;
+      swgIDtoLast[358] = 131;
+      swgIDtoLast[359] = 132;
+      swgIDtoLast[360] = 133;
+      swgIDtoLast[361] = 134;
+      swgIDtoLast[362] = 135;
+      swgIDtoLast[363] = 136;
+      swgIDtoLast[364] = 137;
+      swgIDtoLast[365] = 138;
+      swgIDtoLast[366] = 139;
+      swgIDtoLast[735] = 140;
+      swgIDtoLast[604] = 141;
+      swgIDtoLast[179] = 141;
+      swgIDtoLast[307] = 143;
+      swgIDtoLast[308] = 144;
+      swgIDtoLast[309] = 145;
+      swgIDtoLast[310] = 146;
+      swgIDtoLast[311] = 147;
+      swgIDtoLast[312] = 148;
+      swgIDtoLast[313] = 149;
+      swgIDtoLast[314] = 150;
+      swgIDtoLast[315] = 151;
+      swgIDtoLast[316] = 152;
+      swgIDtoLast[716] = 153;
+      swgIDtoLast[608] = 154;
+      swgIDtoLast[173] = 154;
+      swgIDtoLast[ 39] = 156;
+      swgIDtoLast[ 40] = 157;
+      swgIDtoLast[ 41] = 158;
+      swgIDtoLast[ 42] = 159;
+      swgIDtoLast[ 43] = 160;
+      swgIDtoLast[ 44] = 161;
+      swgIDtoLast[ 45] = 162;
+      swgIDtoLast[ 46] = 163;
+      swgIDtoLast[ 47] = 164;
+      swgIDtoLast[ 48] = 165;
+      swgIDtoLast[663] = 166;
+      swgIDtoLast[614] = 167;
+      swgIDtoLast[811] = 167;
+      swgIDtoLast[347] = 169;
+      swgIDtoLast[348] = 170;
+      swgIDtoLast[349] = 171;
+      swgIDtoLast[350] = 172;
+      swgIDtoLast[351] = 173;
+      swgIDtoLast[352] = 174;
+      swgIDtoLast[353] = 175;
+      swgIDtoLast[354] = 176;
+      swgIDtoLast[355] = 177;
+      swgIDtoLast[356] = 178;
+      swgIDtoLast[733] = 179;
+      swgIDtoLast[618] = 180;
+      swgIDtoLast[178] = 180;
+      swgIDtoLast[807] = 182;
+      swgIDtoLast[664] = 184;
+      swgIDtoLast[665] = 185;
+      swgIDtoLast[666] = 186;
+      swgIDtoLast[667] = 187;
+      swgIDtoLast[669] = 188;
+      swgIDtoLast[671] = 189;
+      swgIDtoLast[672] = 190;
+      swgIDtoLast[673] = 191;
+      swgIDtoLast[674] = 192;
+      swgIDtoLast[675] = 193;
+      swgIDtoLast[668] = 194;
+      swgIDtoLast[670] = 195;
+      swgIDtoLast[176] = 195;
+      swgIDtoLast[651] = 197;
+      swgIDtoLast[652] = 198;
+      swgIDtoLast[653] = 199;
+      swgIDtoLast[654] = 200;
+      swgIDtoLast[656] = 201;
+      swgIDtoLast[658] = 202;
+      swgIDtoLast[659] = 203;
+      swgIDtoLast[660] = 204;
+      swgIDtoLast[661] = 205;
+      swgIDtoLast[662] = 206;
+      swgIDtoLast[655] = 207;
+      swgIDtoLast[657] = 208;
+      swgIDtoLast[367] = 208;
+      swgIDtoLast[686] = 210;
+      swgIDtoLast[687] = 211;
+      swgIDtoLast[688] = 212;
+      swgIDtoLast[689] = 213;
+      swgIDtoLast[691] = 214;
+      swgIDtoLast[693] = 215;
+      swgIDtoLast[694] = 216;
+      swgIDtoLast[695] = 217;
+      swgIDtoLast[696] = 218;
+      swgIDtoLast[697] = 219;
+      swgIDtoLast[690] = 220;
+      swgIDtoLast[692] = 221;
+      swgIDtoLast[368] = 221;
+      swgIDtoLast[180] = 221;
+      swgIDtoLast[ 83] = 221;
+      swgIDtoLast[ 35] = 221;
+      swgIDtoLast[809] = 224;
+      swgIDtoLast[224] = 225;
+      swgIDtoLast[225] = 226;
+      swgIDtoLast[226] = 227;
+      swgIDtoLast[227] = 228;
+      swgIDtoLast[228] = 229;
+      swgIDtoLast[229] = 230;
+      swgIDtoLast[230] = 231;
+      swgIDtoLast[231] = 232;
+      swgIDtoLast[232] = 233;
+      swgIDtoLast[233] = 234;
+      swgIDtoLast[714] = 235;
+      swgIDtoLast[607] = 236;
+      swgIDtoLast[234] = 238;
+      swgIDtoLast[235] = 239;
+      swgIDtoLast[236] = 240;
+      swgIDtoLast[237] = 241;
+      swgIDtoLast[238] = 242;
+      swgIDtoLast[239] = 243;
+      swgIDtoLast[240] = 244;
+      swgIDtoLast[241] = 245;
+      swgIDtoLast[242] = 246;
+      swgIDtoLast[243] = 247;
+      swgIDtoLast[715] = 248;
+      swgIDtoLast[751] = 249;
+      swgIDtoLast[ 91] = 249;
+      swgIDtoLast[ 37] = 249;
+      swgIDtoLast[830] = 251;
+      swgIDtoLast[676] = 252;
+      swgIDtoLast[ 92] = 253;
+      swgIDtoLast[677] = 254;
+      swgIDtoLast[678] = 255;
+      swgIDtoLast[680] = 256;
+      swgIDtoLast[682] = 257;
+      swgIDtoLast[683] = 258;
+      swgIDtoLast[ 93] = 259;
+      swgIDtoLast[684] = 260;
+      swgIDtoLast[685] = 261;
+      swgIDtoLast[679] = 262;
+      swgIDtoLast[681] = 263;
+      swgIDtoLast[ 38] = 263;
+      swgIDtoLast[810] = 265;
+      swgIDtoLast[214] = 267;
+      swgIDtoLast[215] = 268;
+      swgIDtoLast[216] = 269;
+      swgIDtoLast[217] = 270;
+      swgIDtoLast[218] = 271;
+      swgIDtoLast[219] = 272;
+      swgIDtoLast[220] = 273;
+      swgIDtoLast[221] = 274;
+      swgIDtoLast[222] = 275;
+      swgIDtoLast[223] = 276;
+      swgIDtoLast[750] = 277;
+      swgIDtoLast[632] = 278;
+      swgIDtoLast[ 89] = 278;
+      swgIDtoLast[184] = 280;
+      swgIDtoLast[185] = 281;
+      swgIDtoLast[186] = 282;
+      swgIDtoLast[187] = 283;
+      swgIDtoLast[188] = 284;
+      swgIDtoLast[189] = 285;
+      swgIDtoLast[190] = 286;
+      swgIDtoLast[191] = 287;
+      swgIDtoLast[192] = 288;
+      swgIDtoLast[193] = 289;
+      swgIDtoLast[718] = 290;
+      swgIDtoLast[609] = 291;
+      swgIDtoLast[ 85] = 291;
+      swgIDtoLast[194] = 293;
+      swgIDtoLast[195] = 294;
+      swgIDtoLast[196] = 295;
+      swgIDtoLast[197] = 296;
+      swgIDtoLast[198] = 297;
+      swgIDtoLast[199] = 298;
+      swgIDtoLast[200] = 299;
+      swgIDtoLast[201] = 300;
+      swgIDtoLast[202] = 301;
+      swgIDtoLast[203] = 302;
+      swgIDtoLast[734] = 303;
+      swgIDtoLast[621] = 304;
+      swgIDtoLast[ 87] = 304;
+      swgIDtoLast[204] = 306;
+      swgIDtoLast[205] = 307;
+      swgIDtoLast[206] = 308;
+      swgIDtoLast[207] = 309;
+      swgIDtoLast[208] = 310;
+      swgIDtoLast[209] = 311;
+      swgIDtoLast[210] = 312;
+      swgIDtoLast[211] = 313;
+      swgIDtoLast[212] = 314;
+      swgIDtoLast[213] = 315;
+      swgIDtoLast[736] = 316;
+      swgIDtoLast[603] = 317;
+      swgIDtoLast[ 88] = 317;
+      swgIDtoLast[ 36] = 317;
+      swgIDtoLast[ 11] = 317;
+      swgIDtoLast[ 10] = 317;
+      swgIDtoLast[805] = 321;
+      swgIDtoLast[416] = 324;
+      swgIDtoLast[417] = 325;
+      swgIDtoLast[418] = 326;
+      swgIDtoLast[419] = 327;
+      swgIDtoLast[420] = 328;
+      swgIDtoLast[421] = 329;
+      swgIDtoLast[422] = 330;
+      swgIDtoLast[423] = 331;
+      swgIDtoLast[424] = 332;
+      swgIDtoLast[425] = 333;
+      swgIDtoLast[722] = 334;
+      swgIDtoLast[755] = 335;
+      swgIDtoLast[399] = 335;
+      swgIDtoLast[426] = 337;
+      swgIDtoLast[427] = 338;
+      swgIDtoLast[428] = 339;
+      swgIDtoLast[429] = 340;
+      swgIDtoLast[430] = 341;
+      swgIDtoLast[431] = 342;
+      swgIDtoLast[432] = 343;
+      swgIDtoLast[433] = 344;
+      swgIDtoLast[434] = 345;
+      swgIDtoLast[435] = 346;
+      swgIDtoLast[743] = 347;
+      swgIDtoLast[798] = 348;
+      swgIDtoLast[400] = 348;
+      swgIDtoLast[244] = 348;
+      swgIDtoLast[456] = 351;
+      swgIDtoLast[457] = 352;
+      swgIDtoLast[458] = 353;
+      swgIDtoLast[459] = 354;
+      swgIDtoLast[460] = 355;
+      swgIDtoLast[461] = 356;
+      swgIDtoLast[462] = 357;
+      swgIDtoLast[463] = 358;
+      swgIDtoLast[464] = 359;
+      swgIDtoLast[465] = 360;
+      swgIDtoLast[726] = 361;
+      swgIDtoLast[789] = 362;
+      swgIDtoLast[403] = 362;
+      swgIDtoLast[466] = 364;
+      swgIDtoLast[467] = 365;
+      swgIDtoLast[468] = 366;
+      swgIDtoLast[469] = 367;
+      swgIDtoLast[470] = 368;
+      swgIDtoLast[471] = 369;
+      swgIDtoLast[472] = 370;
+      swgIDtoLast[473] = 371;
+      swgIDtoLast[474] = 372;
+      swgIDtoLast[475] = 373;
+      swgIDtoLast[747] = 374;
+      swgIDtoLast[793] = 375;
+      swgIDtoLast[404] = 375;
+      swgIDtoLast[246] = 375;
+      swgIDtoLast[436] = 378;
+      swgIDtoLast[437] = 379;
+      swgIDtoLast[438] = 380;
+      swgIDtoLast[439] = 381;
+      swgIDtoLast[440] = 382;
+      swgIDtoLast[441] = 383;
+      swgIDtoLast[442] = 384;
+      swgIDtoLast[443] = 385;
+      swgIDtoLast[444] = 386;
+      swgIDtoLast[445] = 387;
+      swgIDtoLast[725] = 388;
+      swgIDtoLast[788] = 389;
+      swgIDtoLast[401] = 389;
+      swgIDtoLast[446] = 391;
+      swgIDtoLast[447] = 392;
+      swgIDtoLast[448] = 393;
+      swgIDtoLast[449] = 394;
+      swgIDtoLast[450] = 395;
+      swgIDtoLast[451] = 396;
+      swgIDtoLast[452] = 397;
+      swgIDtoLast[453] = 398;
+      swgIDtoLast[454] = 399;
+      swgIDtoLast[455] = 400;
+      swgIDtoLast[746] = 401;
+      swgIDtoLast[791] = 402;
+      swgIDtoLast[402] = 402;
+      swgIDtoLast[245] = 402;
+      swgIDtoLast[476] = 405;
+      swgIDtoLast[477] = 406;
+      swgIDtoLast[478] = 407;
+      swgIDtoLast[479] = 408;
+      swgIDtoLast[480] = 409;
+      swgIDtoLast[481] = 410;
+      swgIDtoLast[482] = 411;
+      swgIDtoLast[483] = 412;
+      swgIDtoLast[484] = 413;
+      swgIDtoLast[485] = 414;
+      swgIDtoLast[727] = 415;
+      swgIDtoLast[796] = 416;
+      swgIDtoLast[405] = 416;
+      swgIDtoLast[486] = 418;
+      swgIDtoLast[487] = 419;
+      swgIDtoLast[488] = 420;
+      swgIDtoLast[489] = 421;
+      swgIDtoLast[490] = 422;
+      swgIDtoLast[491] = 423;
+      swgIDtoLast[492] = 424;
+      swgIDtoLast[493] = 425;
+      swgIDtoLast[494] = 426;
+      swgIDtoLast[495] = 427;
+      swgIDtoLast[748] = 428;
+      swgIDtoLast[794] = 429;
+      swgIDtoLast[406] = 429;
+      swgIDtoLast[247] = 429;
+      swgIDtoLast[ 94] = 429;
+      swgIDtoLast[804] = 432;
+      swgIDtoLast[546] = 434;
+      swgIDtoLast[547] = 435;
+      swgIDtoLast[548] = 436;
+      swgIDtoLast[549] = 437;
+      swgIDtoLast[550] = 438;
+      swgIDtoLast[551] = 439;
+      swgIDtoLast[552] = 440;
+      swgIDtoLast[553] = 441;
+      swgIDtoLast[554] = 442;
+      swgIDtoLast[555] = 443;
+      swgIDtoLast[740] = 444;
+      swgIDtoLast[790] = 445;
+      swgIDtoLast[412] = 445;
+      swgIDtoLast[526] = 447;
+      swgIDtoLast[527] = 448;
+      swgIDtoLast[528] = 449;
+      swgIDtoLast[529] = 450;
+      swgIDtoLast[530] = 451;
+      swgIDtoLast[531] = 452;
+      swgIDtoLast[532] = 453;
+      swgIDtoLast[533] = 454;
+      swgIDtoLast[534] = 455;
+      swgIDtoLast[535] = 456;
+      swgIDtoLast[738] = 457;
+      swgIDtoLast[792] = 458;
+      swgIDtoLast[410] = 458;
+      swgIDtoLast[556] = 460;
+      swgIDtoLast[557] = 461;
+      swgIDtoLast[558] = 462;
+      swgIDtoLast[559] = 463;
+      swgIDtoLast[560] = 464;
+      swgIDtoLast[561] = 465;
+      swgIDtoLast[562] = 466;
+      swgIDtoLast[563] = 467;
+      swgIDtoLast[564] = 468;
+      swgIDtoLast[565] = 469;
+      swgIDtoLast[741] = 470;
+      swgIDtoLast[800] = 471;
+      swgIDtoLast[413] = 471;
+      swgIDtoLast[536] = 473;
+      swgIDtoLast[537] = 474;
+      swgIDtoLast[538] = 475;
+      swgIDtoLast[539] = 476;
+      swgIDtoLast[540] = 477;
+      swgIDtoLast[541] = 478;
+      swgIDtoLast[542] = 479;
+      swgIDtoLast[543] = 480;
+      swgIDtoLast[544] = 481;
+      swgIDtoLast[545] = 482;
+      swgIDtoLast[739] = 483;
+      swgIDtoLast[795] = 484;
+      swgIDtoLast[411] = 484;
+      swgIDtoLast[249] = 484;
+      swgIDtoLast[803] = 486;
+      swgIDtoLast[516] = 488;
+      swgIDtoLast[517] = 489;
+      swgIDtoLast[518] = 490;
+      swgIDtoLast[519] = 491;
+      swgIDtoLast[520] = 492;
+      swgIDtoLast[521] = 493;
+      swgIDtoLast[522] = 494;
+      swgIDtoLast[523] = 495;
+      swgIDtoLast[524] = 496;
+      swgIDtoLast[525] = 497;
+      swgIDtoLast[731] = 498;
+      swgIDtoLast[797] = 499;
+      swgIDtoLast[409] = 499;
+      swgIDtoLast[496] = 501;
+      swgIDtoLast[497] = 502;
+      swgIDtoLast[498] = 503;
+      swgIDtoLast[499] = 504;
+      swgIDtoLast[500] = 505;
+      swgIDtoLast[501] = 506;
+      swgIDtoLast[502] = 507;
+      swgIDtoLast[503] = 508;
+      swgIDtoLast[504] = 509;
+      swgIDtoLast[505] = 510;
+      swgIDtoLast[717] = 511;
+      swgIDtoLast[752] = 512;
+      swgIDtoLast[407] = 512;
+      swgIDtoLast[506] = 514;
+      swgIDtoLast[507] = 515;
+      swgIDtoLast[508] = 516;
+      swgIDtoLast[509] = 517;
+      swgIDtoLast[510] = 518;
+      swgIDtoLast[511] = 519;
+      swgIDtoLast[512] = 520;
+      swgIDtoLast[513] = 521;
+      swgIDtoLast[514] = 522;
+      swgIDtoLast[515] = 523;
+      swgIDtoLast[730] = 524;
+      swgIDtoLast[799] = 525;
+      swgIDtoLast[408] = 525;
+      swgIDtoLast[248] = 525;
+      swgIDtoLast[ 95] = 525;
+      swgIDtoLast[ 49] = 525;
+      swgIDtoLast[787] = 528;
+      swgIDtoLast[567] = 530;
+      swgIDtoLast[568] = 531;
+      swgIDtoLast[569] = 532;
+      swgIDtoLast[570] = 533;
+      swgIDtoLast[571] = 534;
+      swgIDtoLast[572] = 535;
+      swgIDtoLast[573] = 536;
+      swgIDtoLast[574] = 537;
+      swgIDtoLast[575] = 538;
+      swgIDtoLast[576] = 539;
+      swgIDtoLast[721] = 540;
+      swgIDtoLast[754] = 541;
+      swgIDtoLast[250] = 541;
+      swgIDtoLast[579] = 543;
+      swgIDtoLast[580] = 544;
+      swgIDtoLast[581] = 545;
+      swgIDtoLast[582] = 546;
+      swgIDtoLast[583] = 547;
+      swgIDtoLast[584] = 548;
+      swgIDtoLast[585] = 549;
+      swgIDtoLast[586] = 550;
+      swgIDtoLast[587] = 551;
+      swgIDtoLast[588] = 552;
+      swgIDtoLast[720] = 553;
+      swgIDtoLast[753] = 554;
+      swgIDtoLast[589] = 556;
+      swgIDtoLast[590] = 557;
+      swgIDtoLast[591] = 558;
+      swgIDtoLast[592] = 559;
+      swgIDtoLast[593] = 560;
+      swgIDtoLast[594] = 561;
+      swgIDtoLast[595] = 562;
+      swgIDtoLast[596] = 563;
+      swgIDtoLast[597] = 564;
+      swgIDtoLast[598] = 565;
+      swgIDtoLast[728] = 566;
+      swgIDtoLast[801] = 567;
+      swgIDtoLast[578] = 567;
+      swgIDtoLast[251] = 567;
+      swgIDtoLast[ 96] = 567;
+      swgIDtoLast[ 50] = 567;
+      swgIDtoLast[ 13] = 567;
+      swgIDtoLast[  3] = 567;
+      swgIDtoLast[819] = 570;
+      swgIDtoLast[ 67] = 572;
+      swgIDtoLast[117] = 574;
+      swgIDtoLast[118] = 575;
+      swgIDtoLast[119] = 576;
+      swgIDtoLast[120] = 577;
+      swgIDtoLast[757] = 578;
+      swgIDtoLast[121] = 579;
+      swgIDtoLast[122] = 580;
+      swgIDtoLast[602] = 581;
+      swgIDtoLast[ 66] = 581;
+      swgIDtoLast[ 17] = 581;
+      swgIDtoLast[ 64] = 583;
+      swgIDtoLast[ 65] = 584;
+      swgIDtoLast[ 16] = 584;
+      swgIDtoLast[ 53] = 586;
+      swgIDtoLast[ 54] = 587;
+      swgIDtoLast[ 55] = 588;
+      swgIDtoLast[ 56] = 589;
+      swgIDtoLast[ 58] = 590;
+      swgIDtoLast[ 59] = 591;
+      swgIDtoLast[ 60] = 592;
+      swgIDtoLast[ 61] = 593;
+      swgIDtoLast[ 62] = 594;
+      swgIDtoLast[ 57] = 595;
+      swgIDtoLast[ 63] = 596;
+      swgIDtoLast[729] = 597;
+      swgIDtoLast[616] = 598;
+      swgIDtoLast[ 15] = 598;
+      swgIDtoLast[  6] = 598;
+      swgIDtoLast[802] = 600;
+      swgIDtoLast[ 25] = 601;
+      swgIDtoLast[ 26] = 602;
+      swgIDtoLast[ 27] = 603;
+      swgIDtoLast[ 28] = 604;
+      swgIDtoLast[ 29] = 605;
+      swgIDtoLast[ 30] = 606;
+      swgIDtoLast[ 31] = 607;
+      swgIDtoLast[ 32] = 608;
+      swgIDtoLast[ 33] = 609;
+      swgIDtoLast[ 34] = 610;
+      swgIDtoLast[742] = 611;
+      swgIDtoLast[629] = 612;
+      swgIDtoLast[  9] = 612;
+      swgIDtoLast[828] = 615;
+      swgIDtoLast[ 82] = 616;
+      swgIDtoLast[634] = 618;
+      swgIDtoLast[635] = 619;
+      swgIDtoLast[171] = 620;
+      swgIDtoLast[636] = 621;
+      swgIDtoLast[172] = 622;
+      swgIDtoLast[637] = 623;
+      swgIDtoLast[638] = 624;
+      swgIDtoLast[605] = 625;
+      swgIDtoLast[ 81] = 625;
+      swgIDtoLast[ 24] = 625;
+      swgIDtoLast[827] = 627;
+      swgIDtoLast[ 80] = 628;
+      swgIDtoLast[166] = 630;
+      swgIDtoLast[167] = 631;
+      swgIDtoLast[639] = 632;
+      swgIDtoLast[168] = 633;
+      swgIDtoLast[169] = 634;
+      swgIDtoLast[640] = 635;
+      swgIDtoLast[641] = 636;
+      swgIDtoLast[622] = 637;
+      swgIDtoLast[170] = 638;
+      swgIDtoLast[ 79] = 638;
+      swgIDtoLast[ 23] = 638;
+      swgIDtoLast[824] = 641;
+      swgIDtoLast[162] = 642;
+      swgIDtoLast[288] = 644;
+      swgIDtoLast[287] = 645;
+      swgIDtoLast[284] = 646;
+      swgIDtoLast[280] = 647;
+      swgIDtoLast[599] = 648;
+      swgIDtoLast[285] = 649;
+      swgIDtoLast[283] = 650;
+      swgIDtoLast[281] = 651;
+      swgIDtoLast[286] = 652;
+      swgIDtoLast[278] = 653;
+      swgIDtoLast[707] = 654;
+      swgIDtoLast[279] = 655;
+      swgIDtoLast[282] = 656;
+      swgIDtoLast[624] = 657;
+      swgIDtoLast[161] = 657;
+      swgIDtoLast[277] = 659;
+      swgIDtoLast[275] = 660;
+      swgIDtoLast[276] = 661;
+      swgIDtoLast[269] = 662;
+      swgIDtoLast[270] = 663;
+      swgIDtoLast[271] = 664;
+      swgIDtoLast[272] = 665;
+      swgIDtoLast[273] = 666;
+      swgIDtoLast[274] = 667;
+      swgIDtoLast[620] = 668;
+      swgIDtoLast[160] = 668;
+      swgIDtoLast[ 77] = 668;
+      swgIDtoLast[826] = 670;
+      swgIDtoLast[165] = 671;
+      swgIDtoLast[825] = 673;
+      swgIDtoLast[295] = 674;
+      swgIDtoLast[289] = 675;
+      swgIDtoLast[290] = 676;
+      swgIDtoLast[291] = 677;
+      swgIDtoLast[292] = 678;
+      swgIDtoLast[293] = 679;
+      swgIDtoLast[294] = 680;
+      swgIDtoLast[606] = 681;
+      swgIDtoLast[163] = 681;
+      swgIDtoLast[305] = 683;
+      swgIDtoLast[299] = 684;
+      swgIDtoLast[306] = 685;
+      swgIDtoLast[296] = 686;
+      swgIDtoLast[297] = 687;
+      swgIDtoLast[300] = 688;
+      swgIDtoLast[301] = 689;
+      swgIDtoLast[302] = 690;
+      swgIDtoLast[303] = 691;
+      swgIDtoLast[304] = 692;
+      swgIDtoLast[298] = 693;
+      swgIDtoLast[611] = 694;
+      swgIDtoLast[164] = 694;
+      swgIDtoLast[ 78] = 694;
+      swgIDtoLast[ 22] = 694;
+      swgIDtoLast[821] = 697;
+      swgIDtoLast[157] = 698;
+      swgIDtoLast[756] = 700;
+      swgIDtoLast[252] = 701;
+      swgIDtoLast[708] = 702;
+      swgIDtoLast[709] = 703;
+      swgIDtoLast[253] = 704;
+      swgIDtoLast[254] = 705;
+      swgIDtoLast[255] = 706;
+      swgIDtoLast[256] = 707;
+      swgIDtoLast[257] = 708;
+      swgIDtoLast[710] = 709;
+      swgIDtoLast[615] = 710;
+      swgIDtoLast[155] = 710;
+      swgIDtoLast[258] = 712;
+      swgIDtoLast[259] = 713;
+      swgIDtoLast[698] = 714;
+      swgIDtoLast[699] = 715;
+      swgIDtoLast[702] = 716;
+      swgIDtoLast[260] = 717;
+      swgIDtoLast[700] = 718;
+      swgIDtoLast[261] = 719;
+      swgIDtoLast[633] = 720;
+      swgIDtoLast[619] = 721;
+      swgIDtoLast[156] = 721;
+      swgIDtoLast[ 75] = 721;
+      swgIDtoLast[823] = 723;
+      swgIDtoLast[713] = 724;
+      swgIDtoLast[262] = 726;
+      swgIDtoLast[263] = 727;
+      swgIDtoLast[264] = 728;
+      swgIDtoLast[703] = 729;
+      swgIDtoLast[704] = 730;
+      swgIDtoLast[265] = 731;
+      swgIDtoLast[705] = 732;
+      swgIDtoLast[706] = 733;
+      swgIDtoLast[158] = 733;
+      swgIDtoLast[822] = 735;
+      swgIDtoLast[642] = 736;
+      swgIDtoLast[643] = 737;
+      swgIDtoLast[266] = 738;
+      swgIDtoLast[644] = 739;
+      swgIDtoLast[268] = 740;
+      swgIDtoLast[267] = 741;
+      swgIDtoLast[645] = 742;
+      swgIDtoLast[159] = 742;
+      swgIDtoLast[ 76] = 742;
+      swgIDtoLast[ 21] = 742;
+      swgIDtoLast[820] = 744;
+      swgIDtoLast[ 74] = 745;
+      swgIDtoLast[648] = 747;
+      swgIDtoLast[142] = 748;
+      swgIDtoLast[649] = 749;
+      swgIDtoLast[143] = 750;
+      swgIDtoLast[144] = 751;
+      swgIDtoLast[145] = 752;
+      swgIDtoLast[146] = 753;
+      swgIDtoLast[650] = 754;
+      swgIDtoLast[147] = 755;
+      swgIDtoLast[141] = 756;
+      swgIDtoLast[625] = 757;
+      swgIDtoLast[626] = 758;
+      swgIDtoLast[ 72] = 758;
+      swgIDtoLast[148] = 760;
+      swgIDtoLast[149] = 761;
+      swgIDtoLast[150] = 762;
+      swgIDtoLast[151] = 763;
+      swgIDtoLast[153] = 764;
+      swgIDtoLast[711] = 765;
+      swgIDtoLast[152] = 766;
+      swgIDtoLast[154] = 767;
+      swgIDtoLast[627] = 768;
+      swgIDtoLast[628] = 769;
+      swgIDtoLast[ 73] = 769;
+      swgIDtoLast[ 20] = 769;
+      swgIDtoLast[  8] = 769;
+      swgIDtoLast[712] = 772;
+      swgIDtoLast[134] = 774;
+      swgIDtoLast[135] = 775;
+      swgIDtoLast[136] = 776;
+      swgIDtoLast[137] = 777;
+      swgIDtoLast[ 71] = 778;
+      swgIDtoLast[138] = 779;
+      swgIDtoLast[140] = 780;
+      swgIDtoLast[139] = 781;
+      swgIDtoLast[623] = 782;
+      swgIDtoLast[ 70] = 782;
+      swgIDtoLast[ 19] = 782;
+      swgIDtoLast[ 69] = 784;
+      swgIDtoLast[126] = 786;
+      swgIDtoLast[129] = 787;
+      swgIDtoLast[646] = 788;
+      swgIDtoLast[123] = 789;
+      swgIDtoLast[601] = 790;
+      swgIDtoLast[124] = 791;
+      swgIDtoLast[125] = 792;
+      swgIDtoLast[128] = 793;
+      swgIDtoLast[647] = 794;
+      swgIDtoLast[130] = 795;
+      swgIDtoLast[131] = 796;
+      swgIDtoLast[132] = 797;
+      swgIDtoLast[133] = 798;
+      swgIDtoLast[ 68] = 798;
+      swgIDtoLast[ 18] = 798;
+      swgIDtoLast[  7] = 798;
+      swgIDtoLast[  2] = 798;
+      swgIDtoLast[764] = 801;
+      swgIDtoLast[768] = 802;
+      swgIDtoLast[765] = 803;
+      swgIDtoLast[772] = 804;
+      swgIDtoLast[600] = 804;
+      swgIDtoLast[767] = 806;
+      swgIDtoLast[771] = 807;
+      swgIDtoLast[758] = 807;
+      swgIDtoLast[769] = 809;
+      swgIDtoLast[770] = 810;
+      swgIDtoLast[759] = 810;
+      swgIDtoLast[761] = 812;
+      swgIDtoLast[773] = 813;
+      swgIDtoLast[763] = 814;
+      swgIDtoLast[766] = 815;
+      swgIDtoLast[762] = 816;
+      swgIDtoLast[760] = 816;
+      swgIDtoLast[  4] = 816;
+
 
     } catch (Exception e) {
       SWGAide.printError("SWGResourceClassInfo:static_ini: ", e);
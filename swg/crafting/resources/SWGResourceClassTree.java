@@ -2,6 +2,7 @@ package swg.crafting.resources;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,13 @@ import swg.tools.ZString;
  * manager. Then local client implementations of {@link TreeModel} for resource
  * class trees only need to query the corresponding methods of this type.
  * <p>
+ * Each node is numbered in pre-order, sub-nodes in the sort order for resource
+ * classes, and it knows the greatest number within its sub-tree. Thus the
+ * resource classes of a sub-tree are a continuous range of the pre-order, see
+ * {@link #subtree(SWGResourceClass)}. The pre-order number equals the sort
+ * index of a resource class, compare
+ * {@link SWGResourceClass#isSub(SWGResourceClass)}.
+ * <p>
  * Because this type is immutable and static it is inherently thread safe.
  * Methods that potentially returns mutable data rather returns a copy.
  * 
@@ -54,7 +62,19 @@ public final class SWGResourceClassTree {
      * is distance from root, and secondly the sort order for resource classes.
      */
     private static List<RCNode> allNodes;
-    
+
+    /**
+     * A map of all nodes in this tree, mapped to by their resource classes.
+     */
+    private static Map<SWGResourceClass, RCNode> nodes;
+
+    /**
+     * A list of the resource classes in this tree in pre-order, the root is
+     * at index 0. The classes of a sub-tree are the range from the pre-order
+     * number of its top node to the greatest pre-order number in the sub-tree.
+     */
+    private static List<SWGResourceClass> preOrder;
+
     /**
      * A map of icons for assorted resource classes used in GUI elements. If a
      * particular class does not map to an icon the getter method returns an
@@ -76,9 +96,42 @@ public final class SWGResourceClassTree {
             throw new IllegalStateException("Instance exists already");
 
         allNodes = new ArrayList<RCNode>(SWGResourceClassInfo.LISTSIZE);
+        nodes = new HashMap<SWGResourceClass, RCNode>(
+                SWGResourceClassInfo.LISTSIZE * 2);
+
+        RCNode r = new RCNode(null, SWGResourceClass.INSTANCE);
+        populateRoot(r);
+
+        SWGResourceClass[] po = new SWGResourceClass[allNodes.size()];
+        number(r, po, 0);
+        preOrder = Collections.unmodifiableList(Arrays.asList(po));
+
+        root = r; // last, the static methods are valid from now on
+    }
+
+    /**
+     * Helper method which numbers the specified node and its sub-tree in
+     * pre-order, starting with the specified number, and adds the resource
+     * classes to the array at their numbers. This method recursively invokes
+     * itself for the children of the node and returns the greatest number of
+     * the sub-tree.
+     * 
+     * @param n a node in this tree
+     * @param po an array for the resource classes in pre-order
+     * @param num the pre-order number for the node
+     * @return the greatest pre-order number in the sub-tree
+     */
+    @SuppressWarnings("synthetic-access")
+    private int number(RCNode n, SWGResourceClass[] po, int num) {
+        n.pre = num;
+        po[num] = n.resClass;
+
+        int last = num;
+        for (RCNode c : n.children)
+            last = number(c, po, last + 1); // recursive call
 
-        root = new RCNode(null, SWGResourceClass.INSTANCE);
-        populateRoot(root);
+        n.last = last;
+        return last;
     }
 
     /**
@@ -249,10 +302,11 @@ public final class SWGResourceClassTree {
      * @throws NullPointerException if {@code rc} is {@code null}
      */
     private static RCNode getNode(SWGResourceClass rc) {
-        for (RCNode e : allNodes)
-            if (rc.equals(e.resClass)) return e;
+        RCNode n = nodes.get(rc);
+        if (n == null)
+            throw new IllegalStateException("Res class not found: " + rc);
 
-        throw new IllegalStateException("Res class not found: " + rc);
+        return n;
     }
 
     /**
@@ -334,6 +388,17 @@ public final class SWGResourceClassTree {
                 : i;
     }
 
+    /**
+     * Returns {@code true} if this tree is built, that is if an instance of
+     * this type is created. Until then the methods which use the pre-order of
+     * the tree must not be invoked.
+     * 
+     * @return {@code true} if this tree is built
+     */
+    static boolean isBuilt() {
+        return root != null;
+    }
+
     /**
      * Returns {@code true} if {@code node} is a leaf in the tree. See
      * {@link TreeModel#isLeaf(Object)}.
@@ -379,6 +444,23 @@ public final class SWGResourceClassTree {
         }
     }
 
+    /**
+     * Returns a list of the resource classes in the sub-tree of the specified
+     * class in pre-order, the first element is the argument itself. For a
+     * leaf the list contains just the argument. The list is a range of the
+     * pre-order of this tree and it is read-only. This method must not be
+     * invoked before the tree is built, see {@link #isBuilt()}.
+     * 
+     * @param rc a resource class
+     * @return a list of the classes in the sub-tree of the argument
+     * @throws IllegalStateException if the argument is not in this tree
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    static List<SWGResourceClass> subtree(SWGResourceClass rc) {
+        RCNode n = getNode(rc);
+        return preOrder.subList(n.pre, n.last + 1);
+    }
+
     /**
      * A helper type for a resource class tree node.
      * 
@@ -400,12 +482,23 @@ public final class SWGResourceClassTree {
          */
         final int level;
 
+        /**
+         * The greatest pre-order number in the sub-tree of this node. For a
+         * leaf this is the number of the node itself.
+         */
+        int last;
+
         /**
          * The parent node for this node. If this is the root {@link #parent} is
          * {@code null} and {@link #level} is 0.
          */
         final RCNode parent;
 
+        /**
+         * The pre-order number of this node, the root is number 0.
+         */
+        int pre;
+
         /**
          * The resource class for this node.
          */
@@ -415,8 +508,8 @@ public final class SWGResourceClassTree {
          * Creates an instance for the specified resource class. For the root
          * node the argument for parent is {@code null}. This constructor sets
          * {@code level = p.level + 1}, except for the root node which is level
-         * 0. Furthermore, the created node is added to {@link #allNodes} and to
-         * {@code p.children}.
+         * 0. Furthermore, the created node is added to {@link #allNodes}, to
+         * {@link #nodes}, and to {@code p.children}.
          * 
          * @param p the parent node for this node
          * @param rc a resource class
@@ -439,6 +532,7 @@ public final class SWGResourceClassTree {
                 parent.children.add(this);
 
             SWGResourceClassTree.allNodes.add(this);
+            SWGResourceClassTree.nodes.put(rc, this);
         }
 
         @Override
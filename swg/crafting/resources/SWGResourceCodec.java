@@ -0,0 +1,300 @@
+package swg.crafting.resources;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import swg.crafting.Stat;
+import swg.model.SWGCGalaxy;
+import swg.model.SWGPlanet;
+
+/**
+ * This type is the binary codec for the serialized form of a known resource,
+ * see {@link SWGKnownResource}. The codec replaces the default serialization of
+ * the fields of a resource with a compact form, which is written and read by
+ * the serialization hooks of the resource. Hence a resource is still an object
+ * in the object stream and references to it are maintained as before.
+ * <p>
+ * The form begins with {@link #VERSION}, the fields follow in this order:
+ * <ul>
+ * <li>depleted date: a zig-zag varint</li>
+ * <li>galaxy: an object, which is a handle after its first occurrence</li>
+ * <li>name: a modified UTF-8 string</li>
+ * <li>planet availability: a varint with a bitmask of the planets by their
+ * ordinals, shifted left one bit, the lowest bit is set if the map is not
+ * {@code null}; for each planet in order a zig-zag varint with the date, the
+ * first as is and the following as a difference from the previous, and the
+ * username as an index to the string table of the stream</li>
+ * <li>stats: a varint with a bitmask of the non-zero values, shifted left one
+ * bit, the lowest bit is set if the stats are not {@code null}; a varint for
+ * each non-zero value</li>
+ * <li>SWGCraft ID: a zig-zag varint</li>
+ * <li>resource class: a varint with its ID, or 0 for {@code null}</li>
+ * </ul>
+ * A varint is seven bits per byte, the lowest bits first, the high bit is set
+ * for each byte but the last. The string table is per object stream: a string
+ * is written as an index plus one to the strings which are written before to
+ * the same stream, or as 0 followed by the string. The string table is read in
+ * the same order as it is written, and a string which is read more than once
+ * is one instance.
+ * <p>
+ * The first byte of the form from before this codec is the first byte of the
+ * depleted date, which is never {@link #VERSION}, see
+ * {@link SWGKnownResource}. A future form must have another version.
+ *
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+final class SWGResourceCodec {
+
+    /**
+     * The version of the form which is written by this type.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * A map of object input streams which map to their string tables. The
+     * streams are weakly referenced.
+     */
+    private static final Map<ObjectInputStream, List<String>> readTables =
+            Collections.synchronizedMap(
+                    new WeakHashMap<ObjectInputStream, List<String>>());
+
+    /**
+     * A map of object output streams which map to their string tables, the
+     * strings map to their indexes. The streams are weakly referenced.
+     */
+    private static final Map<ObjectOutputStream, Map<String, Integer>> writeTables =
+            Collections.synchronizedMap(
+                    new WeakHashMap<ObjectOutputStream, Map<String, Integer>>());
+
+    /**
+     * This type should not be instantiated.
+     */
+    private SWGResourceCodec() {
+        throw new AssertionError(); // prevent instantiation
+    }
+
+    /**
+     * Reads the fields of the specified resource from the specified stream.
+     * This method is invoked by the deserialization hook of the resource after
+     * it has read {@link #VERSION}.
+     *
+     * @param kr the resource to read to
+     * @param in the stream to read from
+     * @throws ClassNotFoundException if the class for the galaxy cannot be
+     *         found
+     * @throws IOException if there is an I/O error, or if the form is invalid
+     */
+    static void read(SWGKnownResource kr, ObjectInputStream in)
+            throws ClassNotFoundException, IOException {
+
+        kr.deserialDepletedDate(unzig(readVarLong(in)));
+        kr.deserialGalaxy((SWGCGalaxy) in.readObject());
+        kr.deserialName(in.readUTF());
+
+        long mask = readVarLong(in);
+        if ((mask & 1) != 0) {
+            Map<SWGPlanet, SWGPlanetAvailabilityInfo> pam =
+                    new HashMap<SWGPlanet, SWGPlanetAvailabilityInfo>();
+            long date = 0;
+            for (SWGPlanet p : SWGPlanet.values())
+                if ((mask & (2L << p.ordinal())) != 0) {
+                    date += unzig(readVarLong(in));
+                    pam.put(p, new SWGPlanetAvailabilityInfo(
+                            p, date, readString(in)));
+                }
+            kr.deserialPam(pam);
+        }
+
+        mask = readVarLong(in);
+        if ((mask & 1) != 0) {
+            int[] values = new int[Stat.COUNT];
+            for (int i = 0; i < values.length; ++i)
+                if ((mask & (2L << i)) != 0)
+                    values[i] = (int) readVarLong(in);
+            kr.deserialStats(new SWGResourceStats(values));
+        }
+
+        kr.deserialID(unzig(readVarLong(in)));
+        int rc = (int) readVarLong(in);
+        if (rc > 0) kr.deserialRC(SWGResourceClass.rc(rc));
+    }
+
+    /**
+     * Helper method which reads a string from the specified stream by its
+     * string table, see the class comment.
+     *
+     * @param in the stream to read from
+     * @return a string
+     * @throws IOException if there is an I/O error, or if the index is invalid
+     */
+    private static String readString(ObjectInputStream in) throws IOException {
+        List<String> table = readTables.get(in);
+        if (table == null) {
+            table = new ArrayList<String>();
+            readTables.put(in, table);
+        }
+
+        int i = (int) readVarLong(in);
+        if (i == 0) {
+            String s = in.readUTF();
+            table.add(s);
+            return s;
+        }
+        if (i > table.size())
+            throw new IOException("Invalid string index: " + i);
+
+        return table.get(i - 1);
+    }
+
+    /**
+     * Reads and returns a varint from the specified input, see the class
+     * comment.
+     *
+     * @param in the input to read from
+     * @return a value
+     * @throws IOException if there is an I/O error, or if the varint is
+     *         longer than ten bytes
+     */
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Invalid varint");
+    }
+
+    /**
+     * Helper method which returns the signed value for the specified zig-zag
+     * encoded value.
+     *
+     * @param v a zig-zag encoded value
+     * @return a signed value
+     */
+    private static long unzig(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Writes the fields of the specified resource to the specified stream.
+     * This method is invoked by the serialization hook of the resource, it
+     * writes {@link #VERSION} and the fields, see the class comment.
+     *
+     * @param kr the resource to write
+     * @param out the stream to write to
+     * @throws IOException if there is an I/O error
+     */
+    static void write(SWGKnownResource kr, ObjectOutputStream out)
+            throws IOException {
+
+        out.writeByte(VERSION);
+        writeVarLong(out, zig(kr.depleted()));
+        out.writeObject(kr.galaxy());
+        out.writeUTF(kr.getName());
+
+        Map<SWGPlanet, SWGPlanetAvailabilityInfo> pam = kr.serialAvailMap();
+        if (pam == null)
+            writeVarLong(out, 0);
+        else {
+            long mask = 1;
+            for (SWGPlanet p : pam.keySet())
+                mask |= 2L << p.ordinal();
+            writeVarLong(out, mask);
+
+            long date = 0;
+            for (SWGPlanet p : SWGPlanet.values()) {
+                SWGPlanetAvailabilityInfo pi = pam.get(p);
+                if (pi == null) continue;
+
+                writeVarLong(out, zig(pi.availableDate - date));
+                writeString(out, pi.availableBy);
+                date = pi.availableDate;
+            }
+        }
+
+        SWGResourceStats st = kr.safeStats();
+        if (st == null)
+            writeVarLong(out, 0);
+        else {
+            int[] values = st.safeValues();
+            long mask = 1;
+            for (int i = 0; i < values.length; ++i)
+                if (values[i] != 0) mask |= 2L << i;
+            writeVarLong(out, mask);
+
+            for (int v : values)
+                if (v != 0) writeVarLong(out, v);
+        }
+
+        writeVarLong(out, zig(kr.id()));
+        writeVarLong(out, kr.rc() != null
+                ? kr.rc().rcID()
+                : 0);
+    }
+
+    /**
+     * Helper method which writes a string to the specified stream by its
+     * string table, see the class comment.
+     *
+     * @param out the stream to write to
+     * @param s the string to write
+     * @throws IOException if there is an I/O error
+     */
+    private static void writeString(ObjectOutputStream out, String s)
+            throws IOException {
+
+        Map<String, Integer> table = writeTables.get(out);
+        if (table == null) {
+            table = new HashMap<String, Integer>();
+            writeTables.put(out, table);
+        }
+
+        Integer i = table.get(s);
+        if (i != null)
+            writeVarLong(out, i.intValue() + 1);
+        else {
+            writeVarLong(out, 0);
+            out.writeUTF(s);
+            table.put(s, Integer.valueOf(table.size()));
+        }
+    }
+
+    /**
+     * Writes the specified value as a varint to the specified output, see the
+     * class comment. A negative value is written as ten bytes, see
+     * {@link #zig(long)}.
+     *
+     * @param out the output to write to
+     * @param v the value to write
+     * @throws IOException if there is an I/O error
+     */
+    static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7fL) != 0) {
+            out.writeByte((int) (v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    /**
+     * Helper method which returns the zig-zag encoded value for the specified
+     * signed value, a value near zero is a small value also if it is negative.
+     *
+     * @param v a signed value
+     * @return a zig-zag encoded value
+     */
+    private static long zig(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+}
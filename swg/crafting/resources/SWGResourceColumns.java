@@ -0,0 +1,365 @@
+package swg.crafting.resources;
+
+import java.util.Collection;
+
+import swg.crafting.SWGValues;
+import swg.crafting.SWGWeights;
+import swg.crafting.Stat;
+import swg.model.SWGPlanet;
+
+/**
+ * This type is a columnar snapshot of a set of resources, usually the spawning
+ * resources at a galaxy. The data that scans read is held in arrays of
+ * primitive values, one array per column, and a resource is identified by its
+ * row index. The columns are one {@code short[]} per stat, the class IDs, the
+ * first-available dates, and a bitmask for the planets that the resources are
+ * available at.
+ * <p>
+ * Filters, guards, and weights are evaluated column by column over a mask of
+ * rows, a {@code boolean[]} which is narrowed by each step. Such a loop reads
+ * arrays in order and does not dereference a resource, its stats, or its map
+ * of planets for each row. Finally {@link #subset(boolean[])} returns the
+ * matching resources in the order of this snapshot.
+ * <p>
+ * An instance of this type is immutable and thread safe. It is a snapshot,
+ * if a resource is modified the snapshot is not updated. The resource manager
+ * rebuilds the snapshot for a galaxy on each download and drops it when a
+ * resource of the galaxy is modified otherwise, see
+ * {@code SWGResourceManager#getColumns(SWGCGalaxy)}.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+public final class SWGResourceColumns {
+
+    /**
+     * The first-available dates of the resources, in seconds since the epoch,
+     * or 0 if the date is unknown.
+     */
+    final long[] ages;
+
+    /**
+     * The SWGCraft IDs of the resource classes of the resources.
+     */
+    final int[] classes;
+
+    /**
+     * The bitmasks for the planets that the resources are available at, one
+     * bit per planet constant by its ordinal.
+     */
+    final int[] planets;
+
+    /**
+     * The resources of this snapshot, in the order of the rows.
+     */
+    final SWGKnownResource[] resources;
+
+    /**
+     * The sort indexes of the resource classes of the resources, see
+     * {@link SWGResourceClass#sortIndex()}. A class check is a range check
+     * over this column.
+     */
+    final int[] sorts;
+
+    /**
+     * The stats of the resources, one column per stat indexed by
+     * {@link Stat#i}, and in each column one value per row.
+     */
+    final short[][] stats;
+
+    /**
+     * Creates a snapshot of the specified resources, in the order of the
+     * collection.
+     * 
+     * @param resources the resources for the snapshot
+     * @throws NullPointerException if the argument or an element is {@code
+     *         null}
+     */
+    public SWGResourceColumns(Collection<SWGKnownResource> resources) {
+        this.resources = resources.toArray(
+                new SWGKnownResource[resources.size()]);
+
+        int n = this.resources.length;
+        ages = new long[n];
+        classes = new int[n];
+        planets = new int[n];
+        sorts = new int[n];
+        stats = new short[Stat.COUNT][n];
+
+        SWGPlanet[] pls = SWGPlanet.values();
+        for (int r = 0; r < n; ++r) {
+            SWGKnownResource kr = this.resources[r];
+            SWGResourceClass rc = kr.rc();
+            classes[r] = rc.rcID();
+            sorts[r] = rc.sortIndex();
+            ages[r] = kr.availableFirst().available();
+
+            int mask = 0;
+            for (SWGPlanet p : pls)
+                if (kr.availabilityFor(p) != null) mask |= 1 << p.ordinal();
+            planets[r] = mask;
+
+            SWGResourceStats st = kr.safeStats();
+            if (st != null) {
+                int[] vs = st.safeValues();
+                for (int s = 0; s < Stat.COUNT; ++s)
+                    stats[s][r] = (short) vs[s];
+            }
+        }
+    }
+
+    /**
+     * Returns the first-available date for the resource at the specified row,
+     * or 0 if the date is unknown. The date is in seconds since the epoch, see
+     * {@link SWGResource#availableFirst()}.
+     * 
+     * @param row the row of a resource
+     * @return the first-available date, or 0
+     * @throws ArrayIndexOutOfBoundsException if the row is out of bounds
+     */
+    public long available(int row) {
+        return ages[row];
+    }
+
+    /**
+     * Returns a mask for the rows of the specified mask which resources have
+     * no stats, that is all values are zero. The specified mask is not
+     * modified.
+     * 
+     * @param rows a mask of rows
+     * @return a new mask of the rows which resources have no stats
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public boolean[] blanks(boolean[] rows) {
+        boolean[] ret = rows.clone();
+        for (short[] col : stats)
+            for (int r = 0; r < ret.length; ++r)
+                ret[r] &= col[r] <= 0;
+
+        return ret;
+    }
+
+    /**
+     * Returns the number of rows which are included in the specified mask.
+     * 
+     * @param rows a mask of rows
+     * @return the number of included rows
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public static int count(boolean[] rows) {
+        int n = 0;
+        for (boolean b : rows)
+            if (b) ++n;
+
+        return n;
+    }
+
+    /**
+     * Returns the resource at the specified row.
+     * 
+     * @param row the row of a resource
+     * @return a resource
+     * @throws ArrayIndexOutOfBoundsException if the row is out of bounds
+     */
+    public SWGKnownResource get(int row) {
+        return resources[row];
+    }
+
+    /**
+     * Determines if the resource at the specified row is available at the
+     * specified planet.
+     * 
+     * @param row the row of a resource
+     * @param planet a planet constant
+     * @return {@code true} if the resource is available at the planet
+     * @throws ArrayIndexOutOfBoundsException if the row is out of bounds
+     * @throws NullPointerException if the planet is {@code null}
+     */
+    public boolean isAvailable(int row, SWGPlanet planet) {
+        return (planets[row] & (1 << planet.ordinal())) != 0;
+    }
+
+    /**
+     * Narrows the specified mask to the rows which resources meet the
+     * specified filter, considering the boolean argument. This is the same
+     * logic as {@link SWGResourceFilter#isBetter(SWGResource, boolean)}.
+     * 
+     * @param rows the mask of rows to narrow
+     * @param filter the filter to sift the resources through
+     * @param all {@code true} if <i>all&nbsp;</i> non-zero values of the
+     *        filter must be met, {@code false} if it suffices with one
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public void retain(boolean[] rows, SWGResourceFilter filter, boolean all) {
+        int n = rows.length;
+        boolean[] any = all
+                ? null
+                : new boolean[n];
+
+        for (Stat s : Stat.values()) {
+            int tv = filter.value(s);
+            if (tv <= 0) continue; // does not contribute
+
+            short[] col = stats[s.i];
+            if (all)
+                for (int r = 0; r < n; ++r)
+                    rows[r] &= col[r] >= tv;
+            else
+                for (int r = 0; r < n; ++r)
+                    any[r] |= col[r] >= tv;
+        }
+
+        if (!all)
+            for (int r = 0; r < n; ++r)
+                rows[r] &= any[r];
+    }
+
+    /**
+     * Narrows the specified mask to the rows which resources are rated equal
+     * to or better than the specified threshold by the specified rater, see
+     * {@link SWGWeightRater}. The mask must not contain rows which resource
+     * classes are not equal to or a sub-class of the resource class for caps
+     * of the rater, the caller must use {@link #rows(SWGResourceClass)} for
+     * that.
+     * 
+     * @param rows the mask of rows to narrow
+     * @param rater the rater to rate the resources by
+     * @param threshold the minimum rate, in the range [0.0 1000.0]
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public void retain(boolean[] rows, SWGWeightRater rater, double threshold) {
+        double[] rates = new double[rows.length];
+        rater.rate(this, rows, rates);
+        for (int r = 0; r < rows.length; ++r)
+            rows[r] &= rates[r] >= threshold;
+    }
+
+    /**
+     * Narrows the specified mask to the rows which resources have all of the
+     * stats which are non-zero in the specified values. This is the same logic
+     * as {@link SWGValues#hasAllValues(SWGResource)}.
+     * 
+     * @param rows the mask of rows to narrow
+     * @param values the values which stats must be present
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public void retainAllValues(boolean[] rows, SWGValues values) {
+        for (Stat s : Stat.values()) {
+            if (values.value(s) <= 0) continue;
+
+            short[] col = stats[s.i];
+            for (int r = 0; r < rows.length; ++r)
+                rows[r] &= col[r] > 0;
+        }
+    }
+
+    /**
+     * Returns a mask which includes all rows of this snapshot.
+     * 
+     * @return a new mask of all rows
+     */
+    public boolean[] rows() {
+        boolean[] ret = new boolean[resources.length];
+        for (int r = 0; r < ret.length; ++r)
+            ret[r] = true;
+
+        return ret;
+    }
+
+    /**
+     * Returns a mask of the rows which resource classes are equal to or a
+     * sub-class of the specified resource class, see
+     * {@link SWGResourceClass#isSub(SWGResourceClass)}.
+     * 
+     * @param type a resource class
+     * @return a new mask of the rows of the resource class
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public boolean[] rows(SWGResourceClass type) {
+        int lo = type.sortIndex();
+        int hi = SWGResourceClassInfo.swgIDtoLast[type.rcID()];
+
+        boolean[] ret = new boolean[resources.length];
+        for (int r = 0; r < ret.length; ++r)
+            ret[r] = lo <= sorts[r] && sorts[r] <= hi;
+
+        return ret;
+    }
+
+    /**
+     * Returns the number of rows of this snapshot.
+     * 
+     * @return the number of resources
+     */
+    public int size() {
+        return resources.length;
+    }
+
+    /**
+     * Returns a set of the resources at the rows of the specified mask, in the
+     * order of this snapshot. If the mask is empty {@link SWGResourceSet#EMPTY}
+     * is returned.
+     * 
+     * @param rows a mask of rows
+     * @return a set of resources, or {@link SWGResourceSet#EMPTY}
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public SWGResourceSet subset(boolean[] rows) {
+        int n = count(rows);
+        if (n == 0)
+            return SWGResourceSet.EMPTY;
+
+        SWGResourceSet ret = new SWGResourceSet(n);
+        for (int r = 0; r < rows.length; ++r)
+            if (rows[r]) ret.privateAdd(resources[r]);
+
+        return ret;
+    }
+
+    /**
+     * Returns a set of the resources of this snapshot that meet the specified
+     * filter, considering the boolean argument. This is the same as
+     * {@link SWGResourceSet#subsetBy(SWGResourceFilter, boolean)}.
+     * 
+     * @param filter the filter to sift the resources through
+     * @param all {@code true} if <i>all&nbsp;</i> non-zero values of the
+     *        filter must be met, {@code false} if it suffices with one
+     * @return a set of resources, or {@link SWGResourceSet#EMPTY}
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public SWGResourceSet subsetBy(SWGResourceFilter filter, boolean all) {
+        boolean[] rows = rows();
+        retain(rows, filter, all);
+        return subset(rows);
+    }
+
+    /**
+     * Returns a set of the resources of this snapshot that meet the specified
+     * arguments. This is the same as
+     * {@link SWGResourceSet#subsetBy(SWGWeights, SWGResourceClass, boolean, double)}.
+     * 
+     * @param weights the values to compute the weight of the resources from
+     * @param capsFrom the resource class to derive caps from
+     * @param zeroIsMax {@code true} if a zero-value should be treated as its
+     *        capped value, otherwise {@code false}
+     * @param threshold the minimum weight for resources in the returned set,
+     *        in the range [0.0 1000.0]
+     * @return a set of resources, or {@link SWGResourceSet#EMPTY}
+     * @throws IllegalArgumentException if an argument is invalid
+     * @throws NullPointerException if an object argument is {@code null}
+     */
+    public SWGResourceSet subsetBy(SWGWeights weights,
+            SWGResourceClass capsFrom, boolean zeroIsMax, double threshold) {
+
+        if (!weights.isValid())
+            throw new IllegalArgumentException("Invalid weights: " + weights);
+        if (threshold < 0 || threshold > 1000)
+            throw new IllegalArgumentException("Invalid threshold: "
+                    + threshold);
+
+        boolean[] rows = rows(capsFrom);
+        retain(rows, new SWGWeightRater(weights, capsFrom, zeroIsMax),
+                threshold);
+        return subset(rows);
+    }
+}
@@ -17,6 +17,10 @@ import swg.crafting.Stat;
  * <li><b>expected stat:</b> a stat that is required by the resource class of
  * the resource, one can also say <b>expected value</b> which is a corollary</li>
  * </ul>
+ * <p>
+ * For a batch of resources a filter is evaluated against all rows of a
+ * {@link SWGResourceColumns} snapshot, see
+ * {@link SWGResourceColumns#retain(boolean[], SWGResourceFilter, boolean)}.
  * 
  * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
  *         Chimaera.Zimoon
@@ -0,0 +1,123 @@
+package swg.crafting.resources;
+
+import java.util.Arrays;
+
+import swg.model.SWGPlanet;
+
+/**
+ * This type is a compact record of a download of resources for a galaxy. For
+ * each resource it contains the SWGCraft ID and a fingerprint which is a hash
+ * of the name, the resource class, and the stats of the resource, plus a
+ * bitmask for the planets that the resource is available at. The record is
+ * two arrays of primitive values which are sorted by ID, it does not retain
+ * any resource object.
+ * <p>
+ * The resource manager retains the record for the previous download of each
+ * galaxy and diffs the next download against it. Only resources which are
+ * added, changed, or no longer listed must then be reconciled with the cache.
+ * A hash collision could hide a change of name or stats, but that change is
+ * then picked up by the next download which changes the resource again, or
+ * at the next launch of SWGAide when there is no previous record.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+final class SWGResourceFingerprints {
+
+    /**
+     * The SWGCraft IDs of the resources in the download, in ascending order.
+     */
+    private final long[] ids;
+
+    /**
+     * The fingerprints of the resources in the download, at the same index as
+     * their IDs in {@link #ids}.
+     */
+    private final long[] prints;
+
+    /**
+     * Creates a record for the specified download. The elements of the list
+     * must have valid SWGCraft IDs which are unique.
+     * 
+     * @param download a list of downloaded resources for one galaxy
+     * @throws IllegalArgumentException if an ID is not valid
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    SWGResourceFingerprints(SWGResourceList download) {
+        int n = download.size();
+        ids = new long[n];
+        prints = new long[n];
+
+        int i = 0;
+        for (SWGResource r : download) {
+            if (r.id() <= 0)
+                throw new IllegalArgumentException("Invalid ID: " + r);
+            ids[i++] = r.id();
+        }
+        Arrays.sort(ids);
+
+        for (SWGResource r : download)
+            prints[Arrays.binarySearch(ids, r.id())] = print(r);
+    }
+
+    /**
+     * Determines if the specified resource is contained in the download for
+     * this record.
+     * 
+     * @param id the SWGCraft ID for a resource
+     * @return {@code true} if the resource is contained in the download
+     */
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * Determines if the specified resource is contained both in the download
+     * for this record and in the download for the specified previous record,
+     * with equal fingerprints. Such a resource is not changed between the two
+     * downloads and it need not be reconciled with the cache.
+     * 
+     * @param id the SWGCraft ID for a resource
+     * @param prev the record for a previous download
+     * @return {@code true} if the resource is not changed
+     */
+    boolean isUnchanged(long id, SWGResourceFingerprints prev) {
+        int i = Arrays.binarySearch(ids, id);
+        if (i < 0) return false;
+
+        int j = Arrays.binarySearch(prev.ids, id);
+        return j >= 0 && prints[i] == prev.prints[j];
+    }
+
+    /**
+     * Returns the number of resources in the download for this record.
+     * 
+     * @return the size of this record
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Helper method which returns a fingerprint for the specified resource.
+     * The upper 32 bits is a hash of the name, the resource class, and the
+     * stats of the resource, if any. The lower 32 bits is a bitmask for the planets
+     * that the resource is available at, one bit per planet constant.
+     * 
+     * @param r a resource
+     * @return a fingerprint for the resource
+     */
+    static long print(SWGResource r) {
+        int h = r.getName().hashCode();
+        h = 31 * h + r.rc().rcID();
+        SWGResourceStats st = r.safeStats();
+        if (st != null) for (int v : st.safeValues())
+            h = 31 * h + v;
+
+        int mask = 0;
+        for (SWGPlanet p : SWGPlanet.values())
+            if (r.availabilityFor(p) != null) mask |= 1 << p.ordinal();
+
+        return ((long) h << 32) | (mask & 0xffffffffL);
+    }
+}
@@ -7,9 +7,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import swg.model.SWGCGalaxy;
 import swg.tools.ZString;
@@ -48,6 +50,16 @@ import swg.tools.ZString;
  * is no guarantee against concurrent changes, between consecutive calls. This
  * should not cause a problem since this type is thought to be used in very
  * narrow, controlled scopes.
+ * <P>
+ * <B>INDEXES</B>
+ * <P>
+ * {@link #getByID(long)} and {@link #getByNameAndType(String, SWGResourceClass)}
+ * use indexes which are built lazily at the first call. Adding elements
+ * updates a built index, other modifications invalidate it and it is rebuilt
+ * at the next call. Thus a sequence of look-ups and adds, such as when a
+ * download is parsed or reconciled, is linear rather than quadratic. Clients
+ * must not change the identifiers of an element while it is contained in this
+ * list; a stale hit is detected and the index is rebuilt, but a miss is not.
  * 
  * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
  *         Chimaera.Zimoon
@@ -62,6 +74,21 @@ public final class SWGResourceList implements List<SWGResource> {
         EMPTY.storage = Collections.emptyList();
     }
 
+    /**
+     * An index of the elements of this list that have a SWGCraft ID, mapped to
+     * by their IDs, or {@code null} if it is not built. Only the first element
+     * for an ID is mapped. This field is synchronized on {@link #storage}.
+     */
+    private Map<Long, SWGResource> ids;
+
+    /**
+     * An index of the elements of this list, mapped to by a key for their
+     * names and resource classes, or {@code null} if it is not built; see
+     * {@link #key(String, SWGResourceClass)}. Only the first element for a
+     * key is mapped. This field is synchronized on {@link #storage}.
+     */
+    private Map<String, SWGResource> namesAndTypes;
+
     /**
      * The internal storage for resources.
      */
@@ -126,8 +153,12 @@ public final class SWGResourceList implements List<SWGResource> {
             return false;
 
         synchronized (storage) {
-            if (!storage.contains(e))
-                return storage.add(e);
+            // an element with an ID is not contained, see the check above
+            if (e.id() > 0 || !storage.contains(e)) {
+                storage.add(e);
+                index(e);
+                return true;
+            }
         }
         return false;
     }
@@ -167,6 +198,7 @@ public final class SWGResourceList implements List<SWGResource> {
     public void clear() {
         synchronized (storage) {
             storage.clear();
+            invalidate();
         }
     }
 
@@ -211,11 +243,16 @@ public final class SWGResourceList implements List<SWGResource> {
         if (swgcraftID <= 0)
             throw new IllegalArgumentException("Invalid ID: " + swgcraftID);
 
-        for (SWGResource r : storage)
-            if (r.id() == swgcraftID)
-                return r;
+        synchronized (storage) {
+            if (ids == null) buildIndexes();
 
-        return null;
+            SWGResource r = ids.get(Long.valueOf(swgcraftID));
+            if (r != null && r.id() != swgcraftID) {
+                buildIndexes(); // the element is changed, index is stale
+                r = ids.get(Long.valueOf(swgcraftID));
+            }
+            return r;
+        }
     }
 
     /**
@@ -282,11 +319,58 @@ public final class SWGResourceList implements List<SWGResource> {
             throw new IllegalArgumentException("Not spawnable: " + type + ':'
                 + name);
 
+        synchronized (storage) {
+            if (namesAndTypes == null) buildIndexes();
+
+            String k = key(name, type);
+            SWGResource r = namesAndTypes.get(k);
+            if (r != null && (r.rc() != type || !r.getName().equals(name))) {
+                buildIndexes(); // the element is changed, index is stale
+                r = namesAndTypes.get(k);
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Helper method which adds the specified element to the indexes, if they
+     * are built. If an identifier of the element is already mapped to by
+     * another element the previous mapping is retained. This method must be
+     * invoked under the lock of {@link #storage}.
+     * 
+     * @param r the element to index
+     */
+    private void index(SWGResource r) {
+        if (ids == null) return;
+
+        if (r.id() > 0) {
+            Long id = Long.valueOf(r.id());
+            if (!ids.containsKey(id)) ids.put(id, r);
+        }
+        String k = key(r.getName(), r.rc());
+        if (!namesAndTypes.containsKey(k)) namesAndTypes.put(k, r);
+    }
+
+    /**
+     * Helper method which builds the indexes from the elements of this list.
+     * This method must be invoked under the lock of {@link #storage}.
+     */
+    private void buildIndexes() {
+        int n = (storage.size() * 4) / 3 + 16;
+        ids = new HashMap<Long, SWGResource>(n);
+        namesAndTypes = new HashMap<String, SWGResource>(n);
         for (SWGResource r : storage)
-            if (r.rc() == type && r.getName().equals(name))
-                return r;
+            index(r);
+    }
 
-        return null;
+    /**
+     * Helper method which invalidates the indexes. They are rebuilt at the
+     * next look-up. This method must be invoked under the lock of
+     * {@link #storage}.
+     */
+    private void invalidate() {
+        ids = null;
+        namesAndTypes = null;
     }
 
     /*
@@ -335,7 +419,36 @@ public final class SWGResourceList implements List<SWGResource> {
      * @see java.util.List#iterator()
      */
     public Iterator<SWGResource> iterator() {
-        return storage.iterator();
+        final Iterator<SWGResource> it = storage.iterator();
+        return new Iterator<SWGResource>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public SWGResource next() {
+                return it.next();
+            }
+
+            @SuppressWarnings("synthetic-access")
+            public void remove() {
+                synchronized (storage) {
+                    it.remove();
+                    invalidate();
+                }
+            }
+        };
+    }
+
+    /**
+     * Helper method which returns a key for the index of names and resource
+     * classes.
+     * 
+     * @param name a resource name
+     * @param type a resource class
+     * @return a key for the arguments
+     */
+    private static String key(String name, SWGResourceClass type) {
+        return type.rcID() + ":" + name;
     }
 
     /**
@@ -389,6 +502,7 @@ public final class SWGResourceList implements List<SWGResource> {
      */
     public SWGResource remove(int index) {
         synchronized (storage) {
+            invalidate();
             return storage.remove(index);
         }
     }
@@ -399,6 +513,7 @@ public final class SWGResourceList implements List<SWGResource> {
      */
     public boolean remove(Object o) {
         synchronized (storage) {
+            invalidate();
             return storage.remove(o);
         }
     }
@@ -409,6 +524,7 @@ public final class SWGResourceList implements List<SWGResource> {
      */
     public boolean removeAll(Collection<?> c) {
         synchronized (storage) {
+            invalidate();
             return storage.removeAll(c);
         }
     }
@@ -419,6 +535,7 @@ public final class SWGResourceList implements List<SWGResource> {
      */
     public boolean retainAll(Collection<?> c) {
         synchronized (storage) {
+            invalidate();
             return storage.retainAll(c);
         }
     }
@@ -432,6 +549,7 @@ public final class SWGResourceList implements List<SWGResource> {
             throw new NullPointerException("Null elements are not allowed");
 
         synchronized (storage) {
+            invalidate();
             return storage.set(index, element);
         }
     }
@@ -472,11 +590,10 @@ public final class SWGResourceList implements List<SWGResource> {
      */
     public SWGResourceList sublistByResourceClass(SWGResourceClass type) {
 
-        Class<? extends SWGResourceClass> typeCls = type.getClass();
         SWGResourceList result = new SWGResourceList(size());
 
         for (SWGResource r : storage) {
-            if (typeCls.isAssignableFrom(r.rc().getClass()))
+            if (r.rc().isSub(type))
                 result.storage.add(r); // surpass our checkpoints
         }
         if (result.storage.isEmpty())
@@ -7,6 +7,7 @@ import java.util.Map;
 import swg.SWGAide;
 import swg.gui.SWGFrame;
 import swg.gui.common.SWGDoTask;
+import swg.gui.resources.SWGResController;
 import swg.model.SWGCGalaxy;
 import swg.model.SWGPlanet;
 import swg.tools.SimplePrefsKeeper;
@@ -70,6 +71,32 @@ public class SWGResourceMgr {
      */
     public static final int COLLECTION_SIZE = 512;
 
+    /**
+     * A map of columnar snapshots of the spawning resources for each galaxy,
+     * mapped to by galaxy names, see {@link SWGResourceColumns}. A snapshot is
+     * rebuilt on each download for its galaxy. It is dropped together with
+     * the record in {@link #fingerprints} and when a resource is added to the
+     * cache, and it is then rebuilt when it is asked for. This map is
+     * synchronized on {@link #cache}.
+     */
+    private static final Map<String, SWGResourceColumns> columns =
+            new HashMap<String, SWGResourceColumns>();
+
+    /**
+     * A map of records of the previous download for each galaxy, mapped to by
+     * galaxy names. A record is used to diff the next download for the galaxy
+     * so that only resources which are added, changed, or no longer listed are
+     * reconciled with the cache, see {@link SWGResourceFingerprints}.
+     * <p>
+     * The records are not persisted, the first download for a galaxy in a
+     * session is reconciled in full. The record for a galaxy is dropped when
+     * a resource of the galaxy is modified other than by a download, so that
+     * the next download restores the data of the download also for resources
+     * which it did not change. This map is synchronized on {@link #cache}.
+     */
+    private static final Map<String, SWGResourceFingerprints> fingerprints =
+            new HashMap<String, SWGResourceFingerprints>();
+
     /**
      * The frame for this application.
      */
@@ -126,6 +153,24 @@ public class SWGResourceMgr {
         // XXX: use cache.getSize() and an INI file or something
         cache = new SWGResourceCache(this, 2000);
     }
+
+    /**
+     * Creates an object with the singleton property retained, for tools which
+     * use the cache but no GUI, such as the benchmarks in the devtools folder.
+     * The frame is {@code null} and the map of resource sets is not obtained
+     * from SWGAide's object storage, hence {@link #initiate()} must not be
+     * invoked. This class should only be instantiated once.
+     * 
+     * @param initSize the initial size of the cache
+     * @throws IllegalStateException if an instance exists
+     */
+    protected SWGResourceMgr(int initSize) {
+        if (cache != null)
+            throw new IllegalStateException("Cannot break singleton property");
+
+        cache = new SWGResourceCache(this, initSize);
+        generalMap = new HashMap<String, SWGResourceSet>();
+    }
     
     /**
      * Clears all contents from the resource cache. This method must only be
@@ -133,7 +178,11 @@ public class SWGResourceMgr {
      * loading a backup file, if one exists.
      */
     public final void clear() {
-        cache.clear();
+        synchronized (cache) {
+            cache.clear();
+            columns.clear();
+            fingerprints.clear();
+        }
     }
 
     /**
@@ -191,11 +240,39 @@ public class SWGResourceMgr {
             SWGAide.printError("SWGResourceMgr:cacheAdd",
                 new IllegalStateException(
                 "false was returned: " + resource.toString()));
+        if (resource.galaxy() != null)
+            columns.remove(resource.galaxy().getName());
+    }
+
+    /**
+     * Helper method which returns a columnar snapshot of the resources which
+     * are spawning at {@code galaxy}, see {@link SWGResourceColumns}. If there
+     * is no valid snapshot for the galaxy it is built from the cache.
+     * <p>
+     * This method is thread safe and locks on {@link #cache}.
+     * 
+     * @param galaxy
+     *            a galaxy constant
+     * @return a snapshot of spawning resources
+     * @throws NullPointerException
+     *             if the argument is {@code null}
+     */
+    protected static final SWGResourceColumns cachedColumns(SWGCGalaxy galaxy) {
+        synchronized (cache) {
+            SWGResourceColumns cols = columns.get(galaxy.getName());
+            if (cols == null) {
+                cols = new SWGResourceColumns(cache.getSpawning(galaxy));
+                columns.put(galaxy.getName(), cols);
+            }
+            return cols;
+        }
     }
 
     /**
      * Helper method which returns a set of resources from {@code galaxy} which
      * are depleted, or {@link SWGResourceSet#EMPTY} if none is found.
+     * <p>
+     * This method is thread safe and locks on {@link #cache}.
      * 
      * @param galaxy
      *            a galaxy constant denoting where the resource has spawned
@@ -205,13 +282,9 @@ public class SWGResourceMgr {
      *             if the galaxy is {@code null}
      */
     protected static final SWGResourceSet cachedDepleted(SWGCGalaxy galaxy) {
-        SWGResourceSet coll = cachedSet(galaxy);
-        SWGResourceSet depl = new SWGResourceSet(coll.size());
-        for (SWGKnownResource kr : coll)
-            if (kr.isDepleted())
-                depl.privateAdd(kr);
-
-        return depl.get();
+        synchronized (cache) {
+            return cache.getDepleted(galaxy);
+        }
     }
 
     /**
@@ -315,6 +388,25 @@ public class SWGResourceMgr {
         }
     }
 
+    /**
+     * Helper method which drops the record of the previous download for the
+     * galaxy of the specified resource, see {@link #fingerprints}. The next
+     * download for the galaxy is reconciled in full. Also the columnar
+     * snapshot for the galaxy is dropped, see {@link #columns}, and the
+     * resource is touched, see {@link #generalTouch(SWGResource)}. This method
+     * must be invoked under the lock of {@link #cache}.
+     * 
+     * @param resource
+     *            a resource which is modified other than by a download
+     */
+    private static final void fingerprintsDrop(SWGResource resource) {
+        if (resource.galaxy() != null) {
+            fingerprints.remove(resource.galaxy().getName());
+            columns.remove(resource.galaxy().getName());
+        }
+        generalTouch(resource);
+    }
+
     /**
      * Helper method which adds {@code resource} to the resource set for {@code
      * galaxy}. If the argument's galaxy is unknown this method does nothing.
@@ -330,6 +422,7 @@ public class SWGResourceMgr {
 
         SWGResourceSet rs = generalGet(resource.galaxy());
         rs.add(resource);
+        generalTouch();
     }
 
     /**
@@ -351,6 +444,7 @@ public class SWGResourceMgr {
                 if (rs.isEmpty())
                     iter.remove();
             }
+            generalTouch();
         }
     }
     
@@ -391,6 +485,33 @@ public class SWGResourceMgr {
         return rs;
     }
 
+    /**
+     * Helper method which marks {@link #generalMap} as modified in SWGAide's
+     * DAT file, see {@link SimplePrefsKeeper#touch(String)}. This method is
+     * invoked for each modification of a resource or of a resource set.
+     */
+    private static final void generalTouch() {
+        SimplePrefsKeeper pk = SWGFrame.getPrefsKeeper();
+        if (pk != null) pk.touch("resourceGeneralMap");
+    }
+
+    /**
+     * Helper method which marks {@link #generalMap} as modified, see
+     * {@link #generalTouch()}, and also the other values in SWGAide's DAT file
+     * which contain the specified resource, see
+     * {@link SimplePrefsKeeper#touch(SWGKnownResource)}. This method is invoked
+     * for each modification of a resource.
+     * 
+     * @param resource
+     *            a modified resource
+     */
+    private static final void generalTouch(SWGResource resource) {
+        SimplePrefsKeeper pk = SWGFrame.getPrefsKeeper();
+        if (pk != null && resource instanceof SWGKnownResource)
+            pk.touch((SWGKnownResource) resource);
+        generalTouch();
+    }
+
     /**
      * Helper method which returns an instance based on the argument. This
      * method must only be called from the resource manager.
@@ -487,6 +608,7 @@ public class SWGResourceMgr {
         synchronized (cache) {
             // synchronize on cache as it is the general lock
             generalGet(kr.galaxy()).remove(kr);
+            fingerprintsDrop(kr);
         }
     }
 
@@ -506,7 +628,12 @@ public class SWGResourceMgr {
      *             if the resource is {@code null}
      */
     protected static void supplyID(SWGKnownResource res, long swgcraftID) {
-        res.id(swgcraftID);
+        synchronized (cache) {
+            long oid = res.id();
+            res.id(swgcraftID);
+            cache.reindex(res, oid, res.getName(), res.galaxy());
+            fingerprintsDrop(res);
+        }
     }
 
     /**
@@ -514,6 +641,8 @@ public class SWGResourceMgr {
      * The time is measured in seconds since January 1, 1970, or Long.MAX_VALUE
      * for an aged resource with unknown depletion date. If the argument is
      * negative the specified resource is marked available.
+     * <p>
+     * This method is thread safe and locks on {@link #cache}.
      * 
      * @param res
      *            the depleted resource
@@ -523,7 +652,11 @@ public class SWGResourceMgr {
      *             if the resource is {@code null}
      */
     protected static final void updateDepleted(SWGKnownResource res, long date) {
-        res.depleted(date);
+        synchronized (cache) {
+            res.depleted(date);
+            cache.update(res);
+            fingerprintsDrop(res);
+        }
     }
 
     /**
@@ -532,11 +665,23 @@ public class SWGResourceMgr {
      * local set, if is not contained in the specified list it is marked as
      * depleted, but every other instance is verified so its state is
      * not-depleted.
+     * <p>
+     * If {@code prev} is not {@code null} instances which are contained in
+     * both downloads, and which are not changed, are skipped; instances which
+     * are depleted or reverted are added to the delta.
      * 
      * @param newDownload
      *            a recently downloaded list of resources
+     * @param next
+     *            the record for the recent download
+     * @param prev
+     *            the record for the previous download, or {@code null}
+     * @param delta
+     *            the delta to populate, or {@code null}
      */
-    private static final void updateDepleted(SWGResourceList newDownload) {
+    private static final void updateDepleted(SWGResourceList newDownload,
+            SWGResourceFingerprints next, SWGResourceFingerprints prev,
+            ResourceUpdate.Delta delta) {
 
         SWGResourceSet generalSet = generalGet(newDownload.get(0).galaxy());
 
@@ -548,6 +693,9 @@ public class SWGResourceMgr {
             (System.currentTimeMillis() / 1000L) - (45 * 60);
 
         for (SWGKnownResource kr : generalSet) {
+            if (prev != null && kr.id() > 0 && next.isUnchanged(kr.id(), prev))
+                continue; // listed and not changed, it is reconciled already
+
             SWGResource nr;
             if (kr.id() > 0)
                 nr = newDownload.getByID(kr.id());
@@ -559,13 +707,19 @@ public class SWGResourceMgr {
                     // revert its state, it is contained in the new download
                     // maybe resurrected at SWGCraft.org
                     kr.depleted(false);
+                    cache.update(kr);
+                    generalTouch(kr);
+                    if (delta != null && prev.contains(kr.id()))
+                        delta.updated.add(kr); // else it is added
                 }
             } else if (nr == null) {
                 SWGPlanetAvailabilityInfo pai = kr.availableFirst();
                 long fa = pai.availableDate;
 
-                if (fa < fortyFiveMinutes)
+                if (fa < fortyFiveMinutes) {
                     updateDepleted(kr, fortyFiveMinutes); // max 45 mins off ;)
+                    if (delta != null) delta.depleted.add(kr);
+                }
             }
         }
     }
@@ -582,21 +736,58 @@ public class SWGResourceMgr {
      * map of current resources</li>
      * </ol>
      * <p>
+     * If there is a record of the previous download for the galaxy the new
+     * download is diffed against it and only resources which are added,
+     * changed, or no longer listed are reconciled; these are returned in a
+     * delta. Otherwise all resources are reconciled and {@code null} is
+     * returned. See {@link #fingerprints}. Finally the columnar snapshot for
+     * the galaxy is rebuilt, unless the download did not change anything, see
+     * {@link #columns}.
+     * <p>
      * This method is thread safe and locks on {@link #cache}.
      * 
      * @param newDownload
      *            a list of recently downloaded resources
+     * @return the resources which are changed by the download, or {@code null}
+     *         if all resources are reconciled
      * @throws NullPointerException
      *             if the argument is {@code null}, or if an element has
      *             important data which is {@code null}
      */
-    protected static final void updateFromDownload(SWGResourceList newDownload) {
+    protected static final ResourceUpdate.Delta updateFromDownload(
+            SWGResourceList newDownload) {
         if (newDownload.isEmpty())
-            return; // safety, shouldn't happen
+            return null; // safety, shouldn't happen
 
-        synchronized (cache) {            
-            updateDepleted(newDownload);
-            updateSpawning(newDownload);
+        SWGCGalaxy galaxy = newDownload.get(0).galaxy();
+        String gxy = galaxy.getName();
+        SWGResourceFingerprints next = new SWGResourceFingerprints(newDownload);
+
+        synchronized (cache) {
+            SWGResourceFingerprints prev = fingerprints.get(gxy);
+            ResourceUpdate.Delta delta = null;
+
+            if (prev == null) {
+                updateDepleted(newDownload, next, null, null);
+                updateSpawning(newDownload, null, null);
+            } else {
+                SWGResourceList changed = new SWGResourceList();
+                for (SWGResource r : newDownload)
+                    if (!next.isUnchanged(r.id(), prev))
+                        changed.add(r);
+
+                delta = new ResourceUpdate.Delta();
+                updateDepleted(newDownload, next, prev, delta);
+                updateSpawning(changed, prev, delta);
+            }
+
+            fingerprints.put(gxy, next);
+            generalTouch();
+            if (delta == null || !delta.isEmpty() || !columns.containsKey(gxy))
+                columns.put(gxy, new SWGResourceColumns(
+                        cache.getSpawning(galaxy)));
+
+            return delta;
         }
     }
 
@@ -604,8 +795,10 @@ public class SWGResourceMgr {
      * Helper method which examines all fields of the known instance relative
      * the other resource. If there is a difference the known instance is
      * updated and non-negligible changes are individually logged to SWGAide's
-     * log file. Basic validation is always performed. See {@link SWGResource}
-     * for further information. This method is called in the following cases:
+     * log file. Basic validation is always performed. The indexes of the cache
+     * are updated for the known instance. See
+     * {@link SWGResource} for further information. This method is called in
+     * the following cases:
      * <ol>
      * <li>if {@code other} is obtained from SWGCraft.org via a SOAP action</li>
      * <li>if {@code other} is obtained from SWGCraft.org via a XML file</li>
@@ -628,6 +821,40 @@ public class SWGResourceMgr {
     protected static void updateInstance(
             SWGKnownResource known, SWGMutableResource other, boolean isTrusted) {
 
+        synchronized (cache) {
+            long oid = known.id();
+            String on = known.getName();
+            SWGCGalaxy og = known.galaxy();
+            SWGResourceClass orc = known.rc();
+            SWGResourceStats ost = known.safeStats();
+
+            updateInstanceHelper(known, other, isTrusted);
+
+            cache.reindex(known, oid, on, og);
+            cache.update(known);
+            fingerprintsDrop(known);
+
+            // stats are replaced, not mutated
+            if (known.rc() != orc || known.safeStats() != ost) {
+                SWGRateCache.invalidate(known);
+                SWGResController.inventoryIndexDrop(og);
+                if (known.galaxy() != og)
+                    SWGResController.inventoryIndexDrop(known.galaxy());
+            }
+        }
+    }
+
+    /**
+     * Helper method which updates the fields of the known instance, see
+     * {@link #updateInstance(SWGKnownResource, SWGMutableResource, boolean)}.
+     * 
+     * @param known a known resource
+     * @param other another resource, assumed to be "better"
+     * @param isTrusted {@code true} if {@code other} is trusted
+     */
+    private static void updateInstanceHelper(
+            SWGKnownResource known, SWGMutableResource other, boolean isTrusted) {
+
         // galaxy
         if (other.galaxy() != null && known.id() <= 0) {
             known.galaxy(other.galaxy());
@@ -724,7 +951,10 @@ public class SWGResourceMgr {
      */
     protected static final void updatePlanet(
         SWGKnownResource res, SWGPlanetAvailabilityInfo pai) {
-        res.availability(pai); // trust the caller, will be fixed next download
+        synchronized (cache) {
+            res.availability(pai); // trust the caller, fixed next download
+            fingerprintsDrop(res);
+        }
     }
 
     /**
@@ -734,10 +964,17 @@ public class SWGResourceMgr {
      * {@link SWGKnownResource} is created and added to the local cache;
      * otherwise it is compared with its corresponding local instance and if
      * there are updated data fields the local instance is updated.
+     * <p>
+     * If {@code prev} is not {@code null} each instance is added to the delta,
+     * as added if it is not contained in the previous download, otherwise as
+     * updated.
      * 
      * @param download a list of recently downloaded resources
+     * @param prev the record for the previous download, or {@code null}
+     * @param delta the delta to populate, or {@code null}
      */
-    private static final void updateSpawning(SWGResourceList download) {
+    private static final void updateSpawning(SWGResourceList download,
+            SWGResourceFingerprints prev, ResourceUpdate.Delta delta) {
 
         for (SWGResource r : download) {
             SWGMutableResource mr = (SWGMutableResource) r;
@@ -748,9 +985,16 @@ public class SWGResourceMgr {
             // scan cache in the case it is missing in general set
             SWGKnownResource kr = cache.getInstance(mr);
             if (kr == null) 
-                getKnownTrusted(mr);// case 1
+                kr = getKnownTrusted(mr);// case 1
             else
                 updateInstance(kr, mr, true);                // case 2
+
+            if (delta != null) {
+                if (prev.contains(mr.id()))
+                    delta.updated.add(kr);
+                else
+                    delta.added.add(kr);
+            }
         }
     }
 }
@@ -8,9 +8,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Set;
 
 import swg.crafting.SWGWeights;
@@ -78,15 +78,29 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
 
     static {
         EMPTY.storage = Collections.emptyList();
+        EMPTY.members = Collections.emptySet();
     }
 
+    /**
+     * The elements of this set, backed by an {@link IdentityHashMap}. This
+     * set is what determines membership, {@link #storage} is what determines
+     * order, and the two always have the same elements. Instances of known
+     * resources are unique, see {@link SWGResourceManager}, hence identity
+     * equals logical equality.
+     * <P>
+     * This field is synchronized on {@link #storage}.
+     */
+    private transient Set<SWGKnownResource> members;
+
     /**
      * The internal storage for resources.
      * <P>
      * This implementation uses a {@link List} for simplicity and its decent
      * performance. That is since resource objects will be searched for in
      * several fashions and that it usually exists just a moderate number of
-     * elements to marshal.
+     * elements to marshal. The list determines the order of the elements,
+     * membership is tested in {@link #members} so that adding elements is not
+     * quadratic.
      * <P>
      * This class manages serialization and deserialization, thus the
      * implementation can be replaced at any time.
@@ -130,6 +144,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
      */
     public SWGResourceSet(int initialCapacity) {
         storage = new ArrayList<SWGKnownResource>(initialCapacity);
+        members = identitySet(initialCapacity);
     }
 
     public boolean add(SWGKnownResource e) {
@@ -141,7 +156,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         // can assume that the equals operator == works for contains(e)
 
         synchronized (storage) {
-            if (!storage.contains(e))
+            if (members.add(e))
                 return storage.add(e);
         }
         return false;
@@ -164,15 +179,16 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
     public void clear() {
         synchronized (storage) {
             storage.clear();
+            members.clear();
         }
     }
 
     public boolean contains(Object o) {
-        return storage.contains(o);
+        return members.contains(o);
     }
 
     public boolean containsAll(Collection<?> c) {
-        return storage.containsAll(c);
+        return members.containsAll(c);
     }
 
     /**
@@ -299,13 +315,32 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
 
     /**
      * Returns an iterator over the elements in this set in proper sequence.
-     * This implementation returns a {@link ListIterator}.
+     * The iterator supports {@link Iterator#remove()}.
      * 
-     * @return an iterator over the elements in this set in proper sequence, a
-     *         {@link ListIterator}
+     * @return an iterator over the elements in this set in proper sequence
      */
     public Iterator<SWGKnownResource> iterator() {
-        return storage.iterator();
+        final Iterator<SWGKnownResource> it = storage.iterator();
+        return new Iterator<SWGKnownResource>() {
+            private SWGKnownResource last;
+
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public SWGKnownResource next() {
+                last = it.next();
+                return last;
+            }
+
+            @SuppressWarnings("synthetic-access")
+            public void remove() {
+                synchronized (storage) {
+                    it.remove();
+                    members.remove(last);
+                }
+            }
+        };
     }
 
     /**
@@ -320,6 +355,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
     void privateAdd(SWGKnownResource res) {
         // this stealth adder is just for performance
         storage.add(res);
+        members.add(res);
     }
 
     /**
@@ -341,27 +377,39 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         @SuppressWarnings("unchecked")
         List<SWGKnownResource> lst = (List<SWGKnownResource>) ois.readObject();
 
-        // in the future, create the appropriate type of storage is changed
-        // e.g. storage = new ArrayList<SWGKnownResource>(lst);
-
-        storage = lst;
+        // the serialized form is a list, copy it and build the members; if
+        // the stream resolves to doubles only the first instance is retained
+        storage = new ArrayList<SWGKnownResource>(lst.size());
+        members = identitySet(lst.size());
+        for (SWGKnownResource kr : lst)
+            if (members.add(kr)) storage.add(kr);
     }
 
     public boolean remove(Object o) {
         synchronized (storage) {
-            return storage.remove(o);
+            return members.remove(o) && storage.remove(o);
         }
     }
 
     public boolean removeAll(Collection<?> c) {
         synchronized (storage) {
-            return storage.removeAll(c);
+            boolean ret = false;
+            for (Object o : c)
+                ret |= members.remove(o);
+            if (ret)
+                storage.retainAll(members);
+            return ret;
         }
     }
 
     public boolean retainAll(Collection<?> c) {
         synchronized (storage) {
-            return storage.retainAll(c);
+            boolean ret = storage.retainAll(c);
+            if (ret) {
+                members.clear();
+                members.addAll(storage);
+            }
+            return ret;
         }
     }
 
@@ -374,6 +422,10 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
      * implementation is thread safe and locks on the internal collection.
      * However, non-modifying methods can query this instance.
      * <P>
+     * If the comparator is a {@link SWGWeightComparator} this method sorts by
+     * its scores, see {@link #sort(Score, boolean)}, which is equal to but
+     * faster than sorting by the comparator.
+     * <P>
      * <B>Note: </B>This method mutates the content of this instance. If this is
      * not acceptable a copy or an array from this instance should be used.
      * 
@@ -381,11 +433,60 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
      *            the comparator object to sort this instance by
      */
     public void sort(Comparator<SWGKnownResource> comparator) {
+        if (comparator instanceof SWGWeightComparator) {
+            sort((SWGWeightComparator) comparator, true);
+            return;
+        }
         synchronized (storage) {
             Collections.sort(storage, comparator);
         }
     }
 
+    /**
+     * Sorts this set of resources by the scores which the specified object
+     * computes for the elements. The score for each element is computed just
+     * once, as opposed to twice per comparison while sorting by a comparator.
+     * Elements are ordered by {@link Double#compare(double, double)} of their
+     * scores, ascending or descending. The sort is stable, elements with equal
+     * scores retain their current order. This implementation is thread safe and
+     * locks on the internal collection.
+     * <P>
+     * <B>Note: </B>This method mutates the content of this instance. If this is
+     * not acceptable a copy or an array from this instance should be used.
+     * 
+     * @param score
+     *            the object which computes the scores to sort by
+     * @param descending
+     *            {@code true} to sort the greatest score first, {@code false}
+     *            to sort the least score first
+     * @throws NullPointerException
+     *             if the argument is {@code null}
+     */
+    public void sort(Score score, boolean descending) {
+        if (score == null)
+            throw new NullPointerException("Argument is null");
+
+        synchronized (storage) {
+            int n = storage.size();
+            if (n < 2)
+                return;
+
+            SWGKnownResource[] elements =
+                    storage.toArray(new SWGKnownResource[n]);
+            double[] scores = new double[n];
+            int[] indexes = new int[n];
+            for (int i = 0; i < n; ++i) {
+                scores[i] = score.score(elements[i]);
+                indexes[i] = i;
+            }
+
+            sort(indexes, new int[n], 0, n, scores, descending);
+
+            for (int i = 0; i < n; ++i)
+                storage.set(i, elements[indexes[i]]);
+        }
+    }
+
     /**
      * Returns from this set a subset of resources which all meets the
      * comparator. In particular, the specified object's method
@@ -407,7 +508,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         SWGResourceSet result = new SWGResourceSet(size());
         for (SWGKnownResource kr : storage)
             if (comparable.compareTo(kr) == 0)
-                result.storage.add(kr);
+                result.privateAdd(kr);
 
         if (result.storage.isEmpty())
             return EMPTY;
@@ -436,7 +537,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
             List<SWGPlanet> plist = kr.availability();
             for (SWGPlanet p : plist) {
                 if (p == planet) {
-                    result.storage.add(kr); // surpass our checkpoints
+                    result.privateAdd(kr); // surpass our checkpoints
                     break; // break inner loop, one instance of kr is enough
                 }
             }
@@ -465,12 +566,11 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
      */
     public SWGResourceSet subsetBy(SWGResourceClass type) {
 
-        Class<? extends SWGResourceClass> typeCls = type.getClass();
         SWGResourceSet result = new SWGResourceSet(size());
 
         for (SWGKnownResource kr : storage) {
-            if (typeCls.isAssignableFrom(kr.rc().getClass()))
-                result.storage.add(kr); // surpass our checkpoints
+            if (kr.rc().isSub(type))
+                result.privateAdd(kr); // surpass our checkpoints
         }
         if (result.storage.isEmpty())
             return EMPTY;
@@ -496,7 +596,7 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         SWGResourceSet result = new SWGResourceSet(size());
         for (SWGKnownResource kr : storage) {
             if (filter.isBetter(kr, all))
-                result.storage.add(kr); // surpass our checkpoints
+                result.privateAdd(kr); // surpass our checkpoints
         }
         if (result.storage.isEmpty())
             return EMPTY;
@@ -545,14 +645,14 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
             throw new IllegalArgumentException("Invalid threshold: "
                 + threshold);
 
-        Class<? extends SWGResourceClass> typeCls = capsFrom.getClass();
+        SWGWeightRater rater = new SWGWeightRater(weights, capsFrom, zeroIsMax);
         SWGResourceSet result = new SWGResourceSet(size());
 
         for (SWGKnownResource kr : storage) {
-            if (typeCls.isAssignableFrom(kr.rc().getClass())) {
-                double w = weights.rate(kr, capsFrom, zeroIsMax);
+            if (kr.rc().isSub(capsFrom)) {
+                double w = rater.rate(kr);
                 if (w >= threshold)
-                    result.storage.add(kr); // surpass our checkpoints
+                    result.privateAdd(kr); // surpass our checkpoints
             }
         }
         if (result.storage.isEmpty())
@@ -574,6 +674,302 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         return z.app(storage.toString()).toString();
     }
 
+    /**
+     * Returns from this set the {@code k} elements with the best scores which
+     * the specified object computes, in sorted order. The order is the same as
+     * what {@link #sort(Score, boolean)} would sort the first elements of this
+     * set in, but this set is not mutated. If this set is empty, or if {@code
+     * k} is 0, {@link #EMPTY} is returned.
+     * <P>
+     * This implementation computes the score for each element once and
+     * retains the best elements in a bounded heap of size {@code k}, it does
+     * not sort this set.
+     * 
+     * @param score
+     *            the object which computes the scores to rank by
+     * @param k
+     *            the maximum number of elements to return
+     * @param descending
+     *            {@code true} if the greatest scores are the best, {@code
+     *            false} if the least scores are the best
+     * @return a sorted set of at most {@code k} elements, or {@link #EMPTY}
+     * @throws IllegalArgumentException
+     *             if {@code k} is negative
+     * @throws NullPointerException
+     *             if the score is {@code null}
+     */
+    public SWGResourceSet topK(Score score, int k, boolean descending) {
+        return topK(score, k, descending, null);
+    }
+
+    /**
+     * Returns from this set the {@code k} elements with the best weights for
+     * the specified arguments, the best element first. The elements are of the
+     * same resource class as {@code capsFrom} or a sub-type thereof, compare
+     * {@link #subsetBy(SWGWeights, SWGResourceClass, boolean, double)}. The
+     * order is the same as if that subset was sorted by weight, elements with
+     * equal weights retain their order in this set. If no element meets the
+     * requirements {@link #EMPTY} is returned.
+     * <P>
+     * This implementation rates each element once and retains the best
+     * elements in a bounded heap of size {@code k}, it does not create and
+     * sort the subset.
+     * 
+     * @param weights
+     *            the values to compute the weight of the resources from
+     * @param capsFrom
+     *            the resource class to derive caps from
+     * @param zeroIsMax
+     *            {@code true} if a zero-value should be treated as its capped
+     *            value, otherwise {@code false}
+     * @param k
+     *            the maximum number of elements to return
+     * @return a sorted set of at most {@code k} elements, or {@link #EMPTY}
+     * @throws IllegalArgumentException
+     *             if an argument is invalid
+     * @throws NullPointerException
+     *             if any of the object arguments is {@code null}
+     */
+    public SWGResourceSet topK(SWGWeights weights,
+        SWGResourceClass capsFrom, boolean zeroIsMax, int k) {
+
+        if (!weights.isValid())
+            throw new IllegalArgumentException("Invalid weights: " + weights);
+
+        final SWGWeightRater rater =
+            new SWGWeightRater(weights, capsFrom, zeroIsMax);
+        return topK(new Score() {
+            @Override
+            public double score(SWGKnownResource kr) {
+                return rater.rate(kr);
+            }
+        }, k, true, capsFrom);
+    }
+
+    /**
+     * Helper method which returns the {@code k} best elements of this set, see
+     * {@link #topK(Score, int, boolean)}. If a resource class is specified
+     * only elements of that class or a sub-type thereof are considered.
+     * 
+     * @param score
+     *            the object which computes the scores to rank by
+     * @param k
+     *            the maximum number of elements to return
+     * @param descending
+     *            {@code true} if the greatest scores are the best
+     * @param type
+     *            a resource class to filter for, or {@code null}
+     * @return a sorted set of at most {@code k} elements, or {@link #EMPTY}
+     * @throws IllegalArgumentException
+     *             if {@code k} is negative
+     * @throws NullPointerException
+     *             if the score is {@code null}
+     */
+    private SWGResourceSet topK(Score score, int k, boolean descending,
+        SWGResourceClass type) {
+
+        if (score == null)
+            throw new NullPointerException("Argument is null");
+        if (k < 0)
+            throw new IllegalArgumentException("Invalid k: " + k);
+
+        synchronized (storage) {
+            int n = storage.size();
+            int[] heap = new int[Math.min(k, n)];
+            double[] scores = new double[heap.length];
+            int size = 0;
+
+            // the root of the heap is the element which ranks last
+            for (int i = 0; i < n && heap.length > 0; ++i) {
+                SWGKnownResource kr = storage.get(i);
+                if (type != null && !kr.rc().isSub(type))
+                    continue;
+
+                double sc = score.score(kr);
+                if (size < heap.length) {
+                    heap[size] = i;
+                    scores[size] = sc;
+                    heapUp(heap, scores, size++, descending);
+                } else {
+                    // an equal score ranks last, it is later in this set
+                    int c = Double.compare(sc, scores[0]);
+                    if (descending
+                        ? c > 0
+                        : c < 0) {
+                        heap[0] = i;
+                        scores[0] = sc;
+                        heapDown(heap, scores, 0, size, descending);
+                    }
+                }
+            }
+
+            if (size == 0)
+                return EMPTY;
+
+            // remove the last element until the heap is empty
+            SWGKnownResource[] best = new SWGKnownResource[size];
+            for (int j = size - 1; j >= 0; --j) {
+                best[j] = storage.get(heap[0]);
+                heap[0] = heap[j];
+                scores[0] = scores[j];
+                heapDown(heap, scores, 0, j, descending);
+            }
+
+            SWGResourceSet result = new SWGResourceSet(size);
+            for (SWGKnownResource kr : best)
+                result.privateAdd(kr);
+            return result;
+        }
+    }
+
+    /**
+     * Helper method which moves the specified element of a heap down until it
+     * ranks before its children, see {@link #topK(Score, int, boolean)}. The
+     * heap is of indexes to the elements of this set and their scores, the
+     * root is the element which ranks last.
+     * 
+     * @param heap the indexes of the heap
+     * @param scores the scores of the heap, at the same index
+     * @param i the element of the heap to move down
+     * @param size the number of elements of the heap
+     * @param descending {@code true} if the greatest scores rank first
+     */
+    private static void heapDown(int[] heap, double[] scores, int i, int size,
+            boolean descending) {
+
+        for (int c = 2 * i + 1; c < size; c = 2 * i + 1) {
+            if (c + 1 < size && ranksAfter(c + 1, c, heap, scores, descending))
+                ++c;
+            if (!ranksAfter(c, i, heap, scores, descending))
+                return;
+
+            heapSwap(heap, scores, i, c);
+            i = c;
+        }
+    }
+
+    /**
+     * Helper method which swaps the specified elements of a heap, see
+     * {@link #heapDown(int[], double[], int, int, boolean)}.
+     * 
+     * @param heap the indexes of the heap
+     * @param scores the scores of the heap, at the same index
+     * @param i an element of the heap
+     * @param j an element of the heap
+     */
+    private static void heapSwap(int[] heap, double[] scores, int i, int j) {
+        int h = heap[i];
+        heap[i] = heap[j];
+        heap[j] = h;
+
+        double s = scores[i];
+        scores[i] = scores[j];
+        scores[j] = s;
+    }
+
+    /**
+     * Helper method which moves the specified element of a heap up until it
+     * ranks after its parent, see
+     * {@link #heapDown(int[], double[], int, int, boolean)}.
+     * 
+     * @param heap the indexes of the heap
+     * @param scores the scores of the heap, at the same index
+     * @param i the element of the heap to move up
+     * @param descending {@code true} if the greatest scores rank first
+     */
+    private static void heapUp(int[] heap, double[] scores, int i,
+            boolean descending) {
+
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!ranksAfter(i, p, heap, scores, descending))
+                return;
+
+            heapSwap(heap, scores, i, p);
+            i = p;
+        }
+    }
+
+    /**
+     * Helper method which returns an empty set backed by an identity hash map
+     * with room for the specified number of elements.
+     * 
+     * @param size the expected number of elements
+     * @return an empty identity set
+     */
+    private static Set<SWGKnownResource> identitySet(int size) {
+        return Collections.newSetFromMap(
+                new IdentityHashMap<SWGKnownResource, Boolean>(size));
+    }
+
+    /**
+     * Helper method which determines if the element at {@code i} of a heap
+     * ranks after the element at {@code j}. Elements are ranked by their
+     * scores, as in {@link #sort(Score, boolean)}, and elements with equal
+     * scores by their indexes in this set.
+     * 
+     * @param i an element of the heap
+     * @param j an element of the heap
+     * @param heap the indexes of the heap
+     * @param scores the scores of the heap, at the same index
+     * @param descending {@code true} if the greatest scores rank first
+     * @return {@code true} if element {@code i} ranks after element {@code j}
+     */
+    private static boolean ranksAfter(int i, int j, int[] heap,
+            double[] scores, boolean descending) {
+
+        int c = Double.compare(scores[i], scores[j]);
+        if (c != 0)
+            return descending
+                    ? c < 0
+                    : c > 0;
+
+        return heap[i] > heap[j];
+    }
+
+    /**
+     * Helper method which sorts the specified range of indexes by the scores
+     * they refer to. This is a merge sort, hence it is stable. The temporary
+     * array is used as work space and must have the size of the indexes.
+     * 
+     * @param indexes the indexes to sort
+     * @param tmp a work space of the same size
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param scores the scores to sort by
+     * @param descending {@code true} to sort the greatest score first
+     */
+    private static void sort(int[] indexes, int[] tmp, int from, int to,
+            double[] scores, boolean descending) {
+
+        if (to - from < 2)
+            return;
+
+        int mid = (from + to) >>> 1;
+        sort(indexes, tmp, from, mid, scores, descending);
+        sort(indexes, tmp, mid, to, scores, descending);
+
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            int c = Double.compare(scores[indexes[j]], scores[indexes[i]]);
+            // take from the right half only if it is strictly before
+            if (descending
+                    ? c > 0
+                    : c < 0)
+                tmp[k++] = indexes[j++];
+            else
+                tmp[k++] = indexes[i++];
+        }
+        while (i < mid)
+            tmp[k++] = indexes[i++];
+        while (j < to)
+            tmp[k++] = indexes[j++];
+
+        System.arraycopy(tmp, from, indexes, from, to - from);
+    }
+
     /**
      * Serialize the logical state of this {@link SWGResourceSet} instance.
      * 
@@ -593,4 +989,23 @@ public final class SWGResourceSet implements Set<SWGKnownResource>,
         ous.defaultWriteObject();
         ous.writeObject(lst);
     }
+
+    /**
+     * An object which computes a score for a resource, see
+     * {@link SWGResourceSet#sort(Score, boolean)}. The score must depend on
+     * nothing but the resource while a set is sorted.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    public interface Score {
+
+        /**
+         * Returns the score for the specified resource.
+         * 
+         * @param kr a resource
+         * @return the score for the resource
+         */
+        double score(SWGKnownResource kr);
+    }
 }
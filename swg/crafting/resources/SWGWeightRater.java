@@ -0,0 +1,257 @@
+package swg.crafting.resources;
+
+import swg.crafting.SWGWeights;
+import swg.crafting.Stat;
+
+/**
+ * A compiled form of {@link SWGWeights#rate(SWGResource, SWGResourceClass,
+ * boolean)} for one set of arguments that are fixed for many resources, the
+ * weights, the resource class for caps, and the zero-is-max option. The
+ * multipliers for caps and the stats with non-zero weights are computed once
+ * when an instance is created, and rating a resource allocates no objects.
+ * <p>
+ * The rates that are returned by this type are bit-for-bit equal to the rates
+ * that are returned by {@link SWGWeights#rate(SWGResource, SWGResourceClass,
+ * boolean)} for the same arguments. The arithmetic is the same and the terms
+ * are summed in the same order, just the terms for zero weights are skipped,
+ * which add nothing to a sum.
+ * <p>
+ * An instance of this type is immutable and thread safe. It is a snapshot of
+ * the weights, if the weights are modified a new instance must be created.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+public final class SWGWeightRater {
+
+    /**
+     * The resource class to derive caps from, or {@code null}.
+     */
+    private final SWGResourceClass caps;
+
+    /**
+     * The indexes of the stats with non-zero weights, in the order of
+     * {@link Stat#values()}.
+     */
+    private final int[] indexes;
+
+    /**
+     * The multipliers for caps for the stats with non-zero weights, at the
+     * same index as in {@link #indexes}; {@code 1000.0/cap} or 1.0.
+     */
+    private final double[] multipliers;
+
+    /**
+     * The stats with non-zero weights, at the same index as in
+     * {@link #indexes}.
+     */
+    private final Stat[] stats;
+
+    /**
+     * The non-zero weights, at the same index as in {@link #indexes}.
+     */
+    private final double[] weights;
+
+    /**
+     * {@code true} if zero-values of a resource should count as upper cap.
+     */
+    private final boolean zeroIsMax;
+
+    /**
+     * Creates a rater for the specified arguments. See
+     * {@link SWGWeights#rate(SWGResource, SWGResourceClass, boolean)} for the
+     * meaning of the arguments.
+     * 
+     * @param weights the weights to rate resources by
+     * @param caps the resource class for upper caps, or {@code null}
+     * @param zeroIsMax {@code true} if zero-values are considered
+     * @throws IllegalArgumentException if a cap of the resource class is
+     *         invalid
+     * @throws NullPointerException if the weights are {@code null}
+     */
+    public SWGWeightRater(SWGWeights weights, SWGResourceClass caps,
+            boolean zeroIsMax) {
+
+        this.caps = caps;
+        this.zeroIsMax = zeroIsMax;
+
+        int n = weights.nonZero();
+        indexes = new int[n];
+        multipliers = new double[n];
+        stats = new Stat[n];
+        this.weights = new double[n];
+
+        int k = 0;
+        for (Stat s : Stat.values()) {
+            int w = weights.value(s);
+            if (w > 0) {
+                indexes[k] = s.i;
+                stats[k] = s;
+                this.weights[k] = w;
+                multipliers[k] = caps != null
+                        ? adjCap(caps.max(s))
+                        : 1.0;
+                ++k;
+            }
+        }
+    }
+
+    /**
+     * Returns the rate for the specified resource as a decimal value in the
+     * range [0.0 1000.0]. This is the same value as what is returned by
+     * {@link SWGWeights#rate(SWGResource, SWGResourceClass, boolean)} for the
+     * arguments of this instance.
+     * 
+     * @param res a resource to rate
+     * @return the resource rate in the range [0.0 1000.0]
+     * @throws IllegalArgumentException if the resource class does not match the
+     *         resource class for caps
+     * @throws NullPointerException if the resource is {@code null}
+     */
+    public double rate(SWGResource res) {
+        SWGResourceClass rc = res.rc();
+        if (caps != null && !rc.isSub(caps))
+            throw new IllegalArgumentException(String.format(
+                    "%s is not subclass of %s", rc.rcName(), caps.rcName()));
+
+        SWGResourceStats st = res.safeStats();
+        return rate(rc, st != null
+                ? st.safeValues()
+                : SWGResourceStats.BLANK.safeValues());
+    }
+
+    /**
+     * Returns the rate for a resource of the specified resource class with
+     * the specified values, see {@link #rate(SWGResource)}. The values are
+     * indexed by {@link Stat#i} and they are not modified. This method does
+     * not verify the resource class versus the resource class for caps, that
+     * is the responsibility of the caller.
+     * 
+     * @param rc the resource class of the resource to rate
+     * @param values the values of the resource to rate
+     * @return the resource rate in the range [0.0 1000.0]
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public double rate(SWGResourceClass rc, int[] values) {
+        // see SWGWeights#hasMinimumOneStat
+        int n = indexes.length;
+        int k = 0;
+        while (k < n && !rc.has(stats[k]))
+            ++k;
+        if (k == n)
+            return 0.0;
+
+        // weights for missing values are redistributed to remaining weights
+        double weightSA;
+        if (zeroIsMax) {
+            weightSA = 0.0;
+            for (k = 0; k < n; ++k)
+                if (values[indexes[k]] > 0) weightSA += weights[k];
+        } else
+            weightSA = 100.0;
+
+        weightSA = 100 / weightSA; // make Sum an Adjustor
+
+        double resWeight = 0.0;
+        for (k = 0; k < n; ++k) {
+            int v = values[indexes[k]];
+            if (zeroIsMax && v <= 0) continue; // its weight is removed
+
+            double weight = weights[k] * weightSA;
+            double value = v;
+            resWeight += Math.min(1000.0, value * multipliers[k])
+                    * weight / 100.0;
+        }
+        return resWeight;
+    }
+
+    /**
+     * Rates the resources at the rows of the specified mask and writes the
+     * rates to the specified array, at the same index as the rows; the rates
+     * for other rows are set to 0.0. The rates are the same as what is
+     * returned by {@link #rate(SWGResourceClass, int[])}.
+     * <p>
+     * This implementation iterates over the columns of the snapshot rather
+     * than over its resources. The terms for each row are still summed in the
+     * order of the stats, hence the rates are bit-for-bit equal. This method
+     * does not verify the resource classes versus the resource class for
+     * caps, see {@link SWGResourceColumns#retain(boolean[], SWGWeightRater,
+     * double)}.
+     * 
+     * @param cols a columnar snapshot of resources
+     * @param rows a mask of the rows to rate
+     * @param rates an array for the rates, the same length as the mask
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    void rate(SWGResourceColumns cols, boolean[] rows, double[] rates) {
+        int n = indexes.length;
+        int size = rows.length;
+
+        // the sum of weights per row, or NaN if it is not rated
+        double[] adjust = new double[size];
+        for (int r = 0; r < size; ++r) {
+            rates[r] = 0.0;
+            if (!rows[r]) {
+                adjust[r] = Double.NaN;
+                continue;
+            }
+
+            // see SWGWeights#hasMinimumOneStat
+            SWGResourceClass rc = SWGResourceClass.rc(cols.classes[r]);
+            int k = 0;
+            while (k < n && !rc.has(stats[k]))
+                ++k;
+            adjust[r] = k == n
+                    ? Double.NaN
+                    : zeroIsMax
+                            ? 0.0
+                            : 100.0;
+        }
+
+        // weights for missing values are redistributed to remaining weights
+        if (zeroIsMax)
+            for (int k = 0; k < n; ++k) {
+                short[] col = cols.stats[indexes[k]];
+                double w = weights[k];
+                for (int r = 0; r < size; ++r)
+                    if (col[r] > 0) adjust[r] += w;
+            }
+
+        for (int r = 0; r < size; ++r)
+            adjust[r] = 100 / adjust[r]; // make Sum an Adjustor
+
+        for (int k = 0; k < n; ++k) {
+            short[] col = cols.stats[indexes[k]];
+            double w = weights[k];
+            double m = multipliers[k];
+            for (int r = 0; r < size; ++r) {
+                double a = adjust[r];
+                int v = col[r];
+                if (a != a || (zeroIsMax && v <= 0))
+                    continue; // not rated, or its weight is removed
+
+                double weight = w * a;
+                double value = v;
+                rates[r] += Math.min(1000.0, value * m) * weight / 100.0;
+            }
+        }
+    }
+
+    /**
+     * Helper method which returns a decimal value with which to adjust for cap
+     * a value of a resource stat, or 1. The return value is {@code 1000.0/cap},
+     * or 1.0 if the argument is 0. This is the same as the adjustment in
+     * {@link SWGWeights}.
+     * 
+     * @param cap the upper cap for a stat
+     * @return the decimal value with which to adjust a value, or 1.0
+     * @throws IllegalArgumentException if cap is outside [0 1000]
+     */
+    private static double adjCap(int cap) {
+        if (cap < 0 || cap > 1000)
+            throw new IllegalArgumentException("Invalid cap: " + cap);
+        return cap > 0
+                ? (1000.0 / cap)
+                : 1.0;
+    }
+}
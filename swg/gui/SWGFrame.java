@@ -453,7 +453,7 @@ public class SWGFrame extends JFrame implements ComponentListener,
             && getPrefsKeeper().get("swgUniverse") != null) {
             
             File dat = new File("SWGAide.DAT");
-            while (!getPrefsKeeper().store(dat)) {
+            while (!getPrefsKeeper().store(dat, true)) {
                 // XXX: Investigate how to remove this workaround
                 // There is a risk that some background thread changes something
                 // in SWGAide.DAT while it being stored, try again in 100 ms
@@ -464,6 +464,7 @@ public class SWGFrame extends JFrame implements ComponentListener,
                 } catch (InterruptedException e1) {/* ignore */}
             }
         }
+        SimplePrefsKeeper.shutdown();
         SWGAide.printStop();
         System.exit(0);
     }
@@ -690,6 +691,7 @@ public class SWGFrame extends JFrame implements ComponentListener,
 
         File ini = new File("SWGAide.DAT");
         File bak = new File(SWGConstants.backupDir, "SWGAide.BAK");
+        SimplePrefsKeeper.recover(ini); // if a store was interrupted
 
         if (ini.exists() || bak.exists()) {
             if (!ini.exists() && bak.exists()) {
@@ -1738,11 +1740,14 @@ public class SWGFrame extends JFrame implements ComponentListener,
                 putToStatbar("Autosave");
 
                 // only backup if auto-store was successful, otherwise we
-                // destroys the previous backup
-                File dat = new File("SWGAide.DAT");
-                if (getPrefsKeeper().store(dat))
-                    ZWriter.copy(dat, new File(
-                        SWGConstants.backupDir, "SWGAide.BAK"));
+                // destroys the previous backup; store off the event thread
+                final File dat = new File("SWGAide.DAT");
+                getPrefsKeeper().storeInBackground(dat, new Runnable() {
+                    public void run() {
+                        ZWriter.copy(dat, new File(
+                            SWGConstants.backupDir, "SWGAide.BAK"));
+                    }
+                });
             }
             });
         timer.start();
@@ -20,8 +20,12 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import javax.swing.BorderFactory;
@@ -67,8 +71,10 @@ import swg.crafting.SWGWeights;
 import swg.crafting.Stat;
 import swg.crafting.resources.SWGKnownResource;
 import swg.crafting.resources.SWGPlanetAvailabilityInfo;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
 import swg.crafting.resources.SWGResourceClassTree;
+import swg.crafting.resources.SWGResourceColumns;
 import swg.crafting.resources.SWGResourceFilter;
 import swg.crafting.resources.SWGResourceSet;
 import swg.crafting.resources.SWGWeightComparator;
@@ -175,6 +181,16 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
      */
     private GuardsModel guardsModel;
 
+    /**
+     * A map of guards which map to masks of the rows of
+     * {@link #spawningColumns} that match the guards. A mask is computed when
+     * it is first asked for and the map is cleared when the snapshot is
+     * rebuilt or the guards are updated, such as when a guard is edited. See
+     * {@link #guardsRows(SWGGuard)}.
+     */
+    private final Map<SWGGuard, boolean[]> guardsRows =
+            new HashMap<SWGGuard, boolean[]>();
+
     /**
      * The GUI table for the resource guards.
      */
@@ -276,6 +292,20 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
      */
     private SWGResourceClass selectedResourceClass;
 
+    /**
+     * A columnar snapshot of {@link #spawningSource} which filters are
+     * evaluated against, or {@code null} if it is not yet created or if it is
+     * reset. See {@link #spawningColumns()}.
+     */
+    private SWGResourceColumns spawningColumns;
+
+    /**
+     * The set of spawning resources which {@link #spawningColumns} is a
+     * snapshot of. If the resource tab replaces its set the snapshot is
+     * rebuilt.
+     */
+    private SWGResourceSet spawningSource;
+
     /**
      * Integer values at the filter input fields.
      */
@@ -829,25 +859,26 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
     }
 
     /**
-     * Helper method which filters the specified set of resources based on the
-     * filter. If the specified filter does not contains any values this method
-     * returns the specified set as-is. If the specified filter contains values
+     * Helper method which filters the spawning resources based on the filter.
+     * If the specified filter does not contains any values this method returns
+     * a copy of the spawning resources. If the specified filter contains values
      * this method returns a set of resources with values that all are better
      * than the specified filter. If {code filterConsiderCaps} is selected and
      * if {code selectedResourceClass} is not {@code null} this implementation
      * adjusts the filter, otherwise the specified filter is used as-is. If
      * {@link #filterConsiderNoStat} is not selected only resources which have
      * all values specified in the filter are accepted.
+     * <p>
+     * The filter is evaluated in bulk against {@link #spawningColumns()}, see
+     * {@link SWGResourceColumns#subsetBy(SWGResourceFilter, boolean)}; the
+     * returned set is in the order of the spawning resources.
      * 
-     * @param resources a set of resources
      * @param filter the filter to sift resources through
      * @return a set of resources
      */
-    private SWGResourceSet currentFilterOnFilter(
-            SWGResourceSet resources, int[] filter) {
-
+    private SWGResourceSet currentFilterOnFilter(int[] filter) {
         if (filter == null || SWGValues.sum(filter) <= 0)
-            return resources; // no work to do
+            return new SWGResourceSet(resourceTab.spawning()); // no work to do
 
         SWGResourceFilter flt = new SWGResourceFilter(filter);
 
@@ -858,7 +889,8 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
             flt.set(s, currentFilterValueConsiderCap(
                     flt.value(s), selectedResourceClass.max(s)));
 
-        return resources.subsetBy(flt, !filterConsiderNoStat.isSelected());
+        return spawningColumns().subsetBy(
+                flt, !filterConsiderNoStat.isSelected());
     }
 
     /**
@@ -867,14 +899,31 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
      * also includes inventory resources that meet the specified guard. If it is
      * a weighed guard the returned set is sorted on the weights of the
      * resources.
+     * <p>
+     * The spawning resources are filtered by the cached mask for the guard,
+     * see {@link #guardsRows(SWGGuard)}; just inventory resources are evaluated
+     * one by one.
      * 
-     * @param resources the resource set to filter
+     * @param resources the spawning resources to filter
      * @param guard the guard to filter the resources with
      * @return a set of resources
      */
     private SWGResourceSet currentFilterOnGuard(SWGResourceSet resources,
             SWGGuard guard) {
 
+        SWGResourceColumns cols = spawningColumns();
+        boolean[] rows = guardsRows(guard);
+        Set<SWGKnownResource> matching = Collections.newSetFromMap(
+                new IdentityHashMap<SWGKnownResource, Boolean>());
+        for (int r = 0; r < rows.length; ++r)
+            if (rows[r]) matching.add(cols.get(r));
+
+        // filter the set of current resources by the mask of the guard
+        SWGResourceSet rs2 = new SWGResourceSet(matching.size());
+        for (SWGKnownResource r : resources)
+            if (matching.contains(r))
+                rs2.add(r);
+
         if (((Boolean) SWGFrame.getPrefsKeeper().get(
                 "resourceGuardsMixInventory", Boolean.FALSE)).booleanValue()) {
 
@@ -882,15 +931,10 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
                     SWGResourceTab.galaxy());
 
             for (SWGInventoryWrapper wr : wrappers)
-                resources.add(wr.getResource()); // sifted in next step
+                if (guard.accept(wr.getResource()))
+                    rs2.add(wr.getResource());
         }
 
-        // now filter the set of current and inventory resources
-        SWGResourceSet rs2 = new SWGResourceSet(resources.size());
-        for (SWGKnownResource r : resources)
-            if (guard.accept(r))
-                rs2.add(r);
-
         // sort on weights if weighed guard
         if (guard.isWeighted())
             rs2.sort(new SWGWeightComparator(
@@ -957,14 +1001,13 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
             return SWGResourceSet.EMPTY;
 
         if (currentList == null) {
-            SWGResourceSet set = new SWGResourceSet(resourceTab.spawning());
-            set = currentFilterOnAge(set);
-
-            // if filter always filter
+            // if filter always filter, before age which is order-neutral
             int[] filter = filterFieldsArray();
 
-            if (!SWGWeights.isValid(filter))
-                set = currentFilterOnFilter(set, filter);
+            SWGResourceSet set = SWGWeights.isValid(filter)
+                    ? new SWGResourceSet(resourceTab.spawning())
+                    : currentFilterOnFilter(filter);
+            set = currentFilterOnAge(set);
 
             if (selectedGuard != null)
                 set = currentFilterOnGuard(set, selectedGuard);
@@ -1570,6 +1613,26 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Helper method which returns a mask of the rows of the snapshot of
+     * spawning resources that match the specified guard, see
+     * {@link #spawningColumns()}. The mask is computed when it is first asked
+     * for and it is cached until the snapshot is rebuilt or the guards are
+     * updated; selecting a guard or counting its resources is then a scan of
+     * the mask. The returned mask must not be modified.
+     * 
+     * @param guard a guard
+     * @return a mask of matching rows
+     */
+    private boolean[] guardsRows(SWGGuard guard) {
+        boolean[] rows = guardsRows.get(guard);
+        if (rows == null) {
+            rows = guard.accept(spawningColumns());
+            guardsRows.put(guard, rows);
+        }
+        return rows;
+    }
+
     /**
      * Helper method called from event action dispatchers. This method creates
      * and shows a popup dialog related to resource guards.
@@ -1783,7 +1846,8 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
 
         ZString z = new ZString(grd.rc().rcName()).app(' ');
         grd.logic().toString(z, false);
-        return z.app(' ').app(grd.notes()).toString();
+        z.app(" (").app(SWGResourceColumns.count(guardsRows(grd))).app(" resources) ");
+        return z.app(grd.notes()).toString();
     }
 
     /**
@@ -2700,6 +2764,25 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
         popup.show(resourceClassTree, e.getX(), e.getY());
     }
 
+    /**
+     * Helper method which returns a columnar snapshot of the spawning
+     * resources, in the order of the set of spawning resources. The snapshot
+     * is reused for each refresh of the main table, such as when the user types
+     * at the filter fields, and it is rebuilt if the resource tab has replaced
+     * its set of spawning resources or if the snapshot is reset.
+     * 
+     * @return a snapshot of the spawning resources
+     */
+    private SWGResourceColumns spawningColumns() {
+        SWGResourceSet spawn = resourceTab.spawning();
+        if (spawningColumns == null || spawningSource != spawn) {
+            spawningColumns = new SWGResourceColumns(spawn);
+            spawningSource = spawn;
+            guardsRows.clear();
+        }
+        return spawningColumns;
+    }
+
     /**
      * Helper method which returns a background color, or {@code null}. This
      * method returns the "fair" color if the specified resource is stocked in
@@ -2810,6 +2893,7 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
      * current resources is updated.
      */
     void updateDisplay() {
+        spawningColumns = null;
         updateGuards();
         updateCurrent();
         updateMonitors();
@@ -2823,6 +2907,7 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
         SWGGuard sg = selectedGuard;
         selectedGuard = null;
         guardsList = null;
+        guardsRows.clear();
 
         guardsModel.fireTableDataChanged();
 
@@ -3193,7 +3278,7 @@ public final class SWGCurrentTab extends JPanel implements ActionListener {
 
                 // using the weights system to take advantage of caps being
                 // something other than 1000
-                int stat = (int) weights.rate(res, capRes, true);
+                int stat = (int) SWGRateCache.rate(res, weights, capRes, true);
                 return Integer.valueOf(stat);
             }
             case 14: { // age
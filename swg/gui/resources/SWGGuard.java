@@ -7,7 +7,9 @@ import swg.crafting.SWGWeights;
 import swg.crafting.resources.SWGKnownResource;
 import swg.crafting.resources.SWGResource;
 import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceColumns;
 import swg.crafting.resources.SWGResourceFilter;
+import swg.crafting.resources.SWGWeightRater;
 import swg.gui.common.SWGGui;
 import swg.tools.ZString;
 
@@ -170,6 +172,29 @@ public final class SWGGuard implements
                 : ret;
     }
 
+    /**
+     * Determines which resources of the specified snapshot match the criteria
+     * of this instance. This is the same logic as
+     * {@link #accept(SWGKnownResource)} but it is evaluated column by column
+     * over the snapshot.
+     * 
+     * @param cols a columnar snapshot of resources
+     * @return a mask of the rows which resources match this instance
+     */
+    boolean[] accept(SWGResourceColumns cols) {
+        boolean[] rows = cols.rows(resourceClass);
+        boolean[] blanks = cols.blanks(rows); // possible matches, stat-less
+
+        acceptHelper(cols, rows, guardValues);
+        if (guardValues2nd != null)
+            acceptHelper(cols, rows, guardValues2nd);
+
+        for (int r = 0; r < rows.length; ++r)
+            rows[r] |= blanks[r];
+
+        return rows;
+    }
+
     /**
      * Helper method which is used when this instance is a plain filter. This
      * method invokes {@link SWGResourceFilter#isBetter(SWGResource, boolean)}.
@@ -199,6 +224,26 @@ public final class SWGGuard implements
                 : acceptFilter(r, (SWGResourceFilter) g);
     }
 
+    /**
+     * Helper method for {@link #accept(SWGResourceColumns)} that narrows the
+     * specified mask for the specified guard.
+     * 
+     * @param cols a columnar snapshot of resources
+     * @param rows the mask of rows to narrow
+     * @param g a guard
+     */
+    private void acceptHelper(
+            SWGResourceColumns cols, boolean[] rows, SWGValues g) {
+        if (!acceptNoStats)
+            cols.retainAllValues(rows, g);
+
+        if (isWeighted(g))
+            cols.retain(rows, new SWGWeightRater(
+                    (SWGWeights) g, resourceClass, acceptNoStats), limit);
+        else
+            cols.retain(rows, (SWGResourceFilter) g, true);
+    }
+
     /**
      * Helper method which is used when this instance is weighed. This method
      * invokes {@link SWGWeights#rate(SWGResource, SWGResourceClass, boolean)}
@@ -0,0 +1,247 @@
+package swg.gui.resources;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import swg.crafting.resources.ResourceUpdate;
+import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceColumns;
+import swg.crafting.resources.SWGResourceSet;
+import swg.model.SWGCGalaxy;
+
+/**
+ * This type is an incremental engine for resource guards. For each galaxy it
+ * keeps the state of the guards, per guard the set of spawning resources which
+ * match the guard. A guard is evaluated against all spawning resources just
+ * when it is new or modified, otherwise the state is updated by the resources
+ * of the update notifications, see {@link ResourceUpdate.Delta}.
+ * <p>
+ * The guards are indexed by the types of their resource classes. A resource of
+ * a delta is just matched against the guards for the resource class of the
+ * resource and its ancestors, which are the guards that can accept it, see
+ * {@link SWGGuard#accept(SWGKnownResource)}.
+ * <p>
+ * The state for a galaxy is dropped if there is a notification without a
+ * delta, or if the snapshot of spawning resources is replaced without a
+ * notification; then all guards are evaluated again when they are asked for.
+ * This type does not consider active harvesters or the option for Kashyyyk and
+ * Mustafar, the client filters the matching resources for those.
+ * <p>
+ * This type is thread safe, all methods synchronize on the instance.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+final class SWGGuardEngine {
+
+    /**
+     * A map of galaxy constants which map to the state of the guards for the
+     * galaxy.
+     */
+    private final Map<SWGCGalaxy, State> states =
+            new HashMap<SWGCGalaxy, State>();
+
+    /**
+     * Returns a list of the spawning resources at the specified galaxy which
+     * match the specified guard. If the guard is new to this engine or if it is
+     * modified since it was evaluated it is evaluated against all resources of
+     * the specified snapshot, otherwise its state is returned.
+     * <p>
+     * If the specified snapshot is not the snapshot which the state of the
+     * galaxy is based on, and if no update is applied since, all state for
+     * the galaxy is dropped and rebuilt.
+     * 
+     * @param g a guard
+     * @param gxy a galaxy constant
+     * @param cols the current snapshot of spawning resources for the galaxy
+     * @return a list of matching resources, or an empty list
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    synchronized List<SWGKnownResource> matches(
+            SWGGuard g, SWGCGalaxy gxy, SWGResourceColumns cols) {
+
+        State st = states.get(gxy);
+        if (st == null || (st.cols != null && st.cols != cols)) {
+            st = new State();
+            states.put(gxy, st);
+        }
+        st.cols = cols;
+
+        Match m = st.matches.get(g);
+        String fp = fingerprint(g);
+        if (m == null || !m.fingerprint.equals(fp)) {
+            m = new Match(fp);
+            boolean[] rows = g.accept(cols);
+            for (int r = 0; r < rows.length; ++r)
+                if (rows[r]) m.resources.add(cols.get(r));
+
+            st.matches.put(g, m);
+            st.index = null;
+        }
+        return new ArrayList<SWGKnownResource>(m.resources);
+    }
+
+    /**
+     * Drops the state of guards at the specified galaxy which are not
+     * contained in the specified list, such as removed guards.
+     * 
+     * @param gxy a galaxy constant
+     * @param guards the current guards for the galaxy
+     */
+    synchronized void retain(SWGCGalaxy gxy, List<SWGGuard> guards) {
+        State st = states.get(gxy);
+        if (st != null && st.matches.keySet().retainAll(guards))
+            st.index = null;
+    }
+
+    /**
+     * Updates the state of guards at the specified galaxy with the specified
+     * delta. A depleted resource is removed from all guards; an added or an
+     * updated resource is evaluated against the guards for its resource class
+     * and its ancestors and it is added to or removed from their sets. If the
+     * delta is {@code null} any resource may have changed and the state for
+     * the galaxy is dropped; if the galaxy is {@code null} all state is
+     * dropped.
+     * 
+     * @param gxy a galaxy constant, or {@code null}
+     * @param delta the resources which are changed, or {@code null}
+     */
+    synchronized void update(SWGCGalaxy gxy, ResourceUpdate.Delta delta) {
+        if (gxy == null) {
+            states.clear();
+            return;
+        }
+        if (delta == null) {
+            states.remove(gxy);
+            return;
+        }
+
+        State st = states.get(gxy);
+        if (st == null) return; // nothing to update
+
+        for (SWGKnownResource kr : delta.depleted)
+            for (Match m : st.matches.values())
+                m.resources.remove(kr);
+
+        updateHelper(st, delta.added);
+        updateHelper(st, delta.updated);
+
+        // the snapshot is replaced by the update, adopt the next one
+        st.cols = null;
+    }
+
+    /**
+     * Helper method which evaluates the specified resources against the guards
+     * of the specified state which can accept them, see {@link State#index}.
+     * A resource which is accepted by a guard is added to its set, otherwise
+     * it is removed from the set.
+     * 
+     * @param st the state for a galaxy
+     * @param rs the resources to evaluate
+     */
+    private void updateHelper(State st, SWGResourceSet rs) {
+        if (rs.isEmpty()) return;
+
+        if (st.index == null) {
+            st.index = new HashMap<Class<?>, List<SWGGuard>>();
+            for (SWGGuard g : st.matches.keySet()) {
+                List<SWGGuard> gl = st.index.get(g.rc().getClass());
+                if (gl == null) {
+                    gl = new ArrayList<SWGGuard>();
+                    st.index.put(g.rc().getClass(), gl);
+                }
+                gl.add(g);
+            }
+        }
+
+        for (SWGKnownResource kr : rs) {
+            for (Match m : st.matches.values())
+                m.resources.remove(kr); // its class may have changed
+
+            for (Class<?> c = kr.rc().getClass();
+                    SWGResourceClass.class.isAssignableFrom(c);
+                    c = c.getSuperclass()) {
+
+                List<SWGGuard> gl = st.index.get(c);
+                if (gl != null)
+                    for (SWGGuard g : gl)
+                        if (g.accept(kr))
+                            st.matches.get(g).resources.add(kr);
+            }
+        }
+    }
+
+    /**
+     * Helper method which returns a fingerprint for the specified guard. If
+     * the logic, the resource class, or an option of the guard is modified the
+     * fingerprint differs.
+     * 
+     * @param g a guard
+     * @return a fingerprint
+     */
+    private static String fingerprint(SWGGuard g) {
+        return g.toString() + g.acceptNoStats;
+    }
+
+    /**
+     * The state of one guard, the resources which match the guard and the
+     * fingerprint of the guard when it was evaluated.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class Match {
+
+        /**
+         * The fingerprint of the guard, see
+         * {@link SWGGuardEngine#fingerprint(SWGGuard)}.
+         */
+        final String fingerprint;
+
+        /**
+         * The resources which match the guard, in the order they are found.
+         */
+        final Set<SWGKnownResource> resources =
+                new LinkedHashSet<SWGKnownResource>();
+
+        /**
+         * Creates an instance of this type.
+         * 
+         * @param fingerprint the fingerprint of the guard
+         */
+        Match(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * The state of the guards for one galaxy.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class State {
+
+        /**
+         * The snapshot which the state is based on, or {@code null} if an
+         * update is applied and the next snapshot is adopted.
+         */
+        SWGResourceColumns cols;
+
+        /**
+         * The guards mapped to by the types of their resource classes, or
+         * {@code null} if it must be rebuilt.
+         */
+        Map<Class<?>, List<SWGGuard>> index;
+
+        /**
+         * The state of each guard.
+         */
+        final Map<SWGGuard, Match> matches = new HashMap<SWGGuard, Match>();
+    }
+}
@@ -65,6 +65,7 @@ import swg.crafting.SWGWeights;
 import swg.crafting.Stat;
 import swg.crafting.resources.SWGKnownResource;
 import swg.crafting.resources.SWGMutableResource;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
 import swg.crafting.resources.SWGResourceFilter;
 import swg.crafting.resources.SWGResourceStats;
@@ -2911,9 +2912,8 @@ final class SWGInventoryTab extends JPanel {
 
         List<SWGInventoryWrapper> wrs =
                 new ArrayList<SWGInventoryWrapper>(wl.size());
-        Class<? extends SWGResourceClass> crc = resourceClass.getClass();
         for (SWGInventoryWrapper wr : wl)
-            if (wr.getResource().rc().isSub(crc))
+            if (wr.getResource().rc().isSub(resourceClass))
                 wrs.add(wr);
 
         return wrs;
@@ -3012,8 +3012,10 @@ final class SWGInventoryTab extends JPanel {
 
                     public int compare(SWGInventoryWrapper w1,
                             SWGInventoryWrapper w2) {
-                        double d1 = wgt.rate(w1.getResource(), cls, true);
-                        double d2 = wgt.rate(w2.getResource(), cls, true);
+                        double d1 = SWGRateCache.rate(
+                                w1.getResource(), wgt, cls, true);
+                        double d2 = SWGRateCache.rate(
+                                w2.getResource(), wgt, cls, true);
                         return Double.compare(d1, d2);
                     }
                 };
@@ -3162,7 +3164,7 @@ final class SWGInventoryTab extends JPanel {
                         ? resourceClass
                         : kr.rc();
 
-                double rating = weights.rate(kr, cap, true);
+                double rating = SWGRateCache.rate(kr, weights, cap, true);
                 return Double.valueOf(rating);
             }
             case 16:
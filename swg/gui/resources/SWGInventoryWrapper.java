@@ -170,6 +170,7 @@ public final class SWGInventoryWrapper implements Serializable,
             this.amount = 0;
         else
             this.amount = amount;
+        SWGResController.inventoryTouch();
     }
 
     /**
@@ -183,6 +184,7 @@ public final class SWGInventoryWrapper implements Serializable,
         if (assignee == null || assignee.isEmpty())
             throw new IllegalArgumentException("Illegal argument: " + assignee);
         this.assignee = assignee;
+        SWGResController.inventoryTouch();
     }
 
     /**
@@ -197,6 +199,7 @@ public final class SWGInventoryWrapper implements Serializable,
             s = null;
 
         this.notes = s;
+        SWGResController.inventoryTouch();
     }
 
     @Override
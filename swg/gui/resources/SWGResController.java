@@ -7,11 +7,12 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,10 +30,12 @@ import swg.crafting.UpdateNotification;
 import swg.crafting.UpdateSubscriber;
 import swg.crafting.resources.ResourceUpdate;
 import swg.crafting.resources.SWGKnownResource;
-import swg.crafting.resources.SWGPlanetAvailabilityInfo;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceColumns;
 import swg.crafting.resources.SWGResourceFilter;
 import swg.crafting.resources.SWGResourceSet;
+import swg.crafting.resources.SWGWeightRater;
 import swg.crafting.resources.types.SWGCreatureResources;
 import swg.crafting.resources.types.SWGEgg;
 import swg.crafting.resources.types.SWGOrganic;
@@ -47,6 +50,7 @@ import swg.model.SWGCGalaxy;
 import swg.model.SWGPlanet;
 import swg.swgcraft.SWGPets;
 import swg.swgcraft.SWGResourceManager;
+import swg.tools.SimplePrefsKeeper;
 import swg.tools.ZHtml;
 import swg.tools.ZNumber;
 import swg.tools.ZString;
@@ -96,6 +100,13 @@ public final class SWGResController implements UpdateSubscriber {
      */
     private static SWGGuardDialog guardDialog;
 
+    /**
+     * The engine which keeps the resources that match resource guards, it is
+     * updated by the resource notifications and it is used by the scans of
+     * guards, see {@link #guardsCheck(SWGCGalaxy)}.
+     */
+    private static final SWGGuardEngine guardEngine = new SWGGuardEngine();
+
     /**
      * A map where galaxy constant map to lists of resource guards.
      */
@@ -111,6 +122,28 @@ public final class SWGResController implements UpdateSubscriber {
      */
     private static Map<SWGCGalaxy, List<SWGHarvesterOwner>> harvOwners;
 
+    /**
+     * The maximum number of RCW-keys per galaxy in {@link #inventoryIndex},
+     * the least recently used key is evicted first.
+     */
+    private static final int INVENTORY_INDEX_MAX = 1024;
+
+    /**
+     * An index of resource inventory which is mapped to by galaxy constants.
+     * For a galaxy there is a map of RCW-keys, a resource class and weights,
+     * which map to lists of the inventory wrappers which resource classes are
+     * equal to or sub-classes of the resource class of the key. A list is
+     * sorted by the rates of the resources, best first, and equal rates in the
+     * order the wrappers are added.
+     * <p>
+     * A list is created when it is first asked for. It is updated when a
+     * wrapper is added or removed, but if the inventory for a galaxy is
+     * modified otherwise, or if a resource is updated, the index for the galaxy
+     * is dropped. This field synchronizes on {@link #inventoryMap}.
+     */
+    private static final Map<SWGCGalaxy, Map<InventoryKey, List<SWGInventoryWrapper>>> inventoryIndex =
+            new HashMap<SWGCGalaxy, Map<InventoryKey, List<SWGInventoryWrapper>>>();
+
     /**
      * A map of resource inventory maps which are mapped to by galaxy constants.
      * An inventory map contains a number of unique assignees, each assignee
@@ -119,12 +152,6 @@ public final class SWGResController implements UpdateSubscriber {
      */
     private static Map<SWGCGalaxy, Map<String, List<SWGInventoryWrapper>>> inventoryMap;
 
-    /**
-     * A comparator that determines if a resource is from Kashyyyk or Mustafar,
-     * however, it ignores if the resource is a Creature Resource.
-     */
-    private static Comparable<SWGKnownResource> kmComparator;
-
     /**
      * A lock object used by some methods must synchronize but which do not need
      * an object-wide lock.
@@ -210,8 +237,6 @@ public final class SWGResController implements UpdateSubscriber {
         resourceTab = parent;
         THIS = this;
 
-        kmComparator = kmResourceComparator();
-
         guards = (Map<SWGCGalaxy, List<SWGGuard>>)
                 SWGFrame.getPrefsKeeper().get(
                         "resourceGuardMap",
@@ -440,10 +465,20 @@ public final class SWGResController implements UpdateSubscriber {
      * points for a scan and initiates a scan of all resource guards for the
      * current galaxy and a scan of all galaxies which have active harvesters
      * and active monitors. The other entry point is {@code check(boolean)}.
+     * <p>
+     * Resources in inventory may be updated in place by a download, hence this
+     * method touches the inventory, see {@link #inventoryTouch()}.
      */
     public void handleUpdate(UpdateNotification u) {
         ResourceUpdate uu = (ResourceUpdate) u;
 
+        // rates and resource classes may have changed
+        synchronized (inventoryMap) {
+            inventoryIndex.remove(uu.optional);
+            inventoryTouch();
+        }
+        guardEngine.update((SWGCGalaxy) uu.optional, uu.delta);
+
         // This method dispatches to its helper method on every call, see the
         // class JDocu comments
         check((SWGCGalaxy) uu.optional);
@@ -934,6 +969,7 @@ public final class SWGResController implements UpdateSubscriber {
             List<SWGGuard> grds = guards(gxy);
             if (!SWGResController.contains(grds, guard)) {
                 grds.add(guard);
+                guardsTouch();
                 if (scan)
                     synchronized (LOCK) {
                         check();
@@ -957,6 +993,11 @@ public final class SWGResController implements UpdateSubscriber {
      * As a side effect of the scan each individual guard will have its date
      * {@code resourceRecentSpawnDate} set to an appropriate value.
      * <p>
+     * The guards are evaluated incrementally, just a guard which is new or
+     * modified is evaluated against all spawning resources, otherwise just the
+     * resources which match the guard are considered, see
+     * {@link SWGGuardEngine}.
+     * <p>
      * Any call to this method is assumed to already be synchronized.
      * 
      * @param gxy the galaxy to check guards for
@@ -970,20 +1011,16 @@ public final class SWGResController implements UpdateSubscriber {
                                 SWGCGalaxy.defaultGalaxy().id())))
             return 0; // only continue if current gxy or if default gxy
         
-        SWGResourceSet resources = SWGResourceManager.getSpawning(gxy);
+        SWGResourceColumns cols = SWGResourceManager.getColumns(gxy);
+        if (cols.size() == 0)
+            return 0;
 
         // if disregard Kashyyyk and Mustafar is chosen...
-        if (!resources.isEmpty()
-                && ((Boolean) SWGFrame.getPrefsKeeper().get(
-                        "resourceGuardsDisregardMK",
-                        Boolean.FALSE)).booleanValue()) {
-
-            // no resources from K & M, creature resources are always retained
-            resources = resources.subsetBy(kmComparator);
-        }
-
-        if (resources.isEmpty())
-            return 0;
+        // no resources from K & M, creature resources are always retained
+        Comparable<SWGKnownResource> km = ((Boolean) SWGFrame.getPrefsKeeper().
+                get("resourceGuardsDisregardMK", Boolean.FALSE)).booleanValue()
+                ? kmResourceComparator()
+                : null;
 
         long now = System.currentTimeMillis() / 1000;
         long ageLimit = now;
@@ -1005,8 +1042,11 @@ public final class SWGResController implements UpdateSubscriber {
         boolean alertOnce = ((Boolean) SWGFrame.getPrefsKeeper().get(
                 "resourceGuardAlertOnce", Boolean.FALSE)).booleanValue();
 
+        List<SWGGuard> grds = guards(gxy);
+        guardEngine.retain(gxy, grds);
+
         int ret = 0;
-        for (SWGGuard g : guards(gxy)) {
+        for (SWGGuard g : grds) {
             boolean wasAlarmed = g.resourceRecentSpawnDate > 0;
             boolean allowSound = wasAlarmed && !alertOnce;
 
@@ -1014,21 +1054,20 @@ public final class SWGResController implements UpdateSubscriber {
             g.resourceRecentSpawnDate = 0;
             if (!g.useAlarm) continue; // reset but no reason to continue
 
-            for (SWGKnownResource r : resources) {
-                if (harvesterActive(r, gxy)) continue;
-                if (g.accept(r)) {
-                    SWGPlanetAvailabilityInfo pai = r.availableFirst();
-                    long rt = pai.available();
-                    if (rt > ageLimit) {
-                        // for each triggered guard, find the most recent
-                        // resource and use its first-available date
-                        if (rt > g.resourceRecentSpawnDate)
-                            g.resourceRecentSpawnDate = rt;
-
-                        ret |= (rt > newSpawnLimit || allowSound)
-                                ? -1 // allow sound
-                                : 1; // alert but no sound
-                    }
+            for (SWGKnownResource kr : guardEngine.matches(g, gxy, cols)) {
+                if (km != null && km.compareTo(kr) != 0) continue;
+                if (harvesterActive(kr, gxy)) continue;
+
+                long rt = kr.availableFirst().available();
+                if (rt > ageLimit) {
+                    // for each triggered guard, find the most recent
+                    // resource and use its first-available date
+                    if (rt > g.resourceRecentSpawnDate)
+                        g.resourceRecentSpawnDate = rt;
+
+                    ret |= (rt > newSpawnLimit || allowSound)
+                            ? -1 // allow sound
+                            : 1; // alert but no sound
                 }
             }
         }
@@ -1058,12 +1097,22 @@ public final class SWGResController implements UpdateSubscriber {
     static void guardsRemove(SWGGuard guard, SWGCGalaxy gxy) {
         synchronized (guards) {
             List<SWGGuard> grds = guards(gxy);
-            grds.remove(guard);
+            if (grds.remove(guard)) guardsTouch();
             check();
             SWGResourceTab.currentUpdateGUI();
         }
     }
 
+    /**
+     * Helper method which marks the guards as modified in SWGAide's DAT file,
+     * see {@link SimplePrefsKeeper#touch(String)}. This method is invoked by
+     * each method which adds or removes a guard.
+     */
+    private static void guardsTouch() {
+        SimplePrefsKeeper pk = SWGFrame.getPrefsKeeper();
+        if (pk != null) pk.touch("resourceGuardMap");
+    }
+
     /**
      * Updates {@link #statusColor} based on the argument. A negative value
      * means alarm and has higher precedence than an alert or warning. A
@@ -1361,6 +1410,7 @@ public final class SWGResController implements UpdateSubscriber {
                 if (wl == null && create) {
                     wl = new ArrayList<SWGInventoryWrapper>();
                     ags.put(ass, wl);
+                    inventoryTouch();
                 }
             }
             return wl;
@@ -1457,7 +1507,7 @@ public final class SWGResController implements UpdateSubscriber {
                     iw.getAssignee(), gxy, true);
 
             if (iw.equalAddSub == null)
-                inventoryAddHelper(iw, asl);
+                inventoryAddHelper(iw, gxy, asl);
             else
                 inventoryAddUpdate(iw, gxy, asl);
         }
@@ -1510,16 +1560,19 @@ public final class SWGResController implements UpdateSubscriber {
      * have synchronized on {@link #inventoryMap}.
      * 
      * @param iw an inventory wrapper
+     * @param gxy a galaxy constant
      * @param asl a list of wrappers for the assignee
      */
-    private static void inventoryAddHelper(
-            SWGInventoryWrapper iw, List<SWGInventoryWrapper> asl) {
+    private static void inventoryAddHelper(SWGInventoryWrapper iw,
+            SWGCGalaxy gxy, List<SWGInventoryWrapper> asl) {
 
         for (SWGInventoryWrapper w : asl)
             if (w.getResource() == iw.getResource())
                 return; // and no duplicates allowed
 
         asl.add(iw);
+        inventoryIndexAdd(iw, gxy);
+        inventoryTouch();
     }
 
     /**
@@ -1572,8 +1625,11 @@ public final class SWGResController implements UpdateSubscriber {
 
             // do not update notes, the notes file may have just one line while
             // the old notes may have several
-        } else
+        } else {
             asl.add(iw);
+            inventoryIndexAdd(iw, gxy);
+            inventoryTouch();
+        }
     }
 
     /**
@@ -1613,8 +1669,10 @@ public final class SWGResController implements UpdateSubscriber {
             Map<String, List<SWGInventoryWrapper>> ags =
                     inventoryAssignees(gxy, false);
 
-            if (ags != null)
-                ags.remove(ass);
+            if (ags != null && ags.remove(ass) != null)
+                inventoryTouch();
+
+            inventoryIndex.remove(gxy);
         }
     }
 
@@ -1641,11 +1699,44 @@ public final class SWGResController implements UpdateSubscriber {
             if (ags == null && create) {
                 ags = new HashMap<String, List<SWGInventoryWrapper>>();
                 inventoryMap.put(gxy, ags);
+                inventoryTouch();
             }
             return ags;
         }
     }
 
+    /**
+     * Returns the inventory wrapper at the specified galaxy which resource is
+     * the best for the specified resource class and weights, or {@code null}.
+     * The resource class of the wrapper is equal to or a sub-class of the
+     * specified class, and its resource is rated by the specified weights with
+     * the caps of the specified class, see
+     * {@link SWGWeights#rate(swg.crafting.resources.SWGResource, SWGResourceClass, boolean)}
+     * with zero-is-max. If no wrapper is rated above zero {@code null} is
+     * returned.
+     * <p>
+     * This method reads the index of inventory, it does not rate all of the
+     * inventory for each invocation, see {@link #inventoryRanked(
+     * SWGResourceClass, SWGWeights, SWGCGalaxy, int)}.
+     * 
+     * @param rc a resource class
+     * @param w experimental weights
+     * @param gxy a galaxy constant
+     * @return the best inventory wrapper, or {@code null}
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public static SWGInventoryWrapper inventoryBest(
+            SWGResourceClass rc, SWGWeights w, SWGCGalaxy gxy) {
+
+        synchronized (inventoryMap) {
+            InventoryKey key = new InventoryKey(rc, w);
+            List<SWGInventoryWrapper> wl = inventoryIndex(key, gxy);
+            return !wl.isEmpty() && key.rate(wl.get(0)) > 0
+                    ? wl.get(0)
+                    : null;
+        }
+    }
+
     /**
      * Returns a list of inventory wrappers for the specified resource and which
      * are owned by assignees at the specified galaxy, or an empty list.
@@ -1669,6 +1760,105 @@ public final class SWGResController implements UpdateSubscriber {
         return ret;
     }
 
+    /**
+     * Helper method which returns the sorted list of inventory wrappers for the
+     * specified key and galaxy, see {@link #inventoryIndex}. If the list does
+     * not exist it is created from the inventory at the galaxy and added to
+     * the index. The returned list is the indexed list and it must not be
+     * modified or exposed. The caller must have synchronized on
+     * {@link #inventoryMap}.
+     * 
+     * @param key an RCW-key
+     * @param gxy a galaxy constant
+     * @return a sorted list of inventory wrappers, or an empty list
+     */
+    private static List<SWGInventoryWrapper> inventoryIndex(
+            InventoryKey key, SWGCGalaxy gxy) {
+
+        Map<InventoryKey, List<SWGInventoryWrapper>> m =
+                inventoryIndex.get(gxy);
+        if (m == null) {
+            m = new IndexMap();
+            inventoryIndex.put(gxy, m);
+        }
+
+        List<SWGInventoryWrapper> wl = m.get(key);
+        if (wl == null) {
+            wl = new ArrayList<SWGInventoryWrapper>();
+            for (SWGInventoryWrapper iw : inventory(gxy))
+                if (iw.getResource().rc().isSub(key.rc))
+                    inventoryIndexInsert(iw, key, wl);
+
+            m.put(key, wl);
+        }
+        return wl;
+    }
+
+    /**
+     * Helper method which adds the specified wrapper to the lists of the index
+     * for the specified galaxy, to each list which resource class the resource
+     * of the wrapper is equal to or a sub-class of. The caller must have
+     * synchronized on {@link #inventoryMap}.
+     * 
+     * @param iw an inventory wrapper which is added to the inventory
+     * @param gxy a galaxy constant
+     */
+    private static void inventoryIndexAdd(
+            SWGInventoryWrapper iw, SWGCGalaxy gxy) {
+
+        Map<InventoryKey, List<SWGInventoryWrapper>> m =
+                inventoryIndex.get(gxy);
+        if (m == null) return;
+
+        SWGResourceClass rc = iw.getResource().rc();
+        for (Map.Entry<InventoryKey, List<SWGInventoryWrapper>> e
+                : m.entrySet())
+            if (rc.isSub(e.getKey().rc))
+                inventoryIndexInsert(iw, e.getKey(), e.getValue());
+    }
+
+    /**
+     * Drops the index of the inventory for the specified galaxy, see
+     * {@link #inventoryIndex}. The resource manager invokes this method when
+     * the stats or the resource class of a resource is updated, also by a
+     * local edit which is not notified to subscribers; compare
+     * {@link #handleUpdate(UpdateNotification)}.
+     * 
+     * @param gxy a galaxy constant
+     */
+    public static void inventoryIndexDrop(SWGCGalaxy gxy) {
+        if (inventoryMap == null) return; // not yet initiated
+
+        synchronized (inventoryMap) {
+            inventoryIndex.remove(gxy);
+        }
+    }
+
+    /**
+     * Helper method which inserts the specified wrapper to the specified list
+     * which is sorted by the rates of the specified key, best first. The
+     * wrapper is inserted after wrappers which are rated equal to it.
+     * 
+     * @param iw an inventory wrapper
+     * @param key the key of the list
+     * @param wl a sorted list of wrappers
+     */
+    private static void inventoryIndexInsert(SWGInventoryWrapper iw,
+            InventoryKey key, List<SWGInventoryWrapper> wl) {
+
+        double r = key.rate(iw);
+        int lo = 0;
+        int hi = wl.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key.rate(wl.get(mid)) >= r)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        wl.add(lo, iw);
+    }
+
     /**
      * Determines if a resource exist in inventory for the specified resource
      * class and galaxy. This method scans all assignees at the specified galaxy
@@ -1697,9 +1887,8 @@ public final class SWGResController implements UpdateSubscriber {
                     if (w.getResource().rc() == rc && w.getAmount() > 0)
                         return true;
             } else {
-                Class<? extends SWGResourceClass> crc = rc.getClass();
                 for (SWGInventoryWrapper w : all)
-                    if (w.getResource().rc().isSub(crc)
+                    if (w.getResource().rc().isSub(rc)
                             && w.getAmount() > 0)
                         return true;
             }
@@ -1755,6 +1944,8 @@ public final class SWGResController implements UpdateSubscriber {
                 wr.equalAddSub = null;
             }
             iwl.clear();
+            inventoryIndex.remove(gxy);
+            inventoryTouch();
         }
     }
 
@@ -1779,6 +1970,70 @@ public final class SWGResController implements UpdateSubscriber {
         return "";
     }
 
+    /**
+     * Returns a list of at most {@code limit} inventory wrappers at the
+     * specified galaxy for the specified resource class and weights, sorted by
+     * rate with the best first. The resource classes of the wrappers are equal
+     * to or sub-classes of the specified class and the resources are rated as
+     * for {@link #inventoryBest(SWGResourceClass, SWGWeights, SWGCGalaxy)}.
+     * <p>
+     * The list is obtained from the index of inventory which is created per
+     * galaxy and resource class and weights when it is first asked for, and
+     * which is updated when a wrapper is added to or removed from inventory.
+     * The returned list is a copy which is free to modify.
+     * 
+     * @param rc a resource class
+     * @param w experimental weights
+     * @param gxy a galaxy constant
+     * @param limit the maximum number of wrappers, or 0 for all
+     * @return a sorted list of inventory wrappers, or an empty list
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public static List<SWGInventoryWrapper> inventoryRanked(
+            SWGResourceClass rc, SWGWeights w, SWGCGalaxy gxy, int limit) {
+
+        synchronized (inventoryMap) {
+            List<SWGInventoryWrapper> wl =
+                    inventoryIndex(new InventoryKey(rc, w), gxy);
+            int n = limit > 0
+                    ? Math.min(limit, wl.size())
+                    : wl.size();
+            return new ArrayList<SWGInventoryWrapper>(wl.subList(0, n));
+        }
+    }
+
+    /**
+     * Returns a list of lists of inventory wrappers at the specified galaxy,
+     * one list for each resource class and weights of the specified lists, in
+     * the same order. Each list is the same as returned by
+     * {@link #inventoryRanked(SWGResourceClass, SWGWeights, SWGCGalaxy, int)}
+     * for all wrappers, but the lists are obtained under one lock. Hence they
+     * are a consistent snapshot of the index for a caller which reads them
+     * concurrently, the lists are free to modify.
+     * 
+     * @param rcs a list of resource classes
+     * @param ws a list of experimental weights, as many as resource classes
+     * @param gxy a galaxy constant
+     * @return a list of sorted lists of inventory wrappers, or an empty list
+     * @throws IllegalArgumentException if the lists differ in size
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public static List<List<SWGInventoryWrapper>> inventoryRanked(
+            List<SWGResourceClass> rcs, List<SWGWeights> ws, SWGCGalaxy gxy) {
+
+        if (rcs.size() != ws.size())
+            throw new IllegalArgumentException("Sizes differ");
+
+        List<List<SWGInventoryWrapper>> ret =
+                new ArrayList<List<SWGInventoryWrapper>>(rcs.size());
+        synchronized (inventoryMap) {
+            for (int i = 0; i < rcs.size(); ++i)
+                ret.add(new ArrayList<SWGInventoryWrapper>(inventoryIndex(
+                        new InventoryKey(rcs.get(i), ws.get(i)), gxy)));
+        }
+        return ret;
+    }
+
     /**
      * Removes the specified wrapper from the specified galaxy. If the specified
      * inventory wrapper is not found, or if its assignee does not exist, this
@@ -1792,11 +2047,28 @@ public final class SWGResController implements UpdateSubscriber {
         synchronized (inventoryMap) {
             List<SWGInventoryWrapper> wl = inventory(
                     iw.getAssignee(), gxy, false);
-            if (wl != null)
-                wl.remove(iw);
+            if (wl != null && wl.remove(iw)) {
+                Map<InventoryKey, List<SWGInventoryWrapper>> m =
+                        inventoryIndex.get(gxy);
+                if (m != null)
+                    for (List<SWGInventoryWrapper> il : m.values())
+                        il.remove(iw);
+                inventoryTouch();
+            }
         }
     }
 
+    /**
+     * Helper method which marks the inventory as modified in SWGAide's DAT
+     * file, see {@link SimplePrefsKeeper#touch(String)}. The inventory is
+     * written when it is touched, hence this method is invoked by each method
+     * which modifies the inventory or an inventory wrapper.
+     */
+    static void inventoryTouch() {
+        SimplePrefsKeeper pk = SWGFrame.getPrefsKeeper();
+        if (pk != null) pk.touch("resourceInventoryMap");
+    }
+
     /**
      * Creates and returns a new comparator for Kashyyykian and Mustafarian
      * resources. This comparator's {@code compareTo(SWGKnownResource)} returns
@@ -1821,6 +2093,24 @@ public final class SWGResController implements UpdateSubscriber {
         };
     }
 
+    /**
+     * Returns a mask for the rows of the specified snapshot which resources
+     * are not from Kashyyyk or Mustafar, or which are creature resources. This
+     * is the same logic as {@link #kmResourceComparator()} but for a columnar
+     * snapshot.
+     * 
+     * @param cols a columnar snapshot of resources
+     * @return a mask of rows
+     */
+    public static boolean[] kmResourceRows(SWGResourceColumns cols) {
+        boolean[] rows = cols.rows(SWGCreatureResources.getInstance());
+        for (int r = 0; r < rows.length; ++r)
+            rows[r] |= !(cols.isAvailable(r, SWGPlanet.KASHYYYK)
+                    || cols.isAvailable(r, SWGPlanet.MUSTAFAR));
+
+        return rows;
+    }
+
     /**
      * Creates a monitor for the specified resource and adds it to the monitors
      * for the current galaxy. If a monitor for the specified resource already
@@ -2180,14 +2470,56 @@ public final class SWGResController implements UpdateSubscriber {
      * @return a sorted set of resources
      */
     public static SWGResourceSet resources(
-            final SWGResourceClass rc, final SWGWeights w,
+            SWGResourceClass rc, SWGWeights w,
             SWGResourceSet spawn, List<SWGInventoryWrapper> inv) {
 
+        return resources(rc, w, spawn, inv, 0);
+    }
+
+    /**
+     * Returns a sorted set of at most {@code limit} resources from spawn and
+     * inventory that match the specified class. This method is the same as
+     * {@link #resources(SWGResourceClass, SWGWeights, SWGResourceSet, List, int)}
+     * for the inventory at the specified galaxy, but the inventory resources
+     * which match the class are obtained from the index of inventory, see
+     * {@link #inventoryRanked(SWGResourceClass, SWGWeights, SWGCGalaxy, int)}.
+     * 
+     * @param rc a resource class constant
+     * @param w a weights object
+     * @param spawn a set of spawning resources
+     * @param gxy a galaxy constant for the inventory
+     * @param limit the maximum number of resources, or 0 for all
+     * @return a sorted set of resources
+     */
+    public static SWGResourceSet resources(SWGResourceClass rc, SWGWeights w,
+            SWGResourceSet spawn, SWGCGalaxy gxy, int limit) {
+
+        return resources(rc, w, spawn, inventoryRanked(rc, w, gxy, 0), limit);
+    }
+
+    /**
+     * Returns a sorted set of at most {@code limit} resources from the two
+     * collections that match the specified class. This method is the same as
+     * {@link #resources(SWGResourceClass, SWGWeights, SWGResourceSet, List)}
+     * but if a limit is specified just the best resources are returned, see
+     * {@link SWGResourceSet#topK(SWGResourceSet.Score, int, boolean)}; the set
+     * is then not sorted in full.
+     * 
+     * @param rc a resource class constant
+     * @param w a weights object
+     * @param spawn a set of spawning resources
+     * @param inv a list of inventory resources
+     * @param limit the maximum number of resources, or 0 for all
+     * @return a sorted set of resources
+     */
+    public static SWGResourceSet resources(
+            final SWGResourceClass rc, final SWGWeights w,
+            SWGResourceSet spawn, List<SWGInventoryWrapper> inv, int limit) {
+
         SWGResourceSet res = new SWGResourceSet(128);
-        Class<? extends SWGResourceClass> crc = rc.getClass();
         for (SWGInventoryWrapper e : inv) {
             SWGKnownResource kr = e.getResource();
-            if (kr.rc().isSub(crc))
+            if (kr.rc().isSub(rc))
                 res.add(kr);
         }
 
@@ -2197,31 +2529,28 @@ public final class SWGResController implements UpdateSubscriber {
 
         res.addAll(spawn.subsetBy(rc));
 
-        res.sort(new Comparator<SWGKnownResource>() {
+        // LQ is rated by the caps of each resource, else by the caps of rc
+        final boolean hq = w != SWGWeights.LQ_WEIGHTS;
+        final SWGWeightRater rater = hq
+                ? new SWGWeightRater(w, rc, true)
+                : null;
+
+        SWGResourceSet.Score score = new SWGResourceSet.Score() {
             @Override
-            public int compare(SWGKnownResource o1, SWGKnownResource o2) {
-                SWGResourceClass rc1, rc2;
-                boolean hq = w != SWGWeights.LQ_WEIGHTS;
-                if (!hq) {
-                    rc1 = o1.rc();
-                    rc2 = o2.rc();
-                } else
-                    rc1 = rc2 = rc;
-
-                double w1 = o1.rc().isSpaceOrRecycled()
-                        ? o1.stats().value(Stat.OQ)
-                        : w.rate(o1, rc1, hq);
-                double w2 = o2.rc().isSpaceOrRecycled()
-                        ? o2.stats().value(Stat.OQ)
-                        : w.rate(o2, rc2, hq);
-
-                int ret = Double.compare(w1, w2);
-                return w == SWGWeights.LQ_WEIGHTS
-                        ? ret // worst first
-                        : -ret; // else best
+            public double score(SWGKnownResource kr) {
+                if (kr.rc().isSpaceOrRecycled())
+                    return kr.stats().value(Stat.OQ);
+                return hq
+                        ? rater.rate(kr)
+                        : w.rate(kr, kr.rc(), false);
             }
-        });
+        };
+
+        // LQ worst first, else best
+        if (limit > 0)
+            return res.topK(score, limit, hq);
 
+        res.sort(score, hq);
         return res;
     }
 
@@ -2251,6 +2580,106 @@ public final class SWGResController implements UpdateSubscriber {
         }
     }
 
+    /**
+     * The index of inventory for one galaxy, a map of RCW-keys in access order
+     * which map to sorted lists of inventory wrappers. The map is bounded to
+     * {@link SWGResController#INVENTORY_INDEX_MAX} keys, the least recently
+     * used key is evicted first. This type is never serialized.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class IndexMap
+            extends LinkedHashMap<InventoryKey, List<SWGInventoryWrapper>> {
+
+        /**
+         * Serialization version info.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an instance of this type.
+         */
+        IndexMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<InventoryKey, List<SWGInventoryWrapper>> e) {
+            return size() > INVENTORY_INDEX_MAX;
+        }
+    }
+
+    /**
+     * A key for the index of inventory, a resource class and a copy of the
+     * values of some weights. Instances of this type are immutable.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class InventoryKey {
+
+        /**
+         * The hash code of this instance.
+         */
+        private final int hash;
+
+        /**
+         * The resource class of this key.
+         */
+        private final SWGResourceClass rc;
+
+        /**
+         * The values of {@link #weights}, for equality.
+         */
+        private final int[] values;
+
+        /**
+         * A copy of the weights of this key.
+         */
+        private final SWGWeights weights;
+
+        /**
+         * Creates an instance of this type for the specified arguments.
+         * 
+         * @param rc a resource class
+         * @param w experimental weights, copied by this constructor
+         */
+        InventoryKey(SWGResourceClass rc, SWGWeights w) {
+            this.rc = rc;
+            this.values = w.values();
+            this.weights = new SWGWeights(values, false);
+            hash = rc.rcID() * 31 + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof InventoryKey)) return false;
+
+            InventoryKey o = (InventoryKey) obj;
+            return hash == o.hash && rc == o.rc
+                    && Arrays.equals(values, o.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Returns the rate of the resource of the specified wrapper for this
+         * key, see {@link SWGRateCache}.
+         * 
+         * @param iw an inventory wrapper
+         * @return the rate of its resource
+         */
+        double rate(SWGInventoryWrapper iw) {
+            return SWGRateCache.rate(iw.getResource(), weights, rc, true);
+        }
+    }
+
     // /**
     // * Returns the URL for the "gloomy" sound clip which is played when a
     // * harvester is idling or a monitor alarms on a depleted resource.
@@ -17,6 +17,7 @@ import swg.crafting.schematics.SWGSchematicsManager;
 import swg.gui.common.SWGGui;
 import swg.gui.resources.SWGInventoryWrapper;
 import swg.gui.resources.SWGResController;
+import swg.model.SWGCGalaxy;
 import swg.tools.ZString;
 
 /**
@@ -152,15 +153,36 @@ final class SWGExperimentWrapper implements SWGGui {
 
     /**
      * Helper method that refreshes the list of resources in this instance. The
-     * resources are also sorted per the current weights.
+     * resources are also sorted per the current weights. If a limit is
+     * specified just the best resources are retained.
      * 
      * @param spawn a set of spawning resources
      * @param inv a list of inventory resources
+     * @param limit the maximum number of resources, or 0 for all
      */
     private synchronized void refresh(
-            SWGResourceSet spawn, List<SWGInventoryWrapper> inv) {
+            SWGResourceSet spawn, List<SWGInventoryWrapper> inv, int limit) {
+
+        resources = SWGResController.resources(
+                resClass, weights, spawn, inv, limit);
+    }
+
+    /**
+     * Helper method that refreshes the list of resources in this instance. The
+     * same as {@link #refresh(SWGResourceSet, List, int)} but the inventory
+     * resources are obtained from the ranked inventory for the specified
+     * galaxy, see {@link SWGResController#inventoryRanked(
+     * SWGResourceClass, SWGWeights, SWGCGalaxy, int)}.
+     * 
+     * @param spawn a set of spawning resources
+     * @param gxy the galaxy of the inventory
+     * @param limit the maximum number of resources, or 0 for all
+     */
+    private synchronized void refresh(
+            SWGResourceSet spawn, SWGCGalaxy gxy, int limit) {
 
-        resources = SWGResController.resources(resClass, weights, spawn, inv);
+        resources = SWGResController.resources(
+                resClass, weights, spawn, gxy, limit);
     }
 
     /**
@@ -449,8 +471,45 @@ final class SWGExperimentWrapper implements SWGGui {
     static void refresh(List<SWGExperimentWrapper> expWrappers,
             SWGResourceSet spawn, List<SWGInventoryWrapper> inv) {
 
+        refresh(expWrappers, spawn, inv, 0);
+    }
+
+    /**
+     * Refreshes the experiment wrappers of the specified list, see
+     * {@link #refresh(List, SWGResourceSet, List)}. If a limit is specified
+     * each element retains just that many of the best matching resources, a
+     * client which displays just the first resources should use a limit.
+     * 
+     * @param expWrappers instances of this type
+     * @param spawn a set of resource currently in spawn
+     * @param inv a set of resources inventory resources
+     * @param limit the maximum number of resources per element, or 0 for all
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    static void refresh(List<SWGExperimentWrapper> expWrappers,
+            SWGResourceSet spawn, List<SWGInventoryWrapper> inv, int limit) {
+
+        for (SWGExperimentWrapper ew : expWrappers)
+            ew.refresh(spawn, inv, limit);
+    }
+
+    /**
+     * Refreshes the experiment wrappers of the specified list, see
+     * {@link #refresh(List, SWGResourceSet, List, int)}. The inventory
+     * resources of each element are obtained from the ranked inventory of the
+     * specified galaxy rather than scanned from a list of all inventory.
+     * 
+     * @param expWrappers instances of this type
+     * @param spawn a set of resource currently in spawn
+     * @param gxy the galaxy of the inventory
+     * @param limit the maximum number of resources per element, or 0 for all
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    static void refresh(List<SWGExperimentWrapper> expWrappers,
+            SWGResourceSet spawn, SWGCGalaxy gxy, int limit) {
+
         for (SWGExperimentWrapper ew : expWrappers)
-            ew.refresh(spawn, inv);
+            ew.refresh(spawn, gxy, limit);
     }
 
     /**
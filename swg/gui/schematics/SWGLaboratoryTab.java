@@ -58,6 +58,7 @@ import swg.SWGAide;
 import swg.crafting.SWGWeights;
 import swg.crafting.Stat;
 import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
 import swg.crafting.resources.SWGResourceSet;
 import swg.crafting.schematics.SWGSchematic;
@@ -73,7 +74,6 @@ import swg.gui.common.SWGListModel;
 import swg.gui.common.SWGResourceStatRenderer;
 import swg.gui.common.SWGDecoratedTableCellRenderer.DecoratedTableModel;
 import swg.gui.common.SWGDecoratedTableCellRenderer.TableCellDecorations;
-import swg.gui.resources.SWGInventoryWrapper;
 import swg.gui.resources.SWGResController;
 import swg.tools.SpringUtilities;
 import swg.tools.ZNumber;
@@ -246,8 +246,8 @@ final class SWGLaboratoryTab extends JPanel {
 
         if (w != null) {
             SWGResourceSet spawn = SWGSchemController.spawning();
-            List<SWGInventoryWrapper> inv = SWGSchemController.inventory();
-            SWGExperimentWrapper.refresh(w.experiments(), spawn, inv);
+            SWGExperimentWrapper.refresh(w.experiments(), spawn,
+                    SWGFrame.getSelectedGalaxy(), ResourceModel.RES_LIMIT_MAX);
             resourceModel.setElements(w.experiments());
         } else
             resourceModel.setElements(null);
@@ -1286,6 +1286,13 @@ final class SWGLaboratoryTab extends JPanel {
          */
         private final Double RC_WEIGHT = Double.valueOf(200.0);
 
+        /**
+         * The maximum value for {@link #resLimit}. Experiment wrappers are
+         * refreshed with just this many resources, hence the limit can change
+         * without a refresh.
+         */
+        static final int RES_LIMIT_MAX = 10;
+
         /**
          * The limit for the number of resources to display per experiment
          * wrapper, the wrapper excluded.
@@ -1454,7 +1461,8 @@ final class SWGLaboratoryTab extends JPanel {
             rc = ww == SWGWeights.LQ_WEIGHTS
                             ? rc
                             : ew.rc();
-            double w = ww.rate(kr, rc, ww != SWGWeights.LQ_WEIGHTS);
+            double w = SWGRateCache.rate(
+                    kr, ww, rc, ww != SWGWeights.LQ_WEIGHTS);
             return Double.valueOf(w);
         }
 
@@ -1483,7 +1491,7 @@ final class SWGLaboratoryTab extends JPanel {
         void resourceLimit(Integer limit) {
             int lt = limit.intValue();
             if (lt == this.resLimit) return;
-            this.resLimit = lt < 3 || lt > 10
+            this.resLimit = lt < 3 || lt > RES_LIMIT_MAX
                     ? 3
                     : lt;
             setElements(wraps);
@@ -15,6 +15,7 @@ import swg.crafting.UpdateNotification;
 import swg.crafting.UpdateSubscriber;
 import swg.crafting.resources.ResourceUpdate;
 import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
 import swg.crafting.resources.SWGResourceSet;
 import swg.crafting.resources.types.SWGCreatureResources;
@@ -468,7 +469,8 @@ final public class SWGSchemController implements UpdateSubscriber {
         List<SWGSchematic> tmp = new ArrayList<SWGSchematic>(rl.size() * 3);
         List<SWGSac> ret = new ArrayList<SWGSac>(rl.size());
         for (SWGRCWPair r : rl) {
-            double w = ((SWGWeights) r.filter()).rate(kr, r.rc(), true);
+            double w = SWGRateCache.rate(
+                    kr, (SWGWeights) r.filter(), r.rc(), true);
             if (w < limit) continue;
 
             for (SWGSchematic s : r.schematics())
@@ -39,6 +39,7 @@ import javax.swing.table.AbstractTableModel;
 import swg.SWGAide;
 import swg.crafting.SWGWeights;
 import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResource;
 import swg.crafting.resources.SWGResourceClass;
 import swg.crafting.resources.SWGResourceClassTree;
@@ -327,8 +328,8 @@ public final class SWGSchemResViewer extends SWGJDialog {
                             && kr.rc() instanceof SWGCreatureResources)
                         continue;
 
-                    double r = ((SWGWeights)
-                            rcw.filter()).rate(kr, rcw.rc(), true);
+                    double r = SWGRateCache.rate(kr,
+                            (SWGWeights) rcw.filter(), rcw.rc(), true);
                     if (r >= rateLimit) {
                         long inv = SWGResController.inventoryAmount(kr, gxy);
                         Long l = inv > 0
@@ -16,7 +16,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
@@ -40,6 +49,7 @@ import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EtchedBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -52,8 +62,11 @@ import swg.SWGAide;
 import swg.crafting.SWGWeights;
 import swg.crafting.Stat;
 import swg.crafting.resources.SWGKnownResource;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceColumns;
 import swg.crafting.resources.SWGResourceSet;
+import swg.crafting.resources.SWGWeightRater;
 import swg.crafting.resources.types.SWGCreatureResources;
 import swg.crafting.resources.types.SWGFloraResources;
 import swg.crafting.resources.types.SWGOrganic;
@@ -106,6 +119,12 @@ import swg.tools.ZString;
  * it should not be used for non-quality schematics.
  * <p>
  * This type provides several options to tweak what should be displayed.
+ * <p>
+ * The triplets are computed on a background thread and each RCW-pair is a task
+ * for a pool of threads, all tasks read the same snapshots of inventory and of
+ * spawning resources. The result is merged in the order of the RCW-pairs and
+ * sorted, hence it is the same as if computed serially, and it is published to
+ * the table model on the event thread.
  * 
  * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
  *         Chimaera.Zimoon
@@ -119,6 +138,19 @@ class SWGTodays extends JPanel {
     // static just to support before-GUI-finished operations
     private static JCheckBox great;
 
+    /**
+     * A pool of daemon threads which compute triplets for RCW-pairs in
+     * parallel, or {@code null} until it is first used. See
+     * {@link #pool()}.
+     */
+    private static ExecutorService pool;
+
+    /**
+     * A single daemon thread which runs the computations of triplets, or
+     * {@code null} until it is first used. See {@link #worker()}.
+     */
+    private static ExecutorService worker;
+
     /**
      * A list of assignees for the professions in SWG; compare
      * {@link #assigneeProfession()}.
@@ -166,7 +198,9 @@ class SWGTodays extends JPanel {
     /**
      * A flag which denotes if GUI events should be ignored until later. This
      * flag is {@code true} if there is a process importing guards, or if the
-     * GUI is resetting.
+     * GUI is resetting. It is not set while triplets are computed on a
+     * background thread, a refresh during that time starts a new computation
+     * which supersedes the pending one, see {@link #todaysJob}.
      */
     private boolean isWorking = false;
 
@@ -203,11 +237,24 @@ class SWGTodays extends JPanel {
      */
     private boolean skipDialog;
 
+    /**
+     * A counter for the computations of triplets which is incremented for each
+     * computation that is started. A result is published only if no later
+     * computation has started, an outdated result is discarded.
+     */
+    private volatile int todaysJob;
+
     /**
      * The model for the table of resources.
      */
     private TodaysTableModel todaysModel;
 
+    /**
+     * A triplet to select when the next computation is published, or {@code
+     * null}. This is the selection which {@link #guiUpdate()} restores.
+     */
+    private Triplet todaysSelect;
+
     /**
      * The GUI table for resources which are better than inventory.
      */
@@ -267,6 +314,13 @@ class SWGTodays extends JPanel {
      * spawning resources versus the resource inventory, and finally this method
      * updates the table model with the result which in its turn updates the
      * table. If the argument is {@code null} this method resets this GUI.
+     * <p>
+     * The input of the comparison is captured on the event thread, see
+     * {@link #todaysTS(boolean, boolean, List, List)}; the comparison is
+     * computed on a background thread and the result is published on the
+     * event thread, see {@link #todaysPublish(List, Triplet,
+     * SWGSchematicAssignee)}. If the computation fails the GUI is cleared
+     * and an error is displayed, no partial result is published.
      */
     @SuppressWarnings("synthetic-access")
     private void actionAssigneeSelected() {
@@ -277,13 +331,18 @@ class SWGTodays extends JPanel {
         selectedAssignee = o;
 
         if (selectedAssignee == null) {
+            ++todaysJob; // discard a pending computation
             guiClear();
             return;
         }
 
+        if (tri == null) tri = todaysSelect;
+        todaysSelect = null;
+
         isWorking = true;
 
-        boolean hq = hqlqCheck.isSelected();
+        final boolean hq = hqlqCheck.isSelected();
+        final boolean grt = great.isSelected();
 
         List<SWGInventoryWrapper> inv = Collections.emptyList();
         if (hq && !great.isSelected()) {
@@ -297,27 +356,42 @@ class SWGTodays extends JPanel {
                         JOptionPane.WARNING_MESSAGE);
         }
 
-        List<Triplet> ts = todaysTS(hq, great.isSelected(),
-                selectedAssignee.getFavorites(), inv);
-        todaysModel.setElements(ts);
-        // restore table selection, if possible
+        final List<SWGInventoryWrapper> invs = Collections.unmodifiableList(
+                new ArrayList<SWGInventoryWrapper>(inv)); // snapshot
+        final List<SWGSchematic> favs = selectedAssignee.getFavorites();
+        final SWGSchematicAssignee as = selectedAssignee;
+        final Triplet sel = tri;
+        final int job = ++todaysJob;
+        final Callable<List<Triplet>> task = todaysTS(hq, grt, favs, invs);
         isWorking = false;
-        if (ts.isEmpty())
-            guiClear();
-        else if (tri != null)
-            todaysTableSelect(tri);
-        else
-            todaysTable.getSelectionModel().setSelectionInterval(0, 0);
 
-        if (ts.isEmpty() && selectedAssignee.getName().equals("Pro: All")) {
-            if (!skipDialog)
-                JOptionPane.showMessageDialog(assigneeList,
-                        "No new resources outshine your inventory", "Info",
-                        JOptionPane.PLAIN_MESSAGE);
-            skipDialog = true; // once per session is enough
-        }
+        worker().execute(new Runnable() {
+            public void run() {
+                if (job != todaysJob) return; // superseded while queued
 
-        schemTab.tintTabs(false);
+                List<Triplet> ts = null;
+                try {
+                    ts = task.call();
+                } catch (Throwable e) {
+                    SWGAide.printError("SWGTodays:actionAssigneeSelected", e);
+                }
+
+                final List<Triplet> res = ts;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (job != todaysJob) return;
+
+                        if (res != null)
+                            todaysPublish(res, sel, as);
+                        else {
+                            guiClear(); // discard the failed computation
+                            schemTab.frame.putToStatbar(
+                                    "Today's: error, see the log file");
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -487,7 +561,9 @@ class SWGTodays extends JPanel {
      * Helper method which updates the GUI. This method is invoked if the user
      * change an option or if anything else requires the GUI to update itself.
      * In particular, if an assignee is selected it is re-selected to trigger a
-     * call to {@link #actionAssigneeSelected()}.
+     * call to {@link #actionAssigneeSelected()}. If triplets are computed on a
+     * background thread a new computation is started with the current data
+     * and options, the pending result is discarded.
      */
     void guiUpdate() {
         if (isWorking || THIS == null) return;
@@ -496,6 +572,7 @@ class SWGTodays extends JPanel {
         Triplet tri = todaysTableSelection();
         SWGSchematicAssignee prv = assigneeList.getSelectedValue();
         SWGSchematic sch = schematics.getSelectedValue();
+        todaysSelect = tri; // restored when the computation is published
 
         assigneeList.clearSelection();
 
@@ -1034,6 +1111,42 @@ class SWGTodays extends JPanel {
                 : ret;
     }
 
+    /**
+     * Helper method which publishes the specified list of triplets to the
+     * table model and which restores the selection, if possible. This method
+     * must be invoked on the event thread, see {@link
+     * #actionAssigneeSelected()}.
+     * 
+     * @param ts a list of triplets
+     * @param tri a triplet to select, or {@code null}
+     * @param as the assignee which the list is computed for
+     */
+    @SuppressWarnings("synthetic-access")
+    private void todaysPublish(List<Triplet> ts, Triplet tri,
+            SWGSchematicAssignee as) {
+
+        isWorking = true;
+        todaysModel.setElements(ts);
+        // restore table selection, if possible
+        isWorking = false;
+        if (ts.isEmpty())
+            guiClear();
+        else if (tri != null)
+            todaysTableSelect(tri);
+        else
+            todaysTable.getSelectionModel().setSelectionInterval(0, 0);
+
+        if (ts.isEmpty() && as.getName().equals("Pro: All")) {
+            if (!skipDialog)
+                JOptionPane.showMessageDialog(assigneeList,
+                        "No new resources outshine your inventory", "Info",
+                        JOptionPane.PLAIN_MESSAGE);
+            skipDialog = true; // once per session is enough
+        }
+
+        schemTab.tintTabs(false);
+    }
+
     /**
      * Helper method which selects the specified triplet at the table. If the
      * argument is {@code null}, or if the argument is not visible, this method
@@ -1240,6 +1353,22 @@ class SWGTodays extends JPanel {
         return ret;
     }
 
+    /**
+     * Helper method which returns the pool of threads which compute triplets
+     * for RCW-pairs. The pool is created lazily and it has one daemon thread
+     * per available processor.
+     * 
+     * @return a pool of threads
+     */
+    private static synchronized ExecutorService pool() {
+        if (pool == null)
+            pool = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    threads("SWGTodays-"));
+
+        return pool;
+    }
+
     /**
      * Helper method which returns a list of {@link Triplet} elements that
      * outshines inventory. This method iterates over the specified list of
@@ -1249,61 +1378,142 @@ class SWGTodays extends JPanel {
      * {@link Triplet#Triplet(SWGRCWPair, SWGKnownResource, SWGInventoryWrapper)}
      * <p>
      * This method does not support {@link SWGRCWPair#LQ_FILTER} but just
-     * weighed filters.
+     * weighed filters. The current resources are scanned for each RCW-pair,
+     * hence this method scans a columnar snapshot of them, see
+     * {@link SWGResourceColumns}.
+     * <p>
+     * Each RCW-pair is a task for {@link #pool()}, all tasks read the same
+     * snapshots which are not modified. The ranked inventory for all pairs is
+     * obtained once before the tasks are submitted, see
+     * {@link SWGResController#inventoryRanked(List, List, SWGCGalaxy)}, hence
+     * the tasks do not contend for the lock of the inventory. The results are
+     * merged in the order of the specified list, hence the returned list is
+     * the same as if the pairs are computed serially. If a task fails the
+     * exception is thrown and no partial list is returned.
      * 
      * @param rcwps a list of {@link SWGRCWPair}
      * @param current a set of current resources
      * @param inv all resource inventory
+     * @param grt {@code true} if check-box Show Great is selected
+     * @param gxy the galaxy of the inventory
+     * @param notKM {@code true} to ignore inorganic KM resources
+     * @param notCR {@code true} if Creature Resources are not Organic
      * @return a list of resource triplets that are better than inventory
      * @throws ClassCastException if an element is not for weighed filter
+     * @throws ExecutionException if a task fails
+     * @throws InterruptedException if the thread is interrupted
      */
     private static List<Triplet> todaysHQ(List<SWGRCWPair> rcwps,
-            SWGResourceSet current, List<SWGInventoryWrapper> inv) {
+            SWGResourceSet current, List<SWGInventoryWrapper> inv,
+            boolean grt, SWGCGalaxy gxy, boolean notKM, final boolean notCR)
+            throws ExecutionException, InterruptedException {
 
         // local set of KM-free resources, only if inorganic-KM creature
         // resources is asked for all of current is used
-        boolean notKM = ((Boolean) SWGFrame.getPrefsKeeper().get(
-                "schemTodaysIgnoreKM", Boolean.TRUE)).booleanValue();
-        SWGResourceSet noKMinorganic = current.subsetBy(
-                SWGResController.kmResourceComparator());
-
-        List<Triplet> ret = new ArrayList<Triplet>(48);
+        final SWGResourceColumns cols = new SWGResourceColumns(current);
+        final boolean[] noKMinorganic = notKM
+                ? SWGResController.kmResourceRows(cols)
+                : null;
 
-        double minimum = 1000.0 * (great != null && great.isSelected()
+        final double minimum = 1000.0 * (grt
                 ? SWGGuiUtils.statLimits[2]
                 : SWGGuiUtils.statLimits[0]);
 
-        boolean notCR = ((Boolean) SWGFrame.getPrefsKeeper().get(
-                "schemTodaysOrganicDisCR", Boolean.FALSE)).booleanValue();
+        // the inventory that is considered and the positions of the
+        // wrappers, they are looked up in the ranked inventory of the
+        // controller
+        final Map<SWGInventoryWrapper, Integer> invs =
+                new IdentityHashMap<SWGInventoryWrapper, Integer>();
+        for (int i = inv.size() - 1; i >= 0; --i)
+            invs.put(inv.get(i), Integer.valueOf(i)); // first if duplicate
+
+        // one snapshot of the ranked inventory per run, not one per task
+        List<SWGResourceClass> rcs =
+                new ArrayList<SWGResourceClass>(rcwps.size());
+        List<SWGWeights> ws = new ArrayList<SWGWeights>(rcwps.size());
+        if (!invs.isEmpty())
+            for (SWGRCWPair rcw : rcwps) {
+                rcs.add(rcw.rc());
+                ws.add((SWGWeights) rcw.filter());
+            }
+        List<List<SWGInventoryWrapper>> ranked =
+                SWGResController.inventoryRanked(rcs, ws, gxy);
+
+        List<Callable<List<Triplet>>> tasks =
+                new ArrayList<Callable<List<Triplet>>>(rcwps.size());
+        for (int i = 0; i < rcwps.size(); ++i) {
+            final SWGRCWPair rcw = rcwps.get(i);
+            final List<SWGInventoryWrapper> rl = ranked.isEmpty()
+                    ? Collections.<SWGInventoryWrapper> emptyList()
+                    : ranked.get(i);
+            tasks.add(new Callable<List<Triplet>>() {
+                public List<Triplet> call() {
+                    return todaysHQ(rcw, rl, cols, noKMinorganic, invs,
+                            minimum, notCR);
+                }
+            });
+        }
 
-        for (SWGRCWPair rcw : rcwps) {
-            SWGInventoryWrapper iw = todaysInventory(rcw, inv, !notCR);
+        List<Triplet> ret = new ArrayList<Triplet>(48);
+        for (Future<List<Triplet>> f : pool().invokeAll(tasks))
+            ret.addAll(f.get());
 
-            SWGWeights wg = ((SWGWeights) rcw.filter());
-            SWGResourceClass rc = rcw.rc();
+        return ret;
+    }
 
-            double w = Math.max(minimum, iw != null
-                    ? wg.rate(iw.getResource(), rc, true)
-                    : 0);
-
-            rc = notCR && rc == SWGOrganic.getInstance()
-                    ? SWGFloraResources.getInstance()
-                    : rc;
-
-            SWGResourceSet curr = notKM
-                    && !(SWGResourceClass.canSpawnAt(rc.rcName(),
-                                 SWGPlanet.KASHYYYK)
-                         || SWGResourceClass.canSpawnAt(rc.rcName(),
-                                 SWGPlanet.MUSTAFAR))
-                    ? noKMinorganic.subsetBy(wg, rc, true, w)
-                    : current.subsetBy(wg, rc, true, w);
-            for (SWGKnownResource kr : curr)
-                if (iw == null || kr != iw.getResource()) {
-                    // do not include "self" ... probably harvested
-                    Triplet t = new Triplet(rcw, kr, iw);
-                    ret.add(t);
-                }
-        }
+    /**
+     * Helper method which returns a list of {@link Triplet} elements for the
+     * specified RCW-pair, see {@link #todaysHQ(List, SWGResourceSet, List,
+     * boolean, SWGCGalaxy, boolean, boolean)}. This method just reads its
+     * arguments and it is invoked concurrently for several RCW-pairs.
+     * 
+     * @param rcw a weighed RCW-pair
+     * @param ranked a snapshot of the ranked inventory for the pair
+     * @param cols a snapshot of current resources
+     * @param noKMinorganic a mask of the rows that are not inorganic KM
+     *        resources, or {@code null} if KM resources are not ignored
+     * @param inv the resource inventory to consider, mapped to the positions
+     *        of the wrappers in the inventory
+     * @param minimum the minimum rate for a resource
+     * @param notCR {@code true} if Creature Resources are not Organic
+     * @return a list of resource triplets that are better than inventory
+     * @throws ClassCastException if the pair is not for weighed filter
+     */
+    private static List<Triplet> todaysHQ(SWGRCWPair rcw,
+            List<SWGInventoryWrapper> ranked, SWGResourceColumns cols,
+            boolean[] noKMinorganic, Map<SWGInventoryWrapper, Integer> inv,
+            double minimum, boolean notCR) {
+
+        SWGInventoryWrapper iw = todaysInventory(rcw, ranked, inv, !notCR);
+
+        SWGWeights wg = ((SWGWeights) rcw.filter());
+        SWGResourceClass rc = rcw.rc();
+
+        double w = Math.max(minimum, iw != null
+                ? wg.rate(iw.getResource(), rc, true)
+                : 0);
+
+        rc = notCR && rc == SWGOrganic.getInstance()
+                ? SWGFloraResources.getInstance()
+                : rc;
+
+        boolean[] rows = cols.rows(rc);
+        if (noKMinorganic != null
+                && !(SWGResourceClass.canSpawnAt(rc.rcName(),
+                             SWGPlanet.KASHYYYK)
+                     || SWGResourceClass.canSpawnAt(rc.rcName(),
+                             SWGPlanet.MUSTAFAR)))
+            for (int r = 0; r < rows.length; ++r)
+                rows[r] &= noKMinorganic[r];
+
+        cols.retain(rows, new SWGWeightRater(wg, rc, true), w);
+        List<Triplet> ret = new ArrayList<Triplet>();
+        for (SWGKnownResource kr : cols.subset(rows))
+            if (iw == null || kr != iw.getResource()) {
+                // do not include "self" ... probably harvested
+                Triplet t = new Triplet(rcw, kr, iw);
+                ret.add(t);
+            }
 
         return ret;
     }
@@ -1315,15 +1525,26 @@ class SWGTodays extends JPanel {
      * {@link SWGRCWPair} equals SWGOrganic: if the parameter is {@code true}
      * this method matches also inventory wrappers that are for Creature
      * Resources. If there are several matching wrappers the best of them is
-     * returned. If no wrapper is found this method returns {@code null} .
+     * returned, and of equally good wrappers the first in inventory. If no
+     * wrapper is found this method returns {@code null} .
+     * <p>
+     * This method does not rate the inventory but it reads the specified
+     * snapshot of the ranked inventory of the galaxy, see
+     * {@link SWGResController#inventoryRanked(List, List, SWGCGalaxy)}, the
+     * first wrappers which are contained in the specified map are the best.
      * 
      * @param rcwp the "filter"
-     * @param inv a list of inventory resources
+     * @param ranked the ranked inventory for the "filter"
+     * @param inv the inventory wrappers to consider, mapped to their
+     *        positions in the inventory
      * @param cr {@code true} to match Creature Resources for Organic
      * @return the best match, or {@code null}
      */
-    private static SWGInventoryWrapper todaysInventory(
-            SWGRCWPair rcwp, List<SWGInventoryWrapper> inv, boolean cr) {
+    private static SWGInventoryWrapper todaysInventory(SWGRCWPair rcwp,
+            List<SWGInventoryWrapper> ranked,
+            Map<SWGInventoryWrapper, Integer> inv, boolean cr) {
+
+        if (inv.isEmpty()) return null;
 
         SWGWeights wg = ((SWGWeights) rcwp.filter());
         SWGResourceClass zuper = rcwp.rc();
@@ -1331,22 +1552,30 @@ class SWGTodays extends JPanel {
                 ? cr
                 : true;
 
-        double best = 0.0;
-        SWGInventoryWrapper wrapper = null;
-        for (SWGInventoryWrapper iw : inv) {
+        SWGInventoryWrapper ret = null;
+        double best = 0;
+        int pos = 0;
+        for (SWGInventoryWrapper iw : ranked) {
             SWGKnownResource kr = iw.getResource();
-            if (kr.rc().isSub(zuper)) {
-                if (in || !kr.rc().isSub(SWGCreatureResources.class)) {
-                    double w = wg.rate(iw.getResource(), zuper, true);
-                    if (w > best) {
-                        best = w;
-                        wrapper = iw;
-                    }
-                }
+            Integer p = inv.get(iw);
+            if (p == null
+                    || !(in || !kr.rc().isSub(SWGCreatureResources.class)))
+                continue;
+
+            double r = SWGRateCache.rate(kr, wg, zuper, true);
+            if (ret == null) {
+                if (r <= 0) return null; // sorted, hence no better is found
+                ret = iw;
+                best = r;
+                pos = p.intValue();
+            } else if (r < best)
+                break; // sorted, all equally good are seen
+            else if (p.intValue() < pos) {
+                ret = iw;
+                pos = p.intValue();
             }
         }
-
-        return wrapper;
+        return ret;
     }
 
     /**
@@ -1361,16 +1590,17 @@ class SWGTodays extends JPanel {
      * 
      * @param rcwps a list of {@link SWGRCWPair}
      * @param curr a set of current resources
+     * @param gxy the galaxy of the inventory
      * @return a list of resource triplets
      */
     private static List<Triplet> todaysLQ(
-            List<SWGRCWPair> rcwps, SWGResourceSet curr) {
+            List<SWGRCWPair> rcwps, SWGResourceSet curr, SWGCGalaxy gxy) {
 
         List<Triplet> ret = new ArrayList<Triplet>(48);
 
         for (SWGRCWPair r : rcwps) {
-            if (SWGResController.inventoryExists(
-                    r.rc(), SWGFrame.getSelectedGalaxy(), false)) continue;
+            if (SWGResController.inventoryExists(r.rc(), gxy, false))
+                continue;
 
             SWGResourceSet cur = curr.subsetBy(r.rc());
             if (cur.isEmpty()) continue;
@@ -1392,52 +1622,110 @@ class SWGTodays extends JPanel {
      * @return {@code true} if some resources outshine inventory
      */
     static boolean todaysTinted() {
-        return great == null
-                ? !todaysTS(true, false, assigneeSelect(),
-                        SWGSchemController.inventory()).isEmpty()
-                : THIS.todaysModel.getRowCount() > 0;
+        if (great != null)
+            return THIS.todaysModel.getRowCount() > 0;
+
+        try {
+            return !todaysTS(true, false, assigneeSelect(),
+                    SWGSchemController.inventory()).call().isEmpty();
+        } catch (Exception e) {
+            SWGAide.printError("SWGTodays:todaysTinted", e);
+            return false;
+        }
     }
 
     /**
-     * Helper method which returns a list of {@link Triplet} elements for
-     * spawning resources that outshine anything in inventory for the current
-     * galaxy. This method obtains a list of RCW-pairs for the specified
-     * schematics, a set of current resources
+     * Helper method which returns a task which computes a list of
+     * {@link Triplet} elements for spawning resources that outshine anything
+     * in inventory for the current galaxy. This method obtains a list of
+     * RCW-pairs for the specified schematics, the current galaxy, a filtered
+     * inventory, a set of current resources, and the options; the returned
+     * task just reads what is obtained. Hence this method is invoked on the
+     * event thread and the task may be invoked on another thread.
      * 
      * @param hq {@code true} to filter for HQ schematics
      * @param grt {@code true} if check-box Show Great is selected
      * @param schems a list of schematics for the RCW-pairs
      * @param inv an inventory list, may be empty
-     * @return a list of Triplet elements
+     * @return a task which returns a list of Triplet elements
      */
-    private static List<Triplet> todaysTS(boolean hq, boolean grt,
-            List<SWGSchematic> schems, List<SWGInventoryWrapper> inv) {
+    private static Callable<List<Triplet>> todaysTS(final boolean hq,
+            final boolean grt, List<SWGSchematic> schems,
+            List<SWGInventoryWrapper> inv) {
 
-        List<SWGRCWPair> rcwps = SWGSchemController.rcwPairs(hq, schems);
+        final List<SWGRCWPair> rcwps = SWGSchemController.rcwPairs(hq, schems);
+        final SWGCGalaxy gxy = SWGFrame.getSelectedGalaxy();
 
         List<SWGInventoryWrapper> inv2 = inv;
         if (hq && !grt) {
             int amount = ((Integer) SWGFrame.getPrefsKeeper().get(
                     "schemTodaysMinInventory",
                     Integer.valueOf(50000))).intValue();
-            inv2 = inventory(inv2, amount, SWGFrame.getSelectedGalaxy());
+            inv2 = inventory(inv2, amount, gxy);
         }
+        final List<SWGInventoryWrapper> invs = inv2;
 
         int days = ((Integer) SWGFrame.getPrefsKeeper().get(
                 "schemTodaysAlertMaxAge", Integer.valueOf(3))).intValue();
-        SWGResourceSet current = current(days);
+        final SWGResourceSet current = current(days);
 
-        List<Triplet> ts = hq
-                ? todaysHQ(rcwps, current, inv2)
-                : todaysLQ(rcwps, current);
+        final boolean notKM = ((Boolean) SWGFrame.getPrefsKeeper().get(
+                "schemTodaysIgnoreKM", Boolean.TRUE)).booleanValue();
+        final boolean notCR = ((Boolean) SWGFrame.getPrefsKeeper().get(
+                "schemTodaysOrganicDisCR", Boolean.FALSE)).booleanValue();
 
-        Collections.sort(ts, new Comparator<Triplet>() {
-            @Override
-            public int compare(Triplet o1, Triplet o2) {
-                return (int) (o1.current.age() - o2.current.age());
+        return new Callable<List<Triplet>>() {
+            public List<Triplet> call() throws Exception {
+                List<Triplet> ts = hq
+                        ? todaysHQ(rcwps, current, invs, grt, gxy, notKM,
+                                notCR)
+                        : todaysLQ(rcwps, current, gxy);
+
+                Collections.sort(ts, new Comparator<Triplet>() {
+                    @Override
+                    public int compare(Triplet o1, Triplet o2) {
+                        return (int) (o1.current.age() - o2.current.age());
+                    }
+                });
+                return ts;
             }
-        });
-        return ts;
+        };
+    }
+
+    /**
+     * Helper method which returns a factory of daemon threads which are named
+     * by the specified prefix and a number.
+     * 
+     * @param prefix a prefix for the names of the threads
+     * @return a thread factory
+     */
+    private static ThreadFactory threads(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Helper method which returns the thread which computes triplets, see
+     * {@link #actionAssigneeSelected()}. The thread is created lazily and it
+     * is reused for all computations, which run in the order they are
+     * started; a computation which is superseded while it is queued is
+     * skipped. The computation itself fans out to {@link #pool()}.
+     * 
+     * @return a single thread executor
+     */
+    private static synchronized ExecutorService worker() {
+        if (worker == null)
+            worker = Executors.newSingleThreadExecutor(
+                    threads("SWGTodays-worker-"));
+
+        return worker;
     }
 
     /**
@@ -1672,12 +1960,12 @@ class SWGTodays extends JPanel {
             this.rcwPair = rcwp;
 
             rateCurr = (rcwp.filter() instanceof SWGWeights)
-                    ? ((SWGWeights) rcwPair.filter()).rate(
-                            current, rcwPair.rc(), true)
+                    ? SWGRateCache.rate(current,
+                            (SWGWeights) rcwPair.filter(), rcwPair.rc(), true)
                     : 0.0;
             rateInv = (inv != null && rcwp.filter() instanceof SWGWeights)
-                    ? ((SWGWeights) rcwPair.filter()).rate(
-                            inv.getResource(), rcwPair.rc(), true)
+                    ? SWGRateCache.rate(inv.getResource(),
+                            (SWGWeights) rcwPair.filter(), rcwPair.rc(), true)
                     : 0.0;
         }
 
@@ -160,6 +160,7 @@ public final class SWGAliases implements
      */
     public void setDescription(String longDescription) {
         description = longDescription;
+        universe.touch();
     }
 
     /**
@@ -173,6 +174,7 @@ public final class SWGAliases implements
         desc = shortDescription != null && shortDescription.length() > 20
                 ? shortDescription.substring(0, 20)
                 : shortDescription;
+        universe.touch();
     }
 
     @Override
@@ -304,6 +306,7 @@ public final class SWGAliases implements
 
                 boolean b = super.add(aliases);
                 Collections.sort(this);
+                aliases.universe().touch();
                 return b;
             }
         }
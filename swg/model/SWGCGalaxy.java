@@ -175,6 +175,21 @@ public class SWGCGalaxy implements Serializable {
         return active;
     }
 
+    /**
+     * Returns the galaxy constant for the ID of this deserialized instance, so
+     * that there is just one instance per galaxy also if several object
+     * streams are deserialized. If the ID is unknown this instance is returned.
+     * 
+     * @return a galaxy constant
+     */
+    private Object readResolve() {
+        try {
+            return fromID(id);
+        } catch (IndexOutOfBoundsException e) {
+            return this; // unknown or not yet initialized
+        }
+    }
+
     @Override
     public String toString() {
         return getName();
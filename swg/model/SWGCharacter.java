@@ -190,10 +190,12 @@ public final class SWGCharacter implements
      * @param delim a delimiter between old and new
      */
     public void notesAppend(String note, char delim) {
-        if (note != null)
+        if (note != null) {
             noteField = noteField == null || noteField.isEmpty()
                     ? noteField = note
                     : noteField + delim + note;
+            homeGalaxy.station().universe().touch();
+        }
     }
 
     /**
@@ -206,6 +208,7 @@ public final class SWGCharacter implements
         noteField = note == null || note.trim().isEmpty()
                 ? null
                 : note;
+        homeGalaxy.station().universe().touch();
     }
 
     @Override
@@ -87,8 +87,10 @@ public final class SWGGalaxy implements
      */
     public boolean characterAdd(SWGCharacter character) {
         synchronized (characters) {
-            if (isLikely(character) && !characters.contains(character))
+            if (isLikely(character) && !characters.contains(character)) {
+                station.universe().touch();
                 return characters.add(character);
+            }
 
             return false;
         }
@@ -124,7 +126,10 @@ public final class SWGGalaxy implements
      */
     boolean characterRemove(SWGCharacter character) {
         synchronized (characters) {
-            return characters.remove(character);
+            if (!characters.remove(character)) return false;
+
+            station.universe().touch();
+            return true;
         }
     }
 
@@ -174,8 +174,10 @@ public final class SWGStation implements
      */
     public void galaxyAdd(SWGGalaxy galaxy) {
         synchronized (galaxies) {
-            if (galaxy != null && !galaxies.containsKey(galaxy.getName()))
+            if (galaxy != null && !galaxies.containsKey(galaxy.getName())) {
                 galaxies.put(galaxy.getName(), galaxy);
+                universe.touch();
+            }
         }
     }
 
@@ -204,9 +206,10 @@ public final class SWGStation implements
      */
     public SWGGalaxy galaxyRemove(SWGGalaxy galaxy) {
         synchronized (galaxies) {
-            return (galaxy.equals(galaxies.get(galaxy.getName())))
-                    ? galaxies.remove(galaxy.getName())
-                    : null;
+            if (!galaxy.equals(galaxies.get(galaxy.getName()))) return null;
+
+            universe.touch();
+            return galaxies.remove(galaxy.getName());
         }
     }
 
@@ -291,9 +294,10 @@ public final class SWGStation implements
      */
     public boolean notesAdd(SWGNotes notes) {
         synchronized (notesList) {
-            return notesList.contains(notes)
-                    ? false
-                    : notesList.add(notes);
+            if (notesList.contains(notes)) return false;
+
+            universe.touch();
+            return notesList.add(notes);
         }
     }
 
@@ -318,7 +322,7 @@ public final class SWGStation implements
     void notesRemove(SWGNotes notes) {
         if (notes == null) return;
         synchronized (notesList) {
-            notesList.remove(notes);
+            if (notesList.remove(notes)) universe.touch();
         }
     }
 
@@ -462,6 +466,7 @@ public final class SWGStation implements
                 s.notesList.add(n);
 
             Collections.sort(s.notesList);
+            if (!newNotes.isEmpty()) s.universe.touch();
         }
     }
 
@@ -7,10 +7,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import swg.gui.SWGFrame;
 import swg.gui.common.SWGGui;
 import swg.model.SWGAliases.SWGAliasesList;
 import swg.model.images.SWGImageAlbum;
 import swg.tools.SearchFiles;
+import swg.tools.SimplePrefsKeeper;
 
 /**
  * This type represents the topmost element of a SWG universe, either SWG or TC.
@@ -217,6 +219,7 @@ public final class SWGUniverse implements Serializable, SWGGui {
             if (stations.containsKey(station.getName())) return false;
 
             stations.put(station.getName(), station);
+            touch();
             return true;
         }
     }
@@ -255,7 +258,9 @@ public final class SWGUniverse implements Serializable, SWGGui {
      */
     public SWGStation stationRemove(String stationName) {
         synchronized (stations) {
-            return stations.remove(stationName);
+            SWGStation s = stations.remove(stationName);
+            if (s != null) touch();
+            return s;
         }
     }
 
@@ -324,6 +329,7 @@ public final class SWGUniverse implements Serializable, SWGGui {
                 throw new IllegalArgumentException(err + ": " + dir);
 
             clientDir = dir;
+            touch();
         }
     }
 
@@ -332,6 +338,20 @@ public final class SWGUniverse implements Serializable, SWGGui {
         return String.format("SWGUniverse: [%s]", swgPath().getAbsolutePath());
     }
 
+    /**
+     * Marks this universe as modified in SWGAide's DAT file, see
+     * {@link SimplePrefsKeeper#touch(String)}. A universe is written when it is
+     * touched, hence this method is invoked by each method which modifies
+     * this universe or an object which it contains, such as a station, a
+     * character, or a mail.
+     */
+    public void touch() {
+        SimplePrefsKeeper pk = SWGFrame.getPrefsKeeper();
+        if (pk != null) pk.touch(name.equals("TC")
+                ? "swgTestCenter"
+                : "swgUniverse");
+    }
+
     /**
      * Returns a file path for a SWG client folder, or {@code null}. This method
      * invokes {@link SearchFiles#searchForDir(String, File)} with the arguments
@@ -7,6 +7,7 @@ import java.util.regex.Pattern;
 import swg.SWGAide;
 import swg.model.SWGCharacter;
 import swg.tools.ZString;
+import swg.tools.ZStringPool;
 
 /**
  * This type contains the data of an auction mail. These mails have a sender
@@ -104,10 +105,10 @@ public final class SWGAuctionerData implements Serializable {
 
         this.type = type;
         this.credits = cr;
-        this.item = strIntern(item.trim());
-        this.location = strIntern(location);
-        this.otherCharacter = strIntern(oc);
-        this.vendorName = strIntern(vn);
+        this.item = ZStringPool.pooled(item.trim());
+        this.location = ZStringPool.pooled(location);
+        this.otherCharacter = ZStringPool.pooled(oc);
+        this.vendorName = ZStringPool.pooled(vn);
 
         date = mail.date();
         mailID = mail.id();
@@ -191,16 +192,17 @@ public final class SWGAuctionerData implements Serializable {
 
     /**
      * Resolves this instance at deserialization and possibly updates member
-     * fields. In particular this method interns all strings, chiefly to reduce
-     * the size of the DAT file at serialization.
+     * fields. In particular this method pools all strings, see
+     * {@link ZStringPool}, chiefly to reduce the size of the DAT file at
+     * serialization.
      * 
      * @return this
      */
     private Object readResolve() {
-        this.item = this.item.intern();
-        this.location = strIntern(this.location);
-        this.otherCharacter = strIntern(this.otherCharacter);
-        this.vendorName = strIntern(this.vendorName);
+        this.item = ZStringPool.pooled(this.item);
+        this.location = ZStringPool.pooled(this.location);
+        this.otherCharacter = ZStringPool.pooled(this.otherCharacter);
+        this.vendorName = ZStringPool.pooled(this.vendorName);
 
         return this;
     }
@@ -313,19 +315,6 @@ public final class SWGAuctionerData implements Serializable {
         return null;
     }
 
-    /**
-     * Returns an interned string for the specified argument, or {@code null}.
-     * If the argument is {@code null} this method returns {@code null}.
-     * 
-     * @param s a string, or {@code null}
-     * @return an interned string, or {@code null}
-     */
-    private static String strIntern(String s) {
-        return s != null
-                ? s.intern()
-                : null;
-    }
-
     /**
      * This enum type denotes the kind of auction message.
      * 
@@ -481,6 +481,7 @@ public final class SWGMailBox implements Serializable {
 
                 fl.add(f);
                 Collections.sort(fl);
+                touch();
 
                 return f;
             }
@@ -501,6 +502,7 @@ public final class SWGMailBox implements Serializable {
                     if (fld.isDefault() || !fld.isEmpty()) return;
 
                     folders().remove(fld);
+                    touch();
                     break;
                 }
             }
@@ -633,6 +635,15 @@ public final class SWGMailBox implements Serializable {
         return String.format("%s's SWGMailBox", owner);
     }
 
+    /**
+     * Helper method which marks the universe of this mailbox as modified, see
+     * {@link swg.model.SWGUniverse#touch()}. This method is invoked by each
+     * method which modifies this mailbox, its folders, or its mails.
+     */
+    void touch() {
+        owner.galaxy().station().universe().touch();
+    }
+
     /**
      * Updates mails and folders of this mail-box to a current version. If the
      * mail-folders of this box are already up-to-date this method does nothing.
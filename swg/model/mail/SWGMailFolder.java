@@ -101,7 +101,10 @@ public final class SWGMailFolder
      * @param mail a mail
      */
     public void add(SWGMailMessage mail) {
-        if (mail != null && !mailList.contains(mail)) mailList.add(mail);
+        if (mail != null && !mailList.contains(mail)) {
+            mailList.add(mail);
+            owner.touch();
+        }
     }
 
     /**
@@ -112,6 +115,7 @@ public final class SWGMailFolder
      */
     void addInternal(SWGMailMessage m) {
         mailList.add(m);
+        owner.touch();
     }
 
     /**
@@ -156,6 +160,7 @@ public final class SWGMailFolder
                     "Error archiving trade mails", "Error",
                     JOptionPane.ERROR_MESSAGE);
         }
+        owner.touch();
     }
 
     /**
@@ -215,6 +220,7 @@ public final class SWGMailFolder
      */
     void clear() {
         mailList.clear();
+        owner.touch();
     }
 
     public int compareTo(SWGMailFolder other) {
@@ -341,7 +347,10 @@ public final class SWGMailFolder
      * @param index an index
      */
     public void remove(int index) {
-        if (index >= 0 && index < mailList.size()) mailList.remove(index);
+        if (index >= 0 && index < mailList.size()) {
+            mailList.remove(index);
+            owner.touch();
+        }
     }
 
     /**
@@ -353,7 +362,7 @@ public final class SWGMailFolder
      * @param mail a mail to remove
      */
     public void remove(SWGMailMessage mail) {
-        mailList.remove(mail);
+        if (mailList.remove(mail)) owner.touch();
     }
 
     /**
@@ -363,7 +372,10 @@ public final class SWGMailFolder
      * @param newName a new name
      */
     public void setName(String newName) {
-        if (!isDefault) name = newName;
+        if (!isDefault) {
+            name = newName;
+            owner.touch();
+        }
     }
 
     /**
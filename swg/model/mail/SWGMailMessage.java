@@ -17,6 +17,7 @@ import swg.swgcraft.SWGResourceManager;
 import swg.tools.SearchFiles;
 import swg.tools.ZReader;
 import swg.tools.ZString;
+import swg.tools.ZStringPool;
 import swg.tools.ZWriter;
 
 /**
@@ -490,13 +491,13 @@ public final class SWGMailMessage
 
     /**
      * Resolves this instance at deserialization and possibly updates member
-     * fields.
+     * fields. The sender and the subject are pooled, see {@link ZStringPool}.
      * 
      * @return this
      */
     private Object readResolve() {
-        this.messageFrom = this.messageFrom.intern();
-        this.messageSubject = this.messageSubject.intern();
+        this.messageFrom = ZStringPool.pooled(this.messageFrom);
+        this.messageSubject = ZStringPool.pooled(this.messageSubject);
 
         if (file != null && !file.getName().endsWith("mail")) {
             File f = new File(file.getParentFile(), getName());
@@ -553,6 +554,7 @@ public final class SWGMailMessage
      */
     void type(Type t) {
         this.type = t;
+        owner.mailBox().touch();
     }
 
     /**
@@ -1,9 +1,12 @@
 package swg.swgcraft;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -142,7 +145,8 @@ public final class SWGCraft {
      * This implementation optionally unzips the content; SWGCraft.org is using
      * the GZIP format for file compression. If the download is successful
      * {@code true} is returned, otherwise the error is handled and {@code
-     * false} is returned or an exception is thrown.
+     * false} is returned or an exception is thrown. See
+     * {@link #downloadURLTee(URL, File, boolean)}.
      * 
      * @param source the URL to download from
      * @param target the file to store data at
@@ -155,27 +159,65 @@ public final class SWGCraft {
     static boolean downloadURLToDisk(URL source, File target, boolean isZipped)
             throws ConnectException, IOException {
 
+        InputStream from = downloadURLTee(source, target, isZipped);
+        if (from == null) return false;
+
+        try {
+            byte[] buffer = new byte[8192];
+            while (from.read(buffer) >= 0) {
+                // the tee writes to the target file
+            }
+            return true;
+        } catch (IOException e) {
+            SWGAide.printDebug("crft", 1,
+                    "SWGCraft:downloadURLToDisk:I/O:",
+                    e.getClass().toString(), ":", e.getMessage());
+            throw e;
+        } finally {
+            from.close();
+        }
+    }
+
+    /**
+     * Opens the identified URL and returns a stream which copies the content
+     * to the identified file while it is read. This implementation optionally
+     * unzips the content; SWGCraft.org is using the GZIP format for file
+     * compression. If there is an error that is handled {@code null} is
+     * returned, otherwise an exception is thrown.
+     * <p>
+     * This method allows for a client to parse the content while it is
+     * downloaded and without reading it back from the file. The content is
+     * written to a temporary file next to the target file. When the returned
+     * stream is closed the content that is not yet read is copied and, if all
+     * of the content is read without error, the temporary file replaces the
+     * target file. Otherwise the target file is left as it was. Hence the
+     * client must always close the returned stream.
+     * 
+     * @param source the URL to download from
+     * @param target the file to store data at
+     * @param isZipped <code>true</code> if the content is compressed
+     * @return a stream of the content, or {@code null}
+     * @throws ConnectException if there is a connection error
+     * @throws IOException if there is an I/O error
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    static InputStream downloadURLTee(URL source, File target, boolean isZipped)
+            throws ConnectException, IOException {
+
         InputStream from = null;
-        FileOutputStream to = null;
 
         try {
             URLConnection uc = source.openConnection();
             from = uc.getInputStream();
 
             if (isZipped)
-                from = new GZIPInputStream(from);
-
-            to = new FileOutputStream(target);
+                from = new GZIPInputStream(from, 8192);
 
-            byte[] buffer = new byte[4096];
-            int len;
-            while ((len = from.read(buffer)) >= 0) {
-                to.write(buffer, 0, len);
-            }
-            return true;
+            return new TeeInputStream(from, target);
         } catch (ConnectException e) {
             SWGAide.printDebug("crft", 1,
                     "SWGCraft: connection error: ", e.getMessage());
+            close(from);
             throw e;
         } catch (UnknownHostException e) {
             showUnknownHostDialog(source, e);
@@ -186,23 +228,29 @@ public final class SWGCraft {
                         e.getClass().toString(), ":", e.getMessage());
             } else {
                 SWGAide.printDebug("crft", 1,
-                        "SWGCraft:downloadURLToDisk:I/O:",
+                        "SWGCraft:downloadURLTee:I/O:",
                         e.getClass().toString(), ":", e.getMessage());
             }
+            close(from);
             throw e;
         } catch (Exception e) {
-            SWGAide.printError("SWGCraft:downloadURLToDisk", e);
-        } finally {
-            try {
-                from.close();
-            } catch (Exception e) { /* ignore exception */
-            }
-            try {
-                to.close();
-            } catch (Exception e) { /* ignore exception */
-            }
+            SWGAide.printError("SWGCraft:downloadURLTee", e);
+        }
+        close(from);
+        return null;
+    }
+
+    /**
+     * Helper method which closes the specified stream, if it is not {@code
+     * null}. Any exception is ignored.
+     * 
+     * @param s a stream, or {@code null}
+     */
+    private static void close(InputStream s) {
+        try {
+            if (s != null) s.close();
+        } catch (Exception e) { /* ignore exception */
         }
-        return false;
     }
 
     /**
@@ -451,4 +499,164 @@ public final class SWGCraft {
         SWGAide.printDebug("crft", 1, "SWGCraft connection:",
                 e.getClass().toString(), ":", e.getMessage());
     }
+
+    /**
+     * A helper type which copies the content of the underlying stream to a
+     * file while it is read, see {@link SWGCraft#downloadURLTee(URL, File,
+     * boolean)}. The content is written to a temporary file through a buffer
+     * and the file is moved to its target when this stream is closed, if all
+     * content is read without error.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+
+        /**
+         * A flag which denotes if this stream is closed.
+         */
+        private boolean closed;
+
+        /**
+         * A flag which denotes if the end of the underlying stream is read.
+         */
+        private boolean eof;
+
+        /**
+         * A flag which denotes if there is an I/O error.
+         */
+        private boolean failed;
+
+        /**
+         * The buffered stream to the temporary file.
+         */
+        private final OutputStream out;
+
+        /**
+         * The target file.
+         */
+        private final File target;
+
+        /**
+         * The temporary file.
+         */
+        private final File tmp;
+
+        /**
+         * Creates an instance of this type which reads from the specified
+         * stream and copies the content to the specified file.
+         * 
+         * @param in the underlying stream
+         * @param target the target file
+         * @throws IOException if the temporary file cannot be created
+         */
+        TeeInputStream(InputStream in, File target) throws IOException {
+            super(in);
+            this.target = target;
+            this.tmp = new File(target.getPath() + ".tmp");
+            this.out = new BufferedOutputStream(new FileOutputStream(tmp),
+                    32768);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try {
+                byte[] buf = new byte[8192];
+                while (!eof && !failed)
+                    read(buf, 0, buf.length); // copy what is not read
+            } catch (IOException e) {
+                /* failed is set */
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    failed = true;
+                }
+                try {
+                    super.close();
+                } finally {
+                    if (eof && !failed) rename();
+                    if (failed) tmp.delete();
+                }
+            }
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            // not supported
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b < 0)
+                    eof = true;
+                else
+                    out.write(b);
+                return b;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int n = super.read(b, off, len);
+                if (n < 0)
+                    eof = true;
+                else
+                    out.write(b, off, n);
+                return n;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Helper method which moves the temporary file to the target file. If
+         * the rename fails, which it does on Windows if the target exists, the
+         * target is deleted and the rename is retried. If that also fails this
+         * stream is failed; this method does not throw an exception because it
+         * is invoked from {@link #close()} where it would mask an exception
+         * from the parser.
+         */
+        private void rename() {
+            if (tmp.renameTo(target)) return;
+
+            if (target.delete() && tmp.renameTo(target)) return;
+
+            failed = true;
+            SWGAide.printDebug("crft", 1,
+                    "SWGCraft:TeeInputStream: cannot rename ", tmp.getPath());
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("Mark/reset not supported");
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // read rather than skip so the content is copied
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int r = n > 0
+                    ? read(buf, 0, buf.length)
+                    : 0;
+            return r < 0
+                    ? 0
+                    : r;
+        }
+    }
 }
@@ -223,6 +223,7 @@ public class SWGCraftOptionsPanel extends JDialog {
     private void actionGalaxySelected() {
         String glx = (String) galaxyList.getSelectedItem();
         SWGFrame.getPrefsKeeper().add("optionMainGalaxy", SWGCGalaxy.fromName(glx).id());
+        SWGFrame.getResourceManager().updateGalaxies();
     }
     
  
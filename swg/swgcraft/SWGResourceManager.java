@@ -1,27 +1,30 @@
 package swg.swgcraft;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JOptionPane;
-import javax.swing.Timer;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import swg.SWGAide;
 import swg.SWGConstants;
@@ -31,8 +34,10 @@ import swg.crafting.resources.ResourceUpdate;
 import swg.crafting.resources.SWGKnownResource;
 import swg.crafting.resources.SWGMutableResource;
 import swg.crafting.resources.SWGPlanetAvailabilityInfo;
+import swg.crafting.resources.SWGRateCache;
 import swg.crafting.resources.SWGResource;
 import swg.crafting.resources.SWGResourceClass;
+import swg.crafting.resources.SWGResourceColumns;
 import swg.crafting.resources.SWGResourceList;
 import swg.crafting.resources.SWGResourceMgr;
 import swg.crafting.resources.SWGResourceSet;
@@ -41,11 +46,12 @@ import swg.crafting.resources.ResourceUpdate.UpdateType;
 import swg.crafting.resources.types.SWGFiberplast;
 import swg.crafting.resources.types.SWGOrganic;
 import swg.gui.SWGFrame;
+import swg.gui.common.SWGDoTask;
 import swg.model.SWGCGalaxy;
 import swg.model.SWGPlanet;
 import swg.tools.ZString;
+import swg.tools.ZNumber;
 import swg.tools.ZStuff;
-import swg.tools.ZXml;
 import swg.tools.SimplePrefsKeeper;
 import swg.tools.ZReader;
 import swg.tools.ZWriter;
@@ -117,6 +123,20 @@ public final class SWGResourceManager extends SWGResourceMgr {
      */
     private static final int LEVENSHTEIN_MIN = 4;
 
+    /**
+     * The pool of threads which executes downloads on demand, see
+     * {@link #downloadCurrent(SWGCGalaxy)}. Automatic updates are executed by
+     * the pool of {@link #refresher}.
+     */
+    private static final ThreadPoolExecutor downloader;
+
+    static {
+        downloader = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                SWGResourceRefresher.factory("download"));
+        downloader.allowCoreThreadTimeOut(true);
+    }
+
     /**
      * A list of locks denoting galaxies which are currently being updated. If a
      * galaxy is contained in this list it is being processed. Any consecutive
@@ -137,6 +157,13 @@ public final class SWGResourceManager extends SWGResourceMgr {
      * is 0.
      */
     private static Long previousStatusTime = Long.valueOf(0);
+
+    /**
+     * The lock for reading the status time at SWGCraft.org, see
+     * {@link #statusSWGCraftTime()}. Concurrent updates of several galaxies
+     * share one status time and just one of them reads the status file.
+     */
+    private static final Object statusLock = new Object();
     
     /**
      * Denotes whether the last attempt at fetching the status time at SWGCraft.org was successful
@@ -155,9 +182,10 @@ public final class SWGResourceManager extends SWGResourceMgr {
     private static List<UpdateSubscriber> subscribers;
 
     /**
-     * The timer which fires automatic updates for the user's main galaxy.
+     * The scheduler which executes automatic updates for the user's galaxies,
+     * or {@code null} if automatic updates are not started.
      */
-    private transient Timer timer = null;
+    private transient SWGResourceRefresher refresher = null;
 
     /**
      * Creates an instance of this type which together with
@@ -177,10 +205,41 @@ public final class SWGResourceManager extends SWGResourceMgr {
     }
 
     /**
-     * Starts a timer which a regular intervals tries to update the user's main
-     * galaxy. If there already is a timer this method does nothing, or if the
-     * user has not selected a main galaxy at the options panel for SWGCraft.org
-     * {@link #updateMainGalaxy()} does nothing.
+     * Returns the duration of the most recent automatic update of the
+     * specified galaxy, in milliseconds. If automatic updates are not started,
+     * if the galaxy is not updated automatically, or if it is not yet updated,
+     * -1 is returned.
+     * 
+     * @param galaxy a galaxy constant
+     * @return the duration of the most recent update, or -1
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    public long autoUpdateLatency(SWGCGalaxy galaxy) {
+        SWGResourceRefresher r = refresher;
+        return r == null
+                ? -1
+                : r.latency(galaxy);
+    }
+
+    /**
+     * Returns the number of automatic updates which are due but which wait
+     * for a free worker thread. If automatic updates are not started 0 is
+     * returned.
+     * 
+     * @return the number of queued updates
+     */
+    public int autoUpdateQueueDepth() {
+        SWGResourceRefresher r = refresher;
+        return r == null
+                ? 0
+                : r.queueDepth();
+    }
+
+    /**
+     * Starts a scheduler which at regular intervals tries to update the user's
+     * galaxies. If there already is a scheduler this method does nothing, or if
+     * the user has not selected any galaxy to update {@link #updateGalaxies()}
+     * stops the scheduler.
      */
     public void startAutoUpdate() {
         Boolean autoUpdate =
@@ -191,49 +250,72 @@ public final class SWGResourceManager extends SWGResourceMgr {
     }
 
     /**
-     * Helper method which starts a timer which every {@code minutes} will try
-     * to update the user's main galaxy. If there already is a timer this method
-     * does nothing, or if the user has not selected a main galaxy at the
-     * options panel for SWGCraft.org {@link #updateMainGalaxy()} does nothing.
+     * Helper method which starts a scheduler which every {@code minutes},
+     * plus some jitter, will try to update each of the user's galaxies. If
+     * there already is a scheduler this method does nothing. The scheduler is
+     * stopped when SWGAide exits. See {@link SWGResourceRefresher}.
      * 
      * @param minutes
      *            number of minutes between each repeat action
      */
     private void startAutoUpdate(int minutes) {
-        if (timer != null)
+        if (refresher != null)
             return;
 
-        timer = new Timer(minutes * 60 * 1000, // repeat every N minute
-            new ActionListener() {
-
-                public void actionPerformed(ActionEvent e) {
-                    updateMainGalaxy();
-                }
-            });
-        timer.setInitialDelay(100);
-        timer.start();
+        final SWGResourceRefresher r = new SWGResourceRefresher(minutes, 2);
+        refresher = r;
+        frame.addExitCallback(new SWGDoTask(new SWGDoTask.TaskCallback() {
+            public void execute() {
+                r.stop();
+            }
+        }));
+        updateGalaxies();
     }
 
     /**
-     * Stops and releases the automatic update timer. If there is an update in
-     * progress it is not aborted but future updates are disabled.
+     * Stops and releases the automatic update scheduler. If there is an update
+     * in progress it is not aborted but future updates are disabled.
      */
     void stopAutoUpdate() {
-        if (timer != null) {
-            timer.stop();
-            timer = null;
+        if (refresher != null) {
+            refresher.stop();
+            refresher = null;
         }
     }
 
     /**
-     * Helper member method which updates the resources for the main galaxy
-     * which is selected at the SWGCraft options dialog. If the user has not
-     * selected a main galaxy at the options panel for SWGCraft.org this method
-     * rather disables auto-updating, writes a message to SWGAide's log file.
+     * Helper member method which sets the galaxies which are updated
+     * automatically. These are the main galaxy which is selected at the
+     * SWGCraft options dialog, plus the galaxies which IDs are listed in the
+     * preference key "optionAutoUpdateGalaxies", a list of integers. If there
+     * is no such galaxy this method rather disables auto-updating, writes a
+     * message to SWGAide's log file. If automatic updates are not started this
+     * method does nothing.
      */
-    void updateMainGalaxy() {
+    void updateGalaxies() {
+        if (refresher == null)
+            return;
+
+        List<SWGCGalaxy> gxs = new ArrayList<SWGCGalaxy>();
         Integer gid = (Integer) SWGFrame.getPrefsKeeper().get("optionMainGalaxy");
-        if (gid == 0) {
+        if (gid != null && gid.intValue() != 0)
+            gxs.add(SWGCGalaxy.fromID(gid.intValue()));
+
+        @SuppressWarnings("unchecked")
+        List<Integer> others = (List<Integer>) SWGFrame.getPrefsKeeper().get(
+                "optionAutoUpdateGalaxies");
+        if (others != null)
+            for (Integer id : others) {
+                try {
+                    SWGCGalaxy g = SWGCGalaxy.fromID(id.intValue());
+                    if (!gxs.contains(g)) gxs.add(g);
+                } catch (IndexOutOfBoundsException e) {
+                    SWGAide.printDebug("cmgr", 1,
+                            "SWGResourceManager:updateGalaxies: ", id.toString());
+                }
+            }
+
+        if (gxs.isEmpty()) {
             stopAutoUpdate();
             SWGFrame.getPrefsKeeper().add("optionAutoUpdate", Boolean.FALSE);
             SWGAide.printDebug("cmgr", 1,
@@ -241,8 +323,7 @@ public final class SWGResourceManager extends SWGResourceMgr {
             return;
         }
 
-        SWGCGalaxy galaxy = SWGCGalaxy.fromID(gid);
-        downloadCurrent(galaxy);
+        refresher.galaxies(gxs);
     }
 
     /**
@@ -261,12 +342,12 @@ public final class SWGResourceManager extends SWGResourceMgr {
     /**
      * An implementation which initiates a background job which for the
      * specified galaxy downloads current resources from SWGCraft.org. Once the
-     * job is started this method returns. If there is an ongoing download for
+     * job is queued this method returns. If there is an ongoing download for
      * the specified galaxy this method does nothing.
      * <P>
      * <B>Note: </B>This is the entry point for downloading a set of current
-     * resources from SWGCraft.org. See {@link #downloadHelper(SWGCGalaxy)} for
-     * further details.
+     * resources from SWGCraft.org on demand. See
+     * {@link #downloadNow(SWGCGalaxy)} for further details.
      * 
      * @param galaxy
      *            a galaxy constant
@@ -281,23 +362,46 @@ public final class SWGResourceManager extends SWGResourceMgr {
             // abort consecutive calls for the same galaxy while being processed
             if (locker.contains(galaxy))
                 return;
-            locker.add(galaxy);
         }
 
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(new Runnable() {
-
-            @SuppressWarnings("synthetic-access")
+        downloader.execute(new Runnable() {
             public void run() {
-                downloadHelper(galaxy);
-                synchronized (locker) {
-                    locker.remove(galaxy);
-                }
-                executor.shutdown();
+                downloadNow(galaxy);
             }
         });
     }
 
+    /**
+     * Helper method which for the specified galaxy downloads current resources
+     * from SWGCraft.org on the current thread. If there is an ongoing download
+     * for the specified galaxy this method does nothing and returns {@code
+     * true}. Otherwise this method returns {@code false} if the download was
+     * aborted because of an error. See {@link #downloadHelper(SWGCGalaxy)} for
+     * further details.
+     * 
+     * @param galaxy
+     *            a galaxy constant
+     * @return {@code false} if there was an error
+     * @throws NullPointerException
+     *             if galaxy is {@code null}
+     */
+    static boolean downloadNow(SWGCGalaxy galaxy) {
+        synchronized (locker) {
+            // abort consecutive calls for the same galaxy while being processed
+            if (locker.contains(galaxy))
+                return true;
+            locker.add(galaxy);
+        }
+
+        try {
+            return downloadHelper(galaxy);
+        } finally {
+            synchronized (locker) {
+                locker.remove(galaxy);
+            }
+        }
+    }
+
     /**
      * Helper method which carries out its workload on a background thread. If
      * there is an error it is intercepted at some level and it is added to
@@ -308,44 +412,54 @@ public final class SWGResourceManager extends SWGResourceMgr {
      * <ol>
      * <li>determines if there is a download available, aborts if there is no
      * update &mdash; {@link #isGalaxyUpdated(SWGCGalaxy)}</li>
-     * <li>downloads the available update, aborts if there is an error &mdash;
-     * {@link SWGCraft#downloadURLToDisk(URL, File, boolean)}</li>
-     * <li>updates the local status file &mdash;
-     * {@link #statusLocalWrite(SWGCGalaxy, Long)}</li>
-     * <li>creates a list of current resource objects &mdash;
-     * {@link #localXmlParse(File, SWGCGalaxy)}</li>
+     * <li>downloads the available update and creates a list of current
+     * resource objects in one pass, the download is copied to the local file
+     * while it is parsed; aborts if there is an error &mdash;
+     * {@link SWGCraft#downloadURLTee(URL, File, boolean)} and
+     * {@link #localXmlParse(InputStream, SWGCGalaxy)}</li>
      * <li>calls the super-type which updates its cache &mdash;
      * {@link SWGResourceMgr#updateFromDownload(SWGResourceList)}</li>
-     * <li>notifies update subscribers &mdash;
+     * <li>updates the local status file &mdash;
+     * {@link #statusLocalWrite(SWGCGalaxy, Long)}</li>
+     * <li>notifies update subscribers with the resources which are changed by
+     * the download &mdash;
      * {@link SWGResourceManager#notifySubscribers(ResourceUpdate)}</li>
      * </ol>
      * 
      * @param galaxy a galaxy constant
+     * @return {@code false} if the download was aborted because of an error
      * @throws NullPointerException if the argument is {@code null}
      */
-    private static void downloadHelper(SWGCGalaxy galaxy) {
+    private static boolean downloadHelper(SWGCGalaxy galaxy) {
         File cf = localXML(galaxy);
         long prevChk = previousStatusCheck; // 0 the first time ever
         if (cf.exists() && !isGalaxyUpdated(galaxy)) {
             if (prevChk == 0) // notify anyway, to trigger checks and whatever
                 SWGResourceManager.notifySubscribers(new ResourceUpdate(
                         UpdateType.NEW_DOWNLOAD, galaxy));
-            return;
+            return true;
         }
 
         frame.putToStatbar("Updating " + galaxy.getName());
 
+        ResourceUpdate.Delta delta;
         try {
             Long statusTime = statusSWGCraftTime();
 
             URL u = swgcraftUrlXml(galaxy);
-            if (!SWGCraft.downloadURLToDisk(u, cf, true)) {
+            InputStream in = SWGCraft.downloadURLTee(u, cf, true);
+            if (in == null) {
                 downloadStatusAbort(galaxy);
-                return;
+                return false;
             }
 
-            SWGResourceList resList = localXmlParse(cf, galaxy);
-            updateFromDownload(resList);
+            SWGResourceList resList;
+            try {
+                resList = localXmlParse(in, galaxy);
+            } finally {
+                in.close(); // copies what is not parsed and saves the file
+            }
+            delta = updateFromDownload(resList);
             statusLocalWrite(galaxy, statusTime);
 
         } catch (IOException e) {
@@ -361,7 +475,7 @@ public final class SWGResourceManager extends SWGResourceMgr {
                         JOptionPane.ERROR_MESSAGE);
             }
             downloadStatusAbort(galaxy);
-            return;
+            return false;
         } catch (Exception e) {
             SWGAide.printDebug("cmgr", 1,
                     "SWGResourceManager:downloadHelper2: " + e.getMessage());
@@ -375,10 +489,11 @@ public final class SWGResourceManager extends SWGResourceMgr {
                             + "\nDetails are read in the log file",
                     "Communication error", JOptionPane.WARNING_MESSAGE);
             downloadStatusAbort(galaxy);
-            return;
+            return false;
         }
         SWGResourceManager.notifySubscribers(new ResourceUpdate(
-                UpdateType.NEW_DOWNLOAD, galaxy));
+                UpdateType.NEW_DOWNLOAD, galaxy, delta));
+        return true;
     }
 
     /**
@@ -391,6 +506,30 @@ public final class SWGResourceManager extends SWGResourceMgr {
                 + gxy.getName() + "</font></html>");
     }
 
+    /**
+     * Returns a columnar snapshot of the resources which are spawning at the
+     * specified galaxy, see {@link SWGResourceColumns}. The snapshot contains
+     * the same resources as {@link #getSpawning(SWGCGalaxy)} and it is rebuilt
+     * on each download, it is meant for clients which scan the resources with
+     * several filters, guards, or weights. This implementation is non-blocking
+     * and returns a snapshot promptly, it may be dated.
+     * <P>
+     * As a side effect from a call to this method a background job starts which
+     * tries to download current resources for {@code galaxy} from SWGCraft.org.
+     * Once a download is ready update notifications are sent to subscribers.
+     * A client should obtain a new snapshot when it is notified.
+     * 
+     * @param galaxy
+     *            a galaxy constant
+     * @return a snapshot of the resources which are currently spawning
+     * @throws NullPointerException
+     *             if galaxy is {@code null}
+     */
+    public static SWGResourceColumns getColumns(SWGCGalaxy galaxy) {
+        downloadCurrent(galaxy);
+        return cachedColumns(galaxy);
+    }
+
     /**
      * Returns a set of resources which are depleted at the specified galaxy.
      * This implementation is non-blocking and returns a set promptly. Thus, if
@@ -934,49 +1073,142 @@ public final class SWGResourceManager extends SWGResourceMgr {
      * {@link SWGResourceList#EMPTY} is returned.
      * <p>
      * This implementation <i>does not </i> evaluate the elements in the
-     * returned list with the local cache of known resources.
+     * returned list with the local cache of known resources. See
+     * {@link #localXmlParse(InputStream, SWGCGalaxy)}.
      * 
      * @param xmlFile the XML file to parse from
      * @param gxy a galaxy constant
      * @return a list of {@link SWGMutableResource}, or an empty list
      * @throws IOException if there is an I/O error
      * @throws NullPointerException if an argument is {@code null}
-     * @throws ParserConfigurationException if there is a document error
-     * @throws SAXException if there is an XML parse error
+     * @throws XMLStreamException if there is an XML parse error
      */
     private static SWGResourceList localXmlParse(File xmlFile, SWGCGalaxy gxy)
-            throws ParserConfigurationException, SAXException, IOException {
+            throws IOException, XMLStreamException {
 
         if (xmlFile == null || gxy == null) throw new NullPointerException(
                 "Argument is null, file=" + xmlFile + ", galaxy=" + gxy);
 
-        Document xml = ZXml.parse(xmlFile);
-
-        SWGResourceList resources = new SWGResourceList(COLLECTION_SIZE);
+        InputStream in = new BufferedInputStream(new FileInputStream(xmlFile));
+        try {
+            return localXmlParse(in, gxy);
+        } finally {
+            in.close();
+        }
+    }
 
-        NodeList nList = xml.getElementsByTagName("resource");
-        for (int i = 0; i < nList.getLength(); ++i) {
-            Element resElem = (Element) nList.item(i);
+    /**
+     * Returns a list of resources which are parsed from the specified stream.
+     * The stream is a resource export file from SWGCraft.org for the specified
+     * galaxy. The returned list contains objects of type
+     * {@link SWGMutableResource}. If there is an error
+     * {@link SWGResourceList#EMPTY} is returned. This method does not close the
+     * stream.
+     * <p>
+     * This implementation reads the stream with a StAX parser and creates each
+     * resource from the events of its element, the document is never held in
+     * memory. A resource is listed once per planet it is available at, the
+     * first occurrence creates the resource and each occurrence adds a planet
+     * record. See the footnote of {@link SWGResourceManager} for the layout of
+     * the XML file.
+     * <p>
+     * This implementation <i>does not </i> evaluate the elements in the
+     * returned list with the local cache of known resources, hence it has no
+     * side effects and it is available to developer tools.
+     * 
+     * @param in the stream to parse from
+     * @param gxy a galaxy constant
+     * @return a list of {@link SWGMutableResource}, or an empty list
+     * @throws NullPointerException if an argument is {@code null}
+     * @throws XMLStreamException if there is an XML parse or I/O error
+     */
+    public static SWGResourceList localXmlParse(InputStream in, SWGCGalaxy gxy)
+            throws XMLStreamException {
 
-            long id = ZXml.longFromAttr(resElem, "swgcraft_id");
+        if (in == null || gxy == null) throw new NullPointerException(
+                "Argument is null, stream=" + in + ", galaxy=" + gxy);
 
-            SWGMutableResource mr = (SWGMutableResource) resources.getByID(id);
+        XMLInputFactory xf = XMLInputFactory.newInstance();
+        xf.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        xf.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                Boolean.FALSE);
+        XMLStreamReader xr = xf.createXMLStreamReader(in);
 
-            if (mr == null) { // this one is new
-                mr = resourceFromXML(resElem, id, gxy);
-                if (mr == null) continue; // may be a space resource, ignore
-                resources.add(mr);
+        SWGResourceList resources = new SWGResourceList(COLLECTION_SIZE);
+        try {
+            String planet = null; // the enclosing planet, or null
+            long id = 0; // the current resource, or 0
+            Map<String, String> values = new HashMap<String, String>();
+            String child = null; // the current child element, or null
+            StringBuilder text = new StringBuilder(64);
+
+            while (xr.hasNext()) {
+                switch (xr.next()) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    String tag = xr.getLocalName();
+                    if (id != 0) {
+                        child = tag;
+                        text.setLength(0);
+                    } else if (tag.equals("resource")) {
+                        id = ZNumber.longVal(attribute(xr, "swgcraft_id"));
+                        if (id <= 0) throw new IllegalArgumentException(
+                                "Invalid argument: " + gxy + ' ' + id);
+                        values.clear();
+                    } else if (tag.equals("planet"))
+                        planet = attribute(xr, "name");
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (child != null) text.append(xr.getText());
+                    break;
+                case XMLStreamConstants.END_ELEMENT: {
+                    String tag = xr.getLocalName();
+                    if (child != null) {
+                        // the first child of a name is what is used
+                        if (!values.containsKey(child))
+                            values.put(child, text.toString());
+                        child = null;
+                    } else if (id != 0 && tag.equals("resource")) {
+                        resourceFromXML(resources, values, id, gxy, planet);
+                        id = 0;
+                    } else if (tag.equals("planet"))
+                        planet = null;
+                    break;
+                }
+                default: // ignore
+                }
             }
-
-            resourceAddPlanet(mr, resElem);
+        } finally {
+            xr.close();
         }
 
         return resources.toReturn();
     }
 
+    /**
+     * Helper method which returns the trimmed value of the specified attribute
+     * of the current element of the reader, or an empty string.
+     * 
+     * @param xr a reader at a start element
+     * @param attr the name of an attribute
+     * @return the trimmed value, or an empty string
+     */
+    private static String attribute(XMLStreamReader xr, String attr) {
+        String v = xr.getAttributeValue(null, attr);
+        return v == null
+                ? ""
+                : v.trim();
+    }
+
     /**
      * Notifies all subscribers with the specified notification. See
      * {@link SWGResourceManager#addSubscriber(UpdateSubscriber)}.
+     * <P>
+     * Before subscribers are notified the cache of rates is updated, see
+     * {@link SWGRateCache}. If the notification has a delta the rates for the
+     * updated resources are invalidated, otherwise all rates are cleared.
      * 
      * @param notice
      *            the notification to send to all subscribers
@@ -984,6 +1216,12 @@ public final class SWGResourceManager extends SWGResourceMgr {
      *             if the argument is {@code null}
      */
     public static void notifySubscribers(ResourceUpdate notice) {
+        if (notice.delta == null)
+            SWGRateCache.clear();
+        else
+            for (SWGKnownResource kr : notice.delta.updated)
+                SWGRateCache.invalidate(kr);
+
         synchronized (subscribers) {
             for (UpdateSubscriber us : subscribers)
                 us.handleUpdate(notice);
@@ -1004,86 +1242,84 @@ public final class SWGResourceManager extends SWGResourceMgr {
     /**
      * Helper method which adds a planet availability record to the specified
      * resource, see {@link SWGPlanetAvailabilityInfo}. The added record is
-     * based on the content of the soecified XML element.
-     * <p>
-     * Technical Note:<br/>
-     * The specified XML element is in fact contained within the element that
-     * reads the planetary data; see the footnote of {@link SWGResourceManager}
-     * for the layout of the XML file. This implementation traverses upwards to
-     * find the planet.
+     * based on the specified planet and the values of the resource element.
+     * If the planet is {@code null} this method does nothing.
      * 
      * @param mr the resource to add a planet record to
-     * @param xml the XML element to start with
+     * @param values the values of the children of the resource element
+     * @param planet the name of the planet, or {@code null}
      * @throws NullPointerException if an argument is {@code null}
      */
-    private static void resourceAddPlanet(SWGMutableResource mr, Element xml) {
-        if (mr == null || xml == null)
-            throw new NullPointerException("An argument is null");
+    private static void resourceAddPlanet(
+            SWGMutableResource mr, Map<String, String> values, String planet) {
 
-        Element current = xml;
-        while (current != null
-                && !current.getNodeName().equalsIgnoreCase("planet")) {
-            // traverse up the XML document two levels to determine the planet
-            current = (Element) current.getParentNode();
-        }
+        if (mr == null || values == null)
+            throw new NullPointerException("An argument is null");
 
-        if (current == null)
+        if (planet == null)
             return; // sanity
 
         // layout: <planet name="Lok" swgcraft_id="5">
 
         SWGPlanetAvailabilityInfo pInfo = new SWGPlanetAvailabilityInfo(
-                SWGPlanet.fromName(current.getAttribute("name")),
-                ZXml.longFromElem(xml, "available_timestamp"),
-                ZXml.stringFromElem(xml, "available_by"));
+                SWGPlanet.fromName(planet),
+                ZNumber.longVal(values.get("available_timestamp")),
+                values.get("available_by"));
 
         mr.availability(pInfo);
     }
 
     /**
-     * Helper method which creates and returns a {@link SWGMutableResource} from
-     * the XML element, or {@code null} if this is a space resource. It is not
-     * likely this method will throw an exception.
-     * <p>
-     * <b>Notice:</b> this implementation does not add planet availability. Only
-     * ID, galaxy, name, type, and stats are added to the resource. See the
-     * footnote of {@link SWGResourceManager} for the layout of the XML file.
+     * Helper method which adds a resource and its planet record to the
+     * specified list. If the list contains a resource with the specified ID
+     * just the planet record is added, otherwise a {@link SWGMutableResource}
+     * is created from the values of the resource element, unless it is a
+     * space resource. It is not likely this method will throw an exception.
+     * See the footnote of {@link SWGResourceManager} for the layout of the XML
+     * file.
      * 
-     * @param xml the element that contains the SWGCraft-style resource data
+     * @param resources the list of parsed resources
+     * @param values the values of the children of the resource element
      * @param id the unique SWGCraft ID for the resource to parse
      * @param galaxy a galaxy constant
-     * @return a new mutable resource object, or {@code null}
+     * @param planet the name of the enclosing planet, or {@code null}
      * @throws IllegalArgumentException if there is something invalid
      * @throws NullPointerException if something is parsed to {@code null}
      */
-    private static SWGMutableResource resourceFromXML(
-            Element xml, long id, SWGCGalaxy galaxy) {
+    private static void resourceFromXML(SWGResourceList resources,
+            Map<String, String> values, long id, SWGCGalaxy galaxy,
+            String planet) {
 
         if (galaxy == null || id <= 0)
             throw new IllegalArgumentException(
                     "Invalid argument: " + galaxy + ' ' + id);
 
-        String tok = ZXml.stringFromElem(xml, "swgcraft_type_id");
-        SWGResourceClass type = SWGResourceClass.rc(tok);
-        if (type.isSpaceOrRecycled()) return null;
+        SWGMutableResource mr = (SWGMutableResource) resources.getByID(id);
+        if (mr == null) { // this one is new
+            String tok = values.get("swgcraft_type_id");
+            SWGResourceClass type = SWGResourceClass.rc(tok);
+            if (type.isSpaceOrRecycled()) return; // ignore
+
+            String name = values.get("name");
+
+            mr = new SWGMutableResource(name, type);
+            mr.galaxy(galaxy);
+            mr.id(id);
 
-        String name = ZXml.stringFromElem(xml, "name");
+            // remember this, new instances are depleted by default, undeplete
+            mr.depleted(false);
 
-        SWGMutableResource mr = new SWGMutableResource(name, type);
-        mr.galaxy(galaxy);
-        mr.id(id);
+            int[] vs = new int[Stat.COUNT];
+            for (Stat s : Stat.values())
+                vs[s.i] = (int) ZNumber.longVal(values.get(s.getName()));
 
-        // remember this, new instances are depleted by default, undeplete it
-        mr.depleted(false);
+            SWGResourceStats rs = new SWGResourceStats(vs);
+            mr.stats(rs, false); // trust SWGCraft
 
-        int[] values = new int[Stat.COUNT];
-        for (Stat s : Stat.values()) {
-            values[s.i] = ZXml.intFromElem(xml, s.getName());
+            resources.add(mr);
         }
-        SWGResourceStats rs = new SWGResourceStats(values);
-        mr.stats(rs, false); // trust SWGCraft
 
-        return mr;
+        resourceAddPlanet(mr, values, planet);
     }
 
     /**
@@ -1463,7 +1699,7 @@ public final class SWGResourceManager extends SWGResourceMgr {
 
         URL url = null;
         try {
-            synchronized (previousStatusTime) {
+            synchronized (statusLock) {
                 // check again in the case one was waiting on the lock
                 if (current >= previousStatusCheck
                         + SWGCraft.STATUS_CHECK_DELAY) {
@@ -0,0 +1,305 @@
+package swg.swgcraft;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import swg.SWGAide;
+import swg.model.SWGCGalaxy;
+
+/**
+ * This type schedules automatic updates of current resources for a set of
+ * galaxies. A timer thread determines when a galaxy is due and hands the
+ * update to a bounded pool of worker threads which download and reconcile the
+ * resources, see {@link SWGResourceManager#downloadNow(SWGCGalaxy)}. Thus
+ * several galaxies are kept fresh but no more than a few downloads are in
+ * progress at the same time.
+ * <p>
+ * Each galaxy is updated at the specified interval plus a random jitter of up
+ * to a quarter of the interval, so that the galaxies drift apart rather than
+ * hitting SWGCraft.org at the same time. If an update fails the delay for the
+ * galaxy is doubled per consecutive failure, up to {@link #BACKOFF_MAX} times
+ * the interval, and it is reset by the next successful update. All updates
+ * share the status time at SWGCraft.org which is cached for
+ * {@link SWGCraft#STATUS_CHECK_DELAY} seconds, hence an update that finds its
+ * galaxy current does not download the status file again.
+ * <p>
+ * This type is thread safe, the threads are daemon threads, and
+ * {@link #stop()} cancels all scheduled updates and interrupts the workers.
+ * An instance cannot be restarted once it is stopped.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+final class SWGResourceRefresher {
+
+    /**
+     * The maximum factor the interval is multiplied with for a galaxy with
+     * consecutive failures.
+     */
+    static final int BACKOFF_MAX = 8;
+
+    /**
+     * The scheduled galaxies, mapped to by galaxy names. This map is
+     * synchronized on itself.
+     */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * The interval between updates of a galaxy, in milliseconds.
+     */
+    private final long interval;
+
+    /**
+     * The random generator for jitter, synchronized on {@link #entries}.
+     */
+    private final Random random = new Random();
+
+    /**
+     * A flag which denotes that this instance is stopped.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * The timer thread which determines when a galaxy is due.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * The bounded pool of worker threads which update galaxies.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Creates an instance of this type with the specified number of workers.
+     * No galaxy is updated until it is added with
+     * {@link #galaxies(Collection)}.
+     * 
+     * @param minutes the number of minutes between updates of a galaxy
+     * @param threads the maximum number of concurrent updates
+     * @throws IllegalArgumentException if an argument is less than 1
+     */
+    SWGResourceRefresher(int minutes, int threads) {
+        if (minutes < 1 || threads < 1)
+            throw new IllegalArgumentException("Invalid argument: " + minutes
+                    + ", " + threads);
+
+        interval = minutes * 60L * 1000L;
+        timer = new ScheduledThreadPoolExecutor(1, factory("timer"));
+        workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory("worker"));
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the galaxies which are updated by this instance. Galaxies which are
+     * not scheduled already are scheduled for an update in a moment, galaxies
+     * which are not contained in the argument are cancelled. If this instance
+     * is stopped this method does nothing.
+     * 
+     * @param galaxies the galaxies to update
+     * @throws NullPointerException if the argument is {@code null}
+     */
+    void galaxies(Collection<SWGCGalaxy> galaxies) {
+        synchronized (entries) {
+            if (stopped) return;
+
+            List<String> names = new ArrayList<String>(galaxies.size());
+            for (SWGCGalaxy g : galaxies)
+                names.add(g.getName());
+
+            for (Entry e : new ArrayList<Entry>(entries.values()))
+                if (!names.contains(e.galaxy.getName())) {
+                    entries.remove(e.galaxy.getName());
+                    if (e.next != null) e.next.cancel(false);
+                }
+
+            int i = 0;
+            for (SWGCGalaxy g : galaxies)
+                if (!entries.containsKey(g.getName())) {
+                    Entry e = new Entry(g);
+                    entries.put(g.getName(), e);
+                    // spread the first updates by a second each
+                    schedule(e, 100 + 1000L * i++);
+                }
+        }
+    }
+
+    /**
+     * Returns the duration of the most recent update of the specified galaxy,
+     * in milliseconds. If the galaxy is not scheduled, or if it is not yet
+     * updated, -1 is returned.
+     * 
+     * @param galaxy a galaxy constant
+     * @return the duration of the most recent update, or -1
+     */
+    long latency(SWGCGalaxy galaxy) {
+        synchronized (entries) {
+            Entry e = entries.get(galaxy.getName());
+            return e == null
+                    ? -1
+                    : e.latency;
+        }
+    }
+
+    /**
+     * Returns the number of updates which are due but which wait for a worker
+     * thread.
+     * 
+     * @return the number of queued updates
+     */
+    int queueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Stops this instance. Scheduled updates are cancelled and the workers
+     * are interrupted; an update in progress is not rolled back but it is not
+     * rescheduled.
+     */
+    void stop() {
+        synchronized (entries) {
+            stopped = true;
+            entries.clear();
+        }
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Helper method which returns the delay before the next update of the
+     * specified galaxy, based on its number of consecutive failures and with
+     * a random jitter. This method must be invoked under the lock of
+     * {@link #entries}.
+     * 
+     * @param e an entry for a galaxy
+     * @return a delay in milliseconds
+     */
+    private long delay(Entry e) {
+        long f = Math.min(1L << Math.min(e.failures, 30), BACKOFF_MAX);
+        long d = interval * f;
+        return d + (long) (random.nextDouble() * (interval / 4));
+    }
+
+    /**
+     * Helper method which updates the galaxy of the specified entry on the
+     * current worker thread and reschedules it. If the entry is cancelled
+     * this method does nothing.
+     * 
+     * @param e an entry for a galaxy
+     */
+    private void refresh(Entry e) {
+        synchronized (entries) {
+            if (stopped || entries.get(e.galaxy.getName()) != e) return;
+        }
+
+        long t = System.currentTimeMillis();
+        boolean ok = false;
+        try {
+            ok = SWGResourceManager.downloadNow(e.galaxy);
+        } catch (Throwable th) {
+            SWGAide.printError("SWGResourceRefresher:refresh: "
+                    + e.galaxy.getName(), th);
+        }
+        t = System.currentTimeMillis() - t;
+
+        synchronized (entries) {
+            e.latency = t;
+            e.failures = ok
+                    ? 0
+                    : e.failures + 1;
+            if (!stopped && entries.get(e.galaxy.getName()) == e)
+                schedule(e, delay(e));
+        }
+    }
+
+    /**
+     * Helper method which schedules an update of the specified galaxy after
+     * the specified delay. This method must be invoked under the lock of
+     * {@link #entries}.
+     * 
+     * @param e an entry for a galaxy
+     * @param millis the delay in milliseconds
+     */
+    private void schedule(final Entry e, long millis) {
+        e.next = timer.schedule(new Runnable() {
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+                workers.execute(new Runnable() {
+                    public void run() {
+                        refresh(e);
+                    }
+                });
+            }
+        }, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Helper method which returns a thread factory for daemon threads with
+     * the specified name.
+     * 
+     * @param name the name of the threads
+     * @return a thread factory
+     */
+    static ThreadFactory factory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SWGResourceRefresher-" + name + "-"
+                        + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * A helper type which contains the state of a scheduled galaxy. The
+     * fields are synchronized on {@link SWGResourceRefresher#entries}.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class Entry {
+
+        /**
+         * The number of consecutive failed updates for the galaxy.
+         */
+        int failures;
+
+        /**
+         * The galaxy for this entry.
+         */
+        final SWGCGalaxy galaxy;
+
+        /**
+         * The duration of the most recent update in milliseconds, or -1.
+         */
+        long latency = -1;
+
+        /**
+         * The next scheduled update, or {@code null}.
+         */
+        ScheduledFuture<?> next;
+
+        /**
+         * Creates an entry for the specified galaxy.
+         * 
+         * @param galaxy a galaxy constant
+         */
+        Entry(SWGCGalaxy galaxy) {
+            this.galaxy = galaxy;
+        }
+    }
+}
@@ -1,21 +1,48 @@
 package swg.tools;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import swg.SWGAide;
 import swg.SWGConstants;
+import swg.crafting.resources.SWGKnownResource;
 import swg.crafting.resources.SWGResource;
+import swg.crafting.resources.SWGResourceClass;
 import swg.gui.SWGFrame;
+import swg.model.SWGCGalaxy;
 import swg.gui.SWGInitialize;
 
 /**
@@ -73,6 +100,26 @@ import swg.gui.SWGInitialize;
  * type. The static method {@link #version(File)} returns the string which can
  * be used to determine if the stream is compatible. The member method
  * {@link #getVersion()} returns the version recorded for this instance.
+ * <P>
+ * <B>Note: </B>The object stream is superseded by a container of chunks. A
+ * header with {@link SWGConstants#version} is
+ * followed by an index of the keys per chunk and finally the chunks, each a
+ * compressed object stream of its keys and values. The keys of a chunk are
+ * the keys which values share objects, hence the object graphs are maintained
+ * per chunk. Galaxies and resources are not considered shared, they are
+ * written to each chunk which contains them and they are resolved to one
+ * instance per galaxy or resource when they are deserialized. Chunks with
+ * resources are deserialized by {@link #load(File)}, other chunks when one of
+ * their keys is first accessed. An object stream of the previous format is
+ * still read and it is migrated by the next store.
+ * <P>
+ * The chunks of values which are added, removed, or touched are appended to
+ * the file as records, each with a checksum; a key is read from the most
+ * recent chunk which contains it. The file is compacted to one container of
+ * chunks after a number of stores. See {@link #store(File)} and
+ * {@link #touch(String)}; a
+ * modified resource is written to each chunk which contains it, see
+ * {@link #touch(SWGKnownResource)}.
  * 
  * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
  *         Chimaera.Zimoon
@@ -85,6 +132,117 @@ public final class SimplePrefsKeeper implements Serializable {
      */
     private static final long serialVersionUID = -7684542119186474024L;
 
+    /**
+     * The size of a serialized value below which the value is not written to
+     * a chunk of its own but pooled with other small values, see
+     * {@link #store(File)}.
+     */
+    private static final int CHUNK_MIN = 16 * 1024;
+
+    /**
+     * The number of stores to a file, with or without a record, before the
+     * file is compacted, see {@link #store(File)}.
+     */
+    private static final int COMPACT_STORES = 16;
+
+    /**
+     * A lock which serializes the invocations of {@link #store(File)}. The
+     * order of the snapshots is the order of the files which are written,
+     * hence an older snapshot never replaces a newer one.
+     */
+    private static final Object LOCK_STORE = new Object();
+
+    /**
+     * The first four bytes of a file which is written by {@link #store(File)},
+     * "SWKP" in ASCII. A file which begins with other bytes is an object
+     * stream of the format from October 2009.
+     */
+    private static final int MAGIC = 0x53574b50;
+
+    /**
+     * The first four bytes of a record which is appended to a file by
+     * {@link #store(File)}, "SWKR" in ASCII.
+     */
+    private static final int RECORD = 0x53574b52;
+
+    /**
+     * The initial size of the buffer that an instance is serialized to, see
+     * {@link #store(File)}.
+     */
+    private static final int STORE_BUFFER = 1 << 20;
+
+    /**
+     * The executor which writes snapshots on a background thread, or
+     * {@code null}. One daemon thread is shared by all instances, see
+     * {@link #storeInBackground(File, Runnable)} and {@link #shutdown()}.
+     * This field is guarded by {@link #LOCK_STORE}.
+     */
+    private static ExecutorService writer;
+
+    /**
+     * The pending background write, or {@code null}. A store waits for it to
+     * complete before it takes a snapshot, see {@link #storeAwait()}. This
+     * field is guarded by {@link #LOCK_STORE}.
+     */
+    private static Future<?> writing;
+
+    /**
+     * A map of keys which map to the keys of the chunk they are written to in
+     * {@link #log}. If one of the keys is written again, or removed, all of
+     * them are written so that the previous chunk is superseded in full.
+     */
+    private transient Map<String, String[]> chunked;
+
+    /**
+     * A map of keys which map to the checksums of their values as they are
+     * written to {@link #log}, see {@link Chunk#sums}.
+     */
+    private transient Map<String, Integer> crcs;
+
+    /**
+     * The keys which are added, removed, or touched since the most recent
+     * store, see {@link #touch(String)}.
+     */
+    private transient Set<String> dirty;
+
+    /**
+     * A map of the resources which are written to {@link #log} which map to
+     * the keys which values contain them, see {@link #touch(SWGKnownResource)}.
+     * A key is not removed when its value no longer contains a resource, the
+     * map is rebuilt by each full store.
+     */
+    private transient Map<SWGKnownResource, Set<String>> holders;
+
+    /**
+     * The file which records are appended to, or {@code null}. This is the
+     * file which this instance was most recently loaded from or written to in
+     * full.
+     */
+    private transient File log;
+
+    /**
+     * The length of the compacted part of {@link #log}, before the records.
+     */
+    private transient long logBase;
+
+    /**
+     * The length of {@link #log} including its valid records.
+     */
+    private transient long logLength;
+
+    /**
+     * The number of stores to {@link #log} since it was written in full, with
+     * or without a record.
+     */
+    private transient int logStores;
+
+    /**
+     * A map of keys which map to chunks that are not yet deserialized, or
+     * {@code null}. A chunk is deserialized when one of its keys is first
+     * accessed, see {@link #pending(String)}.
+     */
+    private transient Map<String, Chunk> pending;
+
     /**
      * The dictionary which contains the stored objects. {@link Hashtable} is in
      * itself synchronized so no access methods have to provide synchronization.
@@ -109,6 +267,7 @@ public final class SimplePrefsKeeper implements Serializable {
      */
     public SimplePrefsKeeper() {
         table = new Hashtable<String, Serializable>();
+        init();
     }
 
     /**
@@ -133,6 +292,9 @@ public final class SimplePrefsKeeper implements Serializable {
      *             if the key is {@code null}
      */
     public synchronized Serializable add(String key, Serializable value) {
+        pending(key);
+        pendingDrop(key);
+        dirty.add(key);
         if (value == null)
             return table.remove(key);
 
@@ -143,6 +305,10 @@ public final class SimplePrefsKeeper implements Serializable {
      * Clears the content stored in this instance.
      */
     public synchronized void clearAll() {
+        if (pending != null)
+            dirty.addAll(pending.keySet());
+        dirty.addAll(table.keySet());
+        pending = null;
         table.clear();
     }
 
@@ -157,6 +323,7 @@ public final class SimplePrefsKeeper implements Serializable {
      *             if the key is {@code null}
      */
     public synchronized Serializable get(String key) {
+        pending(key);
         return table.get(key);
     }
 
@@ -164,7 +331,9 @@ public final class SimplePrefsKeeper implements Serializable {
      * Returns the value to which the specified key is mapped, or the supplied
      * default value if this instance contains no mapping for the key. In the
      * latter case this implementation adds the supplied default value to the
-     * map as a new mapping.
+     * map as a new mapping, unless the value for the key cannot be
+     * deserialized; then the default value is returned but the stored value
+     * is retained, see {@link #pending(String)}.
      * <P>
      * <B>Attention: </B>This implementation does not determine if a possible
      * reference graph rooted from the specified default value only contains
@@ -182,6 +351,7 @@ public final class SimplePrefsKeeper implements Serializable {
      *             if the key or the default value is {@code null}
      */
     public synchronized Serializable get(String key, Serializable defaultValue) {
+        pending(key);
         Serializable o = table.get(key);
         if (o != null)
             return o;
@@ -190,6 +360,10 @@ public final class SimplePrefsKeeper implements Serializable {
             throw new NullPointerException("Default value is null, key: "
                 + key);
 
+        if (pending != null && pending.containsKey(key))
+            return defaultValue; // retain what cannot be deserialized
+
+        dirty.add(key);
         table.put(key, defaultValue);
         return defaultValue;
     }
@@ -206,6 +380,35 @@ public final class SimplePrefsKeeper implements Serializable {
         return version == null ? "" : version;
     }
 
+    /**
+     * Helper method which instantiates the transient collections of this
+     * instance, also when it is deserialized.
+     */
+    private void init() {
+        chunked = new HashMap<String, String[]>();
+        crcs = new HashMap<String, Integer>();
+        dirty = new HashSet<String>();
+        holders = new IdentityHashMap<SWGKnownResource, Set<String>>();
+    }
+
+    /**
+     * Helper method which returns the keys which values contain the specified
+     * resource, see {@link #holders}. If there is no set for the resource an
+     * empty set is added and returned.
+     * 
+     * @param resource
+     *            a resource
+     * @return the keys for the resource
+     */
+    private Set<String> heldBy(SWGKnownResource resource) {
+        Set<String> ks = holders.get(resource);
+        if (ks == null) {
+            ks = new HashSet<String>(4);
+            holders.put(resource, ks);
+        }
+        return ks;
+    }
+
     /**
      * Returns the keys contained in this instance.
      * 
@@ -214,9 +417,95 @@ public final class SimplePrefsKeeper implements Serializable {
      *             if the key is {@code null}
      */
     public synchronized Set<String> keySet() {
+        if (pending != null)
+            for (String k : new ArrayList<String>(pending.keySet()))
+                pending(k);
+
         return table.keySet();
     }
 
+    /**
+     * Helper method which deserializes the chunk for the specified key if it
+     * is not yet deserialized, and adds its keys and values to this instance.
+     * If there is an error it is written to SWGAide's error log and the chunk
+     * is marked broken. The keys of a broken chunk remain pending and are not
+     * deserialized again, their values read as {@code null}; the chunk is
+     * written as is by {@link #store(File)} so that no value is lost, until a
+     * key is replaced or removed by a client.
+     * 
+     * @param key
+     *            a key
+     */
+    private void pending(String key) {
+        Chunk c = pending != null
+                ? pending.get(key)
+                : null;
+        if (c == null || c.broken) return;
+
+        try {
+            pendingLoad(c);
+        } catch (Throwable e) {
+            c.broken = true;
+            SWGAide.printError("SimplePrefsKeeper:pending: " + key
+                    + ", the chunk is retained as is", e);
+        }
+    }
+
+    /**
+     * Helper method which removes the specified key from the pending keys.
+     * This method is invoked when a client replaces or removes the value for
+     * the key, which supersedes a value that cannot be deserialized.
+     * 
+     * @param key
+     *            a key
+     */
+    private void pendingDrop(String key) {
+        if (pending != null)
+            pending.remove(key);
+    }
+
+    /**
+     * Helper method which deserializes the specified chunk and adds the
+     * values for the keys which are pending for the chunk to this instance.
+     * If there is an error the keys remain pending.
+     * 
+     * @param c
+     *            a chunk
+     * @throws ClassNotFoundException
+     *             if a class for a serialized object cannot be found
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private void pendingLoad(Chunk c)
+            throws IOException, ClassNotFoundException {
+
+        Hashtable<String, Serializable> h = c.values(null);
+        for (String k : c.keys)
+            if (pending.get(k) == c) {
+                pending.remove(k);
+                Serializable v = h.get(k);
+                if (v != null) table.put(k, v);
+            }
+    }
+
+    /**
+     * Deserializes an instance of this type, the transient collections are
+     * instantiated.
+     * 
+     * @param in
+     *            the input stream to read from
+     * @throws ClassNotFoundException
+     *             if a class for a serialized object cannot be found
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+
+        in.defaultReadObject();
+        init();
+    }
+
     /**
      * Removes the specified key (and its corresponding value) from this
      * instance, or nothing if it is not present.
@@ -227,57 +516,566 @@ public final class SimplePrefsKeeper implements Serializable {
      *         {@code null} if the key did not have a mapping
      */
     public synchronized Serializable remove(String key) {
+        pending(key);
+        pendingDrop(key);
+        dirty.add(key);
         return table.remove(key);
     }
 
     /**
-     * Writes this instance to the specified file using
-     * {@link ObjectOutputStream}. If the operation was successful {@code true}
-     * is returned, otherwise {@code false}. If there is an error a message is
-     * written to SWGAide's error log.
+     * Waits for a pending background write to complete and shuts down the
+     * background thread, see {@link #storeInBackground(File, Runnable)}. This
+     * method is invoked when SWGAide exits. A later background store starts a
+     * new thread.
+     */
+    public static void shutdown() {
+        synchronized (LOCK_STORE) {
+            storeAwait();
+            if (writer != null) {
+                writer.shutdown();
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * Writes this instance to the specified file. If the operation was
+     * successful {@code true} is returned, otherwise {@code false}. If there
+     * is an error a message is written to SWGAide's error log.
+     * <P>
+     * This implementation serializes a snapshot of this instance to buffers in
+     * memory on the calling thread while it holds the lock of this instance;
+     * hence the lock is not held during compression and file I/O, see
+     * {@link #storeInBackground(File, Runnable)}. Each value is serialized
+     * alone and the keys which values share objects are grouped to one chunk;
+     * small values are pooled to one chunk; a chunk which is not yet
+     * deserialized is written as is. The chunks are compressed and written
+     * after an index of their keys, see the class comment.
+     * <P>
+     * If the target is the file which this instance was loaded from or most
+     * recently written to in full, just the changed values are written. These
+     * are the values for keys which are added, removed, or touched, see
+     * {@link #touch(String)}; a touched value which checksum equals what is
+     * written is skipped, and other values are not serialized at all. Their
+     * chunks are appended to the file as a record, the file is synchronized
+     * to the storage device, and the record supersedes the previous chunks of
+     * the keys. If nothing is changed nothing is written. After
+     * {@link #COMPACT_STORES} stores, or if the records are larger than the
+     * compacted part of the file, the file is compacted, which also writes the
+     * modifications which are not touched; see {@link #store(File, boolean)}.
      * <P>
-     * This implementation writes directly to the identified target file. For
-     * safety reasons a client may want to write to a temporary file until this
-     * method returns {@code true} or {@code false}.
+     * Otherwise, or to compact the file, all values are written to a
+     * temporary file in the directory of the target, the file is synchronized
+     * to the storage device, and finally it is renamed to the target. If
+     * there is an error the target file is not modified. The size of the
+     * written data and the duration of the operation are written to SWGAide's
+     * log.
      * <P>
      * <B>Note: </B>Writing this instance to an {@link ObjectOutputStream}
      * implies that all object graphs rooted from all elements contained in this
      * instance must only be {@link Serializable} objects. Clients must ensure
      * the {@link Serializable} property, otherwise this method fails.
      * <P>
-     * <B>Note: </B>From October 2009 the written object stream contains two
-     * objects and not just one as the previous version did. The first object is
-     * an instance of {@link String} which is {@link SWGConstants#version} from
-     * the version of SWGAide used to save the stream. The second object is an
-     * instance of this type. The static method {@link #version(File)} returns
-     * the string which can be used to determine if the stream is compatible.
+     * <B>Note: </B>The written file begins with {@link #MAGIC} and
+     * {@link SWGConstants#version} from the version of SWGAide used to save the
+     * file. The static method {@link #version(File)} returns the string which
+     * can be used to determine if the file is compatible.
      * 
      * @param target
-     *            the file to write this instance to, as an object stream
+     *            the file to write this instance to
      * @return {@code true} if this instance was successfully written, {@code
      *         false} otherwise
      */
-    public synchronized boolean store(File target) {
-        ObjectOutputStream out = null;
+    public boolean store(File target) {
+        return store(target, false);
+    }
+
+    /**
+     * Writes this instance to the specified file, see {@link #store(File)}. If
+     * the boolean argument is {@code true} all values are written and the
+     * file is compacted, also if it is the file which this instance was
+     * loaded from. Hence a modification which is not touched, see
+     * {@link #touch(String)}, is written no later than by this method.
+     * 
+     * @param target
+     *            the file to write this instance to
+     * @param compact
+     *            {@code true} to write all values
+     * @return {@code true} if this instance was successfully written, {@code
+     *         false} otherwise
+     */
+    public boolean store(File target, boolean compact) {
+        synchronized (LOCK_STORE) {
+            storeAwait();
+            Snapshot s = snapshot(target, compact);
+            return s != null && s.write();
+        }
+    }
+
+    /**
+     * Helper method which serializes a snapshot of this instance to be
+     * written to the specified file, see {@link #store(File)}. This method
+     * determines if the file is written in full or if a record is appended,
+     * and it serializes the values to write while it holds the lock of this
+     * instance, on the calling thread; the snapshot is compressed and written
+     * by {@link Snapshot#write()}. If there is an error it is written to
+     * SWGAide's error log and {@code null} is returned. The caller must hold
+     * {@link #LOCK_STORE} and there must be no pending write, see
+     * {@link #storeAwait()}.
+     * 
+     * @param target
+     *            the file to write this instance to
+     * @param compact
+     *            {@code true} to write all values
+     * @return a snapshot, or {@code null}
+     */
+    private Snapshot snapshot(File target, boolean compact) {
+        long time = System.currentTimeMillis();
+        File file = target.getAbsoluteFile();
+        boolean full = compact || !file.equals(log)
+                || file.length() != logLength
+                || logStores >= COMPACT_STORES
+                || logLength - logBase > logBase;
+
+        synchronized (this) {
+            Set<String> flushed = new HashSet<String>(dirty);
+            dirty.clear();
+            List<String> removed = new ArrayList<String>();
+            for (String k : flushed)
+                if (!table.containsKey(k) && crcs.containsKey(k))
+                    removed.add(k);
+
+            try {
+                List<Chunk> chunks = chunks(full, flushed, removed);
+                return new Snapshot(
+                        target, full, chunks, flushed, removed, time);
+            } catch (Throwable e) {
+                SWGAide.printError("SimplePrefsKeeper:store", e);
+                dirty.addAll(flushed);
+                log = null; // compact at next store
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Helper method which serializes the content of this instance to chunks
+     * and returns them. Each value is serialized alone by a
+     * {@link ChunkOutputStream} which groups the keys which values share
+     * objects. A group of several keys is serialized again as one chunk, so
+     * the shared objects are maintained; a single value is its own chunk, or
+     * it is pooled if it is small and has no resources.
+     * <P>
+     * If the argument is {@code true} all values are returned, and chunks
+     * which are not yet deserialized are returned as is. Otherwise just the
+     * flushed keys are serialized and the groups with a key which checksum
+     * differs from {@link #crcs} are returned, but if a key of a previous
+     * chunk is returned or removed all keys of the chunk are returned, see
+     * {@link #chunked}. Other values are not serialized. The resources of the serialized values are added to
+     * {@link #holders}, which is cleared first if the argument is {@code
+     * true}. The caller must hold the lock of this instance.
+     * 
+     * @param full
+     *            {@code true} to return all values
+     * @param flushed
+     *            the keys which are added, removed, or touched
+     * @param removed
+     *            the keys which are removed
+     * @return a list of chunks, or an empty list
+     * @throws IOException
+     *             if there is an error
+     */
+    private List<Chunk> chunks(boolean full, Set<String> flushed,
+            List<String> removed) throws IOException {
+
+        List<Chunk> ret = new ArrayList<Chunk>();
+        if (full)
+            holders.clear();
+        if (full && pending != null) {
+            List<Chunk> cs = new ArrayList<Chunk>();
+            for (Chunk c : pending.values())
+                if (!cs.contains(c)) cs.add(c);
+
+            for (Chunk c : cs) {
+                boolean whole = true;
+                for (String k : c.keys)
+                    whole &= pending.get(k) == c;
+
+                if (!whole)
+                    for (String k : c.keys)
+                        if (pending.get(k) == c) {
+                            pending(k);
+                            break;
+                        }
+
+                if (whole)
+                    ret.add(c); // as is
+                else if (c.broken)
+                    ret.add(c.retain(pending)); // as is, its pending keys
+            }
+        }
+
+        Map<Object, String> owners = new IdentityHashMap<Object, String>();
+        Map<String, String> groups = new HashMap<String, String>();
+        Map<String, byte[]> raw = new HashMap<String, byte[]>();
+        Map<String, Integer> sums = new HashMap<String, Integer>();
+        Set<String> resources = new HashSet<String>();
+
+        // the keys that must be written, all of the chunks of removed keys
+        Set<String> forced = new HashSet<String>();
+        for (String k : removed)
+            if (chunked.containsKey(k))
+                forced.addAll(Arrays.asList(chunked.get(k)));
+
+        List<String> keys = new ArrayList<String>();
+        for (String k : table.keySet())
+            if (full || flushed.contains(k) || forced.contains(k))
+                keys.add(k);
+
+        Map<String, List<String>> byGroup;
+        Set<String> changed = new HashSet<String>();
+        while (true) {
+            for (String k : keys)
+                if (!raw.containsKey(k)) {
+                    groups.put(k, k);
+                    Hashtable<String, Serializable> h =
+                            new Hashtable<String, Serializable>(2);
+                    h.put(k, table.get(k));
+                    ByteArrayOutputStream bo = new ByteArrayOutputStream();
+                    ChunkOutputStream out =
+                            new ChunkOutputStream(bo, k, owners, groups);
+                    out.writeObject(h);
+                    out.close();
+
+                    byte[] b = bo.toByteArray();
+                    CRC32 crc = new CRC32();
+                    crc.update(b);
+                    raw.put(k, b);
+                    sums.put(k, Integer.valueOf((int) crc.getValue()));
+                    if (!out.resources.isEmpty()) resources.add(k);
+                    for (SWGKnownResource r : out.resources)
+                        heldBy(r).add(k);
+                }
+
+            byGroup = new LinkedHashMap<String, List<String>>();
+            for (String k : keys) {
+                String g = ChunkOutputStream.group(groups, k);
+                List<String> ks = byGroup.get(g);
+                if (ks == null) {
+                    ks = new ArrayList<String>();
+                    byGroup.put(g, ks);
+                }
+                ks.add(k);
+            }
+
+            // keys of groups to write, and the keys of their previous chunks
+            changed.clear();
+            Set<String> more = new HashSet<String>();
+            for (List<String> ks : byGroup.values()) {
+                boolean ch = full;
+                for (String k : ks)
+                    ch |= forced.contains(k)
+                            || !sums.get(k).equals(crcs.get(k));
+                if (!ch) continue;
+
+                changed.addAll(ks);
+                for (String k : ks)
+                    if (chunked.containsKey(k))
+                        for (String o : chunked.get(k))
+                            if (!raw.containsKey(o) && table.containsKey(o))
+                                more.add(o);
+            }
+            if (more.isEmpty()) break;
+
+            forced.addAll(more);
+            keys.addAll(more);
+        }
+
+        List<String> small = new ArrayList<String>();
+        for (List<String> ks : byGroup.values()) {
+            if (!changed.contains(ks.get(0))) continue;
+
+            boolean eager = false;
+            for (String k : ks)
+                eager |= resources.contains(k);
+
+            if (ks.size() > 1)
+                ret.add(chunk(ks, sums, eager));
+            else if (eager || raw.get(ks.get(0)).length >= CHUNK_MIN)
+                ret.add(new Chunk(ks.toArray(new String[1]), new int[] {
+                        sums.get(ks.get(0)).intValue() },
+                        raw.get(ks.get(0)), eager, false));
+            else
+                small.add(ks.get(0));
+        }
+        if (!small.isEmpty())
+            ret.add(chunk(small, sums, true));
+
+        return ret;
+    }
+
+    /**
+     * Helper method which serializes the specified keys and their values to
+     * one chunk which is not compressed. The caller must hold the lock of this
+     * instance.
+     * 
+     * @param keys
+     *            the keys for the chunk
+     * @param sums
+     *            the checksums of the values, see {@link Chunk#sums}
+     * @param eager
+     *            {@code true} if the chunk must be deserialized on load
+     * @return a chunk
+     * @throws IOException
+     *             if there is an error
+     */
+    private Chunk chunk(List<String> keys, Map<String, Integer> sums,
+            boolean eager) throws IOException {
+
+        Hashtable<String, Serializable> h =
+                new Hashtable<String, Serializable>(keys.size() * 2);
+        int[] ss = new int[keys.size()];
+        for (int i = 0; i < ss.length; ++i) {
+            h.put(keys.get(i), table.get(keys.get(i)));
+            ss[i] = sums.get(keys.get(i)).intValue();
+        }
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bo);
+        out.writeObject(h);
+        out.close();
+        return new Chunk(keys.toArray(new String[keys.size()]), ss,
+                bo.toByteArray(), eager, false);
+    }
+
+    /**
+     * Helper method which appends the specified buffer to the specified file
+     * at the specified position, anything after the position is truncated.
+     * The file is synchronized to the storage device.
+     * 
+     * @param buf
+     *            the buffer to write
+     * @param file
+     *            the file to write to
+     * @param position
+     *            the position to write at
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private static void storeAppend(
+            ByteArrayOutputStream buf, File file, long position)
+            throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
         try {
-            out = new ObjectOutputStream(new FileOutputStream(target));
-            out.writeObject(SWGConstants.version);
-            out.writeObject(this);
-            return true;
-        } catch (Throwable e) {
-            SWGAide.printError("SimplePrefsKeeper:store", e);
+            raf.setLength(position);
+            raf.seek(position);
+            raf.write(buf.toByteArray());
+            raf.getFD().sync();
         } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Helper method which waits for the pending background write to complete,
+     * see {@link #writing}. If there is an error it is written to SWGAide's
+     * error log. The caller must hold {@link #LOCK_STORE}.
+     */
+    private static void storeAwait() {
+        if (writing == null) return;
+
+        boolean interrupted = false;
+        while (true)
             try {
+                writing.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // the write must complete first
+            } catch (ExecutionException e) {
+                SWGAide.printError("SimplePrefsKeeper:storeAwait",
+                        e.getCause());
+                break;
+            }
+
+        writing = null;
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Writes this instance to the specified file on a background thread, see
+     * {@link #store(File)}. The snapshot of the values is serialized on the
+     * calling thread, which must be the thread which modifies the values, such
+     * as the event thread; just the compression and the file I/O are done by
+     * the background thread, which is shared by all instances. If the
+     * operation was successful the specified task is executed on the same
+     * background thread, otherwise an error is written to SWGAide's error
+     * log. A previous background write is awaited, otherwise this method
+     * returns without waiting for the write. See {@link #shutdown()}.
+     * 
+     * @param target
+     *            the file to write this instance to
+     * @param then
+     *            a task to execute if this instance was successfully written,
+     *            or {@code null}
+     */
+    public void storeInBackground(File target, final Runnable then) {
+        synchronized (LOCK_STORE) {
+            storeAwait();
+            final Snapshot s = snapshot(target, false);
+            if (s == null) return;
+
+            if (writer == null)
+                writer = Executors.newSingleThreadExecutor(
+                        new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r,
+                                        "SimplePrefsKeeper-writer");
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+            writing = writer.submit(new Runnable() {
+                public void run() {
+                    if (s.write() && then != null)
+                        then.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Helper method which writes the specified buffer to the specified target
+     * file. The buffer is written to a temporary file in the directory of the
+     * target, the file is synchronized to the storage device, and then it is
+     * renamed to the target. If there is an error the temporary file is
+     * deleted and the target is not modified.
+     * <p>
+     * If the rename fails, which it does on Windows if the target exists, the
+     * target is first renamed aside, see {@link #recover(File)}, then the
+     * temporary file is renamed to the target and the aside file is deleted.
+     * Hence there is always a complete file, also if the process dies between
+     * the renames.
+     * 
+     * @param buf
+     *            the buffer to write
+     * @param target
+     *            the file to write to
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private static void storeWrite(ByteArrayOutputStream buf, File target)
+            throws IOException {
+
+        File tmp = File.createTempFile(target.getName(), ".tmp",
+                target.getAbsoluteFile().getParentFile());
+        boolean done = false;
+        try {
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                buf.writeTo(out);
+                out.getFD().sync();
+            } finally {
                 out.close();
-            } catch (IOException e) { /* ignore */}
+            }
+
+            if (!tmp.renameTo(target)) {
+                // renameTo does not replace on Windows
+                File old = aside(target);
+                old.delete();
+                if (!target.renameTo(old))
+                    throw new IOException("Cannot rename " + target);
+                if (!tmp.renameTo(target)) {
+                    old.renameTo(target);
+                    throw new IOException("Cannot rename " + tmp);
+                }
+                old.delete();
+            }
+            done = true;
+        } finally {
+            if (!done)
+                tmp.delete();
         }
-        return false;
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         ZString z = new ZString("SimplePrefsKeeper[");
-        return z.app("size=").app(table.size()).app(']').toString();
+        int size = table.size() + (pending != null
+                ? pending.size()
+                : 0);
+        return z.app("size=").app(size).app(']').toString();
+    }
+
+    /**
+     * Marks the value for the specified key as modified, it is written by the
+     * next invocation of {@link #store(File)}. A client which modifies a
+     * mutable value in place must invoke this method for each modification;
+     * a value is written just when it is touched, added, or removed, or when
+     * a value which was written to the same chunk is written. A modification
+     * which is not touched is written by the next store which compacts the
+     * file, see {@link #store(File, boolean)}. If a value is modified to share objects with the value for another key,
+     * both keys must be touched, unless the shared objects are galaxies or
+     * resources; a resource itself is touched by
+     * {@link #touch(SWGKnownResource)}.
+     * <P>
+     * If the key is unknown, or if its value is not yet deserialized, this
+     * method does nothing.
+     * 
+     * @param key
+     *            the key for a modified value
+     */
+    public synchronized void touch(String key) {
+        if (table.containsKey(key))
+            dirty.add(key);
+    }
+
+    /**
+     * Marks the values which contain the specified resource as modified, see
+     * {@link #touch(String)}. A resource is written to each chunk which
+     * contains it and it is resolved to the instance which is deserialized
+     * first, hence the resource manager invokes this method for each
+     * modification of a resource so that no chunk retains a stale copy. If
+     * the resource is not yet written this method does nothing.
+     * 
+     * @param resource
+     *            a modified resource
+     */
+    public synchronized void touch(SWGKnownResource resource) {
+        Set<String> ks = holders.get(resource);
+        if (ks != null)
+            for (String k : ks)
+                touch(k);
+    }
+
+    /**
+     * Helper method which returns the file which the specified target is
+     * renamed to while it is replaced, see
+     * {@link #storeWrite(ByteArrayOutputStream, File)}. The file is in the
+     * same directory as the target and its name ends with ".old".
+     * 
+     * @param target a target file
+     * @return the aside file for the target
+     */
+    private static File aside(File target) {
+        return new File(target.getPath() + ".old");
+    }
+
+    /**
+     * Helper method which determines if the specified value is immutable, a
+     * string, a wrapper of a primitive value, or an enum constant. Such a
+     * value is modified just by {@link #add(String, Serializable)}.
+     * 
+     * @param value
+     *            a value
+     * @return {@code true} if the value is immutable
+     */
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Integer
+                || value instanceof Long || value instanceof Boolean
+                || value instanceof Double || value instanceof Float
+                || value instanceof Short || value instanceof Byte
+                || value instanceof Character || value instanceof Enum<?>;
     }
 
     /**
@@ -296,6 +1094,15 @@ public final class SimplePrefsKeeper implements Serializable {
      * This method does not work with older, incompatible object streams. This
      * is due to the deep reaching changes for {@link SWGResource} and
      * sub-classes and supporting types.
+     * <P>
+     * If the file is a container of chunks, see the class comment, the records
+     * which are appended to it are replayed in order and a key is read from
+     * the most recent chunk which contains it. A record which is incomplete or
+     * which checksum does not match ends the file, it is dropped by the next
+     * store. The chunks with resources are deserialized and other chunks are
+     * kept compressed in memory until one of their keys is first accessed. An
+     * object stream of the previous format is read in full. If the file does
+     * not exist it is first recovered, see {@link #recover(File)}.
      * 
      * @param source the file to read from
      * @return an instance of this type
@@ -311,15 +1118,97 @@ public final class SimplePrefsKeeper implements Serializable {
     public synchronized static SimplePrefsKeeper load(File source)
             throws Throwable {
 
-        ObjectInputStream in = null;
+        recover(source);
+
+        DataInputStream in = null;
         try {
-            in = new ObjectInputStream(new FileInputStream(source));
-            String v = (String) in.readObject();
+            byte[] file = new byte[(int) source.length()];
+            in = new DataInputStream(new FileInputStream(source));
+            in.readFully(file);
+            in.close();
+
+            in = new DataInputStream(new ByteArrayInputStream(file));
+            if (file.length < 4 || in.readInt() != MAGIC) {
+                // an object stream of the previous format
+                ObjectInputStream oin = new ObjectInputStream(
+                        new ByteArrayInputStream(file));
+                String v = (String) oin.readObject();
+
+                SWGInitialize.updateDialog(v);
+
+                SimplePrefsKeeper pk = (SimplePrefsKeeper) oin.readObject();
+                pk.version = v;
+                return pk;
+            }
+
+            String v = in.readUTF();
 
             SWGInitialize.updateDialog(v);
 
-            SimplePrefsKeeper pk = (SimplePrefsKeeper) in.readObject();
+            SimplePrefsKeeper pk = new SimplePrefsKeeper();
             pk.version = v;
+
+            // the chunk which owns a key is the most recent chunk for it
+            List<Chunk> chunks = new ArrayList<Chunk>();
+            Map<String, Chunk> owners = new HashMap<String, Chunk>();
+            for (Chunk c : readChunks(in))
+                own(c, owners, chunks, pk);
+
+            pk.logBase = file.length - in.available();
+            pk.logLength = pk.logBase;
+            while (pk.logLength + 12 <= file.length) {
+                int p = (int) pk.logLength;
+                in = new DataInputStream(new ByteArrayInputStream(
+                        file, p, file.length - p));
+                int len = in.readInt() == RECORD
+                        ? in.readInt()
+                        : -1;
+                if (len < 0 || len > file.length - p - 12) break;
+
+                in.skipBytes(len);
+                CRC32 crc = new CRC32();
+                crc.update(file, p + 8, len);
+                if (in.readInt() != (int) crc.getValue()) break;
+
+                in = new DataInputStream(new ByteArrayInputStream(
+                        file, p + 8, len));
+                for (int i = in.readInt(); i > 0; --i) {
+                    String k = in.readUTF();
+                    owners.remove(k);
+                    pk.chunked.remove(k);
+                    pk.crcs.remove(k);
+                }
+                for (Chunk c : readChunks(in))
+                    own(c, owners, chunks, pk);
+
+                pk.logLength += len + 12;
+                ++pk.logStores;
+            }
+            pk.log = source.getAbsoluteFile();
+
+            pk.pending = new HashMap<String, Chunk>();
+            for (Chunk c : chunks) {
+                boolean owns = false;
+                for (String k : c.keys)
+                    owns |= owners.get(k) == c;
+
+                if (!owns) continue;
+
+                if (c.eager) {
+                    List<SWGKnownResource> rs =
+                            new ArrayList<SWGKnownResource>();
+                    Hashtable<String, Serializable> h = c.values(rs);
+                    for (String k : c.keys)
+                        if (owners.get(k) == c) {
+                            pk.table.put(k, h.get(k));
+                            for (SWGKnownResource r : rs)
+                                pk.heldBy(r).add(k);
+                        }
+                } else
+                    for (String k : c.keys)
+                        if (owners.get(k) == c) pk.pending.put(k, c);
+            }
+
             return pk;
         } catch (Throwable e) {
             SWGAide.printError("SimplePrefsKeeper:load", e);
@@ -332,10 +1221,91 @@ public final class SimplePrefsKeeper implements Serializable {
         }
     }
 
+    /**
+     * Helper method which makes the specified chunk the owner of its keys. The
+     * chunk is added to the list of chunks and the checksums and co-located
+     * keys of the specified instance are updated.
+     * 
+     * @param c
+     *            a chunk
+     * @param owners
+     *            the keys and the chunks which own them
+     * @param chunks
+     *            the chunks in the order they are read
+     * @param pk
+     *            the instance which is loaded
+     */
+    private static void own(Chunk c, Map<String, Chunk> owners,
+            List<Chunk> chunks, SimplePrefsKeeper pk) {
+
+        chunks.add(c);
+        for (int i = 0; i < c.keys.length; ++i) {
+            owners.put(c.keys[i], c);
+            pk.chunked.put(c.keys[i], c.keys);
+            pk.crcs.put(c.keys[i], Integer.valueOf(c.sums[i]));
+        }
+    }
+
+    /**
+     * Helper method which reads and returns chunks from the specified stream,
+     * an index of the chunks followed by their compressed data, see
+     * {@link #writeChunks(DataOutputStream, List)}.
+     * 
+     * @param in
+     *            the stream to read from
+     * @return an array of chunks
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private static Chunk[] readChunks(DataInputStream in) throws IOException {
+        Chunk[] chunks = new Chunk[in.readInt()];
+        for (int i = 0; i < chunks.length; ++i) {
+            boolean eager = in.readBoolean();
+            String[] keys = new String[in.readInt()];
+            int[] sums = new int[keys.length];
+            for (int j = 0; j < keys.length; ++j) {
+                keys[j] = in.readUTF();
+                sums[j] = in.readInt();
+            }
+            chunks[i] = new Chunk(keys, sums, new byte[in.readInt()],
+                    eager, true);
+        }
+        for (Chunk c : chunks)
+            in.readFully(c.data);
+
+        return chunks;
+    }
+
+    /**
+     * Recovers the specified file if it does not exist but its aside file
+     * does. That is the case if the process died while the file was replaced,
+     * see {@link #storeWrite(ByteArrayOutputStream, File)}, and then the aside
+     * file is the previous version of the file which is renamed back. If the
+     * specified file exists an aside file is stale and it is deleted.
+     * 
+     * @param target the file to recover
+     * @return {@code true} if the specified file exists
+     */
+    public static synchronized boolean recover(File target) {
+        File old = aside(target);
+        if (target.exists()) {
+            old.delete();
+            return true;
+        }
+        if (old.exists() && old.renameTo(target)) {
+            SWGAide.printDebug("prfk", 1,
+                    "SimplePrefsKeeper:recover: ", target.getPath());
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Loads and returns just the first object from the specified object stream.
      * It is assumed that the file is an object stream stored by SWGAide via an
-     * instance of this type. From October 2009 such a file has an instance of
+     * instance of this type. If the file is a container of chunks, see the
+     * class comment, the version from its header is returned. From October
+     * 2009 an object stream has an instance of
      * {@link String} as its first object, and an instance of
      * {@link SimplePrefsKeeper} as its second object. The string is
      * {@link SWGConstants#version} from the version of SWGAide used to store
@@ -350,10 +1320,16 @@ public final class SimplePrefsKeeper implements Serializable {
      *         incompatibility
      */
     public static synchronized String version(File file) {
-        ObjectInputStream in = null;
+        DataInputStream in = null;
         try {
-            in = new ObjectInputStream(new FileInputStream(file));
-            Object o = in.readObject(); // just the first object
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            in.mark(4);
+            if (in.readInt() == MAGIC)
+                return in.readUTF();
+
+            in.reset();
+            Object o = new ObjectInputStream(in).readObject(); // just the first
             if (String.class.isAssignableFrom(o.getClass()))
                 return (String) o;
 
@@ -368,4 +1344,480 @@ public final class SimplePrefsKeeper implements Serializable {
                 } catch (Exception e1) {/* ignore */}
         }
     }
+
+    /**
+     * Helper method which writes the specified chunks to the specified stream,
+     * an index of the chunks followed by their data. The index contains for
+     * each chunk if it is eager, its keys and their checksums, and the length
+     * of its data. The chunks must be compressed.
+     * 
+     * @param out
+     *            the stream to write to
+     * @param chunks
+     *            the chunks to write
+     * @throws IOException
+     *             if there is an I/O error
+     */
+    private static void writeChunks(DataOutputStream out, List<Chunk> chunks)
+            throws IOException {
+
+        out.writeInt(chunks.size());
+        for (Chunk c : chunks) {
+            out.writeBoolean(c.eager);
+            out.writeInt(c.keys.length);
+            for (int i = 0; i < c.keys.length; ++i) {
+                out.writeUTF(c.keys[i]);
+                out.writeInt(c.sums[i]);
+            }
+            out.writeInt(c.data.length);
+        }
+        for (Chunk c : chunks)
+            out.write(c.data);
+    }
+
+    /**
+     * A chunk of the file which is written by {@link SimplePrefsKeeper#store(
+     * File)}, an object stream of a {@link Hashtable} with some keys and their
+     * values, compressed or not.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class Chunk {
+
+        /**
+         * {@code true} if this chunk cannot be deserialized, see
+         * {@link SimplePrefsKeeper#pending(String)}.
+         */
+        boolean broken;
+
+        /**
+         * The object stream of this chunk, compressed if {@link #deflated} is
+         * {@code true}.
+         */
+        final byte[] data;
+
+        /**
+         * {@code true} if {@link #data} is compressed.
+         */
+        final boolean deflated;
+
+        /**
+         * {@code true} if this chunk must be deserialized on load, it
+         * contains resources which must populate the resource cache.
+         */
+        final boolean eager;
+
+        /**
+         * The keys of this chunk.
+         */
+        final String[] keys;
+
+        /**
+         * The checksums of the values for {@link #keys}, each the CRC-32 of
+         * the value serialized alone. These are compared with the values of a
+         * later store to determine if a value is modified.
+         */
+        final int[] sums;
+
+        /**
+         * Creates an instance of this type.
+         * 
+         * @param keys
+         *            the keys of the chunk
+         * @param sums
+         *            the checksums of the values
+         * @param data
+         *            the object stream of the chunk
+         * @param eager
+         *            {@code true} if the chunk must be deserialized on load
+         * @param deflated
+         *            {@code true} if the data is compressed
+         */
+        Chunk(String[] keys, int[] sums, byte[] data, boolean eager,
+                boolean deflated) {
+            this.keys = keys;
+            this.sums = sums;
+            this.data = data;
+            this.eager = eager;
+            this.deflated = deflated;
+        }
+
+        /**
+         * Returns a compressed instance of this chunk. If this instance is
+         * compressed it is returned.
+         * 
+         * @return a compressed chunk
+         * @throws IOException
+         *             if there is an error
+         */
+        Chunk deflate() throws IOException {
+            if (deflated) return this;
+
+            ByteArrayOutputStream bo =
+                    new ByteArrayOutputStream(data.length / 4 + 64);
+            DeflaterOutputStream out = new DeflaterOutputStream(bo);
+            out.write(data);
+            out.close();
+            return new Chunk(keys, sums, bo.toByteArray(), eager, true);
+        }
+
+        /**
+         * Returns an instance of this chunk with just the keys which map to
+         * this chunk in the specified map, and with the same data. The keys
+         * which are not retained are not read from the returned chunk.
+         * 
+         * @param pending
+         *            a map of keys and the chunks they are pending for
+         * @return a chunk
+         */
+        Chunk retain(Map<String, Chunk> pending) {
+            List<String> ks = new ArrayList<String>(keys.length);
+            List<Integer> ss = new ArrayList<Integer>(keys.length);
+            for (int i = 0; i < keys.length; ++i)
+                if (pending.get(keys[i]) == this) {
+                    ks.add(keys[i]);
+                    ss.add(Integer.valueOf(sums[i]));
+                }
+
+            int[] s = new int[ss.size()];
+            for (int i = 0; i < s.length; ++i)
+                s[i] = ss.get(i).intValue();
+
+            Chunk c = new Chunk(ks.toArray(new String[ks.size()]), s, data,
+                    eager, deflated);
+            c.broken = broken;
+            return c;
+        }
+
+        /**
+         * Deserializes and returns the keys and values of this chunk. If the
+         * list is not {@code null} the resources of this chunk are added to
+         * it.
+         * 
+         * @param resources
+         *            a list for the resources, or {@code null}
+         * @return a map of keys and values
+         * @throws ClassNotFoundException
+         *             if a class for a serialized object cannot be found
+         * @throws IOException
+         *             if there is an error
+         */
+        @SuppressWarnings("unchecked")
+        Hashtable<String, Serializable> values(
+                List<SWGKnownResource> resources)
+                throws IOException, ClassNotFoundException {
+
+            ObjectInputStream in = new ChunkInputStream(deflated
+                    ? new InflaterInputStream(new ByteArrayInputStream(data))
+                    : new ByteArrayInputStream(data), resources);
+            try {
+                return (Hashtable<String, Serializable>) in.readObject();
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * An object input stream which deserializes a chunk and adds the
+     * resources it reads to a list, see {@link SimplePrefsKeeper#holders}.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class ChunkInputStream extends ObjectInputStream {
+
+        /**
+         * A list for the resources which are read, or {@code null}.
+         */
+        private final List<SWGKnownResource> resources;
+
+        /**
+         * Creates an instance of this type.
+         * 
+         * @param in
+         *            the input stream to read from
+         * @param resources
+         *            a list for the resources, or {@code null}
+         * @throws IOException
+         *             if there is an error
+         */
+        ChunkInputStream(InputStream in, List<SWGKnownResource> resources)
+                throws IOException {
+
+            super(in);
+            this.resources = resources;
+            enableResolveObject(resources != null);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) {
+            if (obj instanceof SWGKnownResource)
+                resources.add((SWGKnownResource) obj);
+            return obj;
+        }
+    }
+
+    /**
+     * An object output stream which serializes the value for one key and
+     * tracks the objects it writes. If an object is also written for another
+     * key the two keys are joined in one group, they must be written to the
+     * same chunk so the shared object is maintained. Immutable objects and
+     * singletons are not tracked, nor are resource classes, galaxies, and
+     * resources which are resolved to one instance each when they are read,
+     * see {@link SimplePrefsKeeper#touch(SWGKnownResource)}. This type also
+     * notes the resources of the value.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private static final class ChunkOutputStream extends ObjectOutputStream {
+
+        /**
+         * A map of keys which map to their parents, the root of a group maps
+         * to itself.
+         */
+        private final Map<String, String> groups;
+
+        /**
+         * The key for the value which is written by this stream.
+         */
+        private final String key;
+
+        /**
+         * A map of the tracked objects which map to the first key that wrote
+         * them.
+         */
+        private final Map<Object, String> owners;
+
+        /**
+         * The resources which are written by this stream.
+         */
+        final List<SWGKnownResource> resources =
+                new ArrayList<SWGKnownResource>();
+
+        /**
+         * Creates an instance of this type.
+         * 
+         * @param out
+         *            the output stream to write to
+         * @param key
+         *            the key for the value to write
+         * @param owners
+         *            the tracked objects and the keys that wrote them
+         * @param groups
+         *            the keys and their parents
+         * @throws IOException
+         *             if there is an error
+         */
+        ChunkOutputStream(OutputStream out, String key,
+                Map<Object, String> owners, Map<String, String> groups)
+                throws IOException {
+
+            super(out);
+            this.key = key;
+            this.owners = owners;
+            this.groups = groups;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof SWGKnownResource)
+                resources.add((SWGKnownResource) obj);
+            else if (!(isImmutable(obj) || obj instanceof Class<?>
+                    || obj instanceof SWGResourceClass
+                    || obj instanceof SWGCGalaxy)) {
+
+                String o = owners.put(obj, key);
+                if (o != null && !o.equals(key))
+                    groups.put(group(groups, o), group(groups, key));
+            }
+            return obj;
+        }
+
+        /**
+         * Returns the root of the group for the specified key.
+         * 
+         * @param groups
+         *            the keys and their parents
+         * @param key
+         *            a key
+         * @return the root of the group
+         */
+        static String group(Map<String, String> groups, String key) {
+            String k = key;
+            for (String p = groups.get(k); !p.equals(k); p = groups.get(k))
+                k = p;
+            return k;
+        }
+    }
+
+    /**
+     * A snapshot of an instance to be written to a file, see
+     * {@link SimplePrefsKeeper#store(File)}. The values are serialized when
+     * the snapshot is created, hence this type just compresses and writes
+     * buffers and it does not read the values, which makes it safe to write
+     * on a background thread.
+     * 
+     * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+     *         Chimaera.Zimoon
+     */
+    private final class Snapshot {
+
+        /**
+         * The chunks to write, not yet compressed.
+         */
+        private final List<Chunk> chunks;
+
+        /**
+         * The keys which are flushed by this snapshot, they are marked dirty
+         * again if the write fails.
+         */
+        private final Set<String> flushed;
+
+        /**
+         * {@code true} if the file is written in full, otherwise a record is
+         * appended.
+         */
+        private final boolean full;
+
+        /**
+         * The keys which are removed by this snapshot.
+         */
+        private final List<String> removed;
+
+        /**
+         * The file to write to.
+         */
+        private final File target;
+
+        /**
+         * The time when the store began, for SWGAide's log.
+         */
+        private final long time;
+
+        /**
+         * Creates an instance of this type.
+         * 
+         * @param target
+         *            the file to write to
+         * @param full
+         *            {@code true} if the file is written in full
+         * @param chunks
+         *            the chunks to write
+         * @param flushed
+         *            the keys which are flushed
+         * @param removed
+         *            the keys which are removed
+         * @param time
+         *            the time when the store began
+         */
+        Snapshot(File target, boolean full, List<Chunk> chunks,
+                Set<String> flushed, List<String> removed, long time) {
+
+            this.target = target;
+            this.full = full;
+            this.chunks = chunks;
+            this.flushed = flushed;
+            this.removed = removed;
+            this.time = time;
+        }
+
+        /**
+         * Compresses and writes this snapshot to its file, see
+         * {@link SimplePrefsKeeper#store(File)}, and updates the state of the
+         * written file. If the operation was successful {@code true} is
+         * returned, otherwise an error is written to SWGAide's error log, the
+         * flushed keys are marked dirty again, and the next store compacts
+         * the file.
+         * 
+         * @return {@code true} if this snapshot was successfully written,
+         *         {@code false} otherwise
+         */
+        boolean write() {
+            try {
+                if (!full && chunks.isEmpty() && removed.isEmpty()) {
+                    ++logStores;
+                    SWGAide.printDebug("prfk", 1, "SimplePrefsKeeper:store:",
+                            target.getName(), "unchanged in", Long.toString(
+                                    System.currentTimeMillis() - time), "ms");
+                    return true;
+                }
+
+                for (int i = 0; i < chunks.size(); ++i)
+                    chunks.set(i, chunks.get(i).deflate());
+
+                ByteArrayOutputStream buf = new ByteArrayOutputStream(full
+                        ? STORE_BUFFER
+                        : 8192);
+                DataOutputStream out = new DataOutputStream(buf);
+                if (full) {
+                    out.writeInt(MAGIC);
+                    out.writeUTF(SWGConstants.version);
+                    writeChunks(out, chunks);
+                } else {
+                    ByteArrayOutputStream rb = new ByteArrayOutputStream();
+                    DataOutputStream rec = new DataOutputStream(rb);
+                    rec.writeInt(removed.size());
+                    for (String k : removed)
+                        rec.writeUTF(k);
+                    writeChunks(rec, chunks);
+                    rec.close();
+
+                    CRC32 crc = new CRC32();
+                    crc.update(rb.toByteArray());
+                    out.writeInt(RECORD);
+                    out.writeInt(rb.size());
+                    rb.writeTo(out);
+                    out.writeInt((int) crc.getValue());
+                }
+                out.close();
+
+                File file = target.getAbsoluteFile();
+                if (full) {
+                    storeWrite(buf, target);
+                    log = file;
+                    logBase = logLength = buf.size();
+                    logStores = 0;
+                } else {
+                    storeAppend(buf, file, logLength);
+                    logLength += buf.size();
+                    ++logStores;
+                }
+
+                synchronized (SimplePrefsKeeper.this) {
+                    if (full) {
+                        chunked.clear();
+                        crcs.clear();
+                    }
+                    for (String k : removed) {
+                        chunked.remove(k);
+                        crcs.remove(k);
+                    }
+                    for (Chunk c : chunks)
+                        for (int i = 0; i < c.keys.length; ++i) {
+                            chunked.put(c.keys[i], c.keys);
+                            crcs.put(c.keys[i], Integer.valueOf(c.sums[i]));
+                        }
+                }
+
+                SWGAide.printDebug("prfk", 1, "SimplePrefsKeeper:store:",
+                        target.getName(), (full
+                                ? "full"
+                                : "record"), Integer.toString(buf.size()),
+                        "bytes in", Long.toString(
+                                System.currentTimeMillis() - time), "ms");
+                return true;
+            } catch (Throwable e) {
+                SWGAide.printError("SimplePrefsKeeper:store", e);
+                synchronized (SimplePrefsKeeper.this) {
+                    dirty.addAll(flushed);
+                }
+                log = null; // compact at next store
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package swg.tools;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * This type is a pool of strings which replaces {@link String#intern()} for
+ * strings which are repeated many times, such as the names of users, items,
+ * and vendors, and the subjects of mails. A string which equals a pooled string
+ * is replaced by the pooled instance, hence SWGAide keeps one instance of it in
+ * memory. Also, the object stream for the DAT file writes an instance once and
+ * later occurrences as references to it, hence the equal strings of the types
+ * which are pooled while they are deserialized are written as one shared
+ * table.
+ * <p>
+ * Unlike {@link String#intern()} the pool is owned by SWGAide and not by the
+ * JVM, and it is weak: a pooled string which is no longer referenced from
+ * elsewhere is removed from the pool by the garbage collector.
+ * <p>
+ * This type is thread safe, all methods synchronize on the pool.
+ * 
+ * @author <a href="mailto:simongronlund@gmail.com">Simon Gronlund</a> aka
+ *         Chimaera.Zimoon
+ */
+public final class ZStringPool {
+
+    /**
+     * The pool of strings. Both the keys and the values are the pooled
+     * strings, the values are weakly referenced so they do not keep their
+     * keys.
+     */
+    private static final Map<String, WeakReference<String>> pool =
+            new WeakHashMap<String, WeakReference<String>>(1024);
+
+    /**
+     * This type should not be instantiated.
+     */
+    private ZStringPool() {
+        throw new AssertionError(); // prevent instantiation
+    }
+
+    /**
+     * Returns the pooled instance of the specified string, or {@code null}. If
+     * no pooled string equals the argument the argument is pooled and
+     * returned. If the argument is {@code null} this method returns {@code
+     * null}.
+     * 
+     * @param s a string, or {@code null}
+     * @return a pooled string which equals the argument, or {@code null}
+     */
+    public static String pooled(String s) {
+        if (s == null) return null;
+
+        synchronized (pool) {
+            WeakReference<String> r = pool.get(s);
+            String p = r != null
+                    ? r.get()
+                    : null;
+            if (p != null) return p;
+
+            pool.put(s, new WeakReference<String>(s));
+            return s;
+        }
+    }
+
+    /**
+     * Returns the number of strings in the pool. This number is approximate
+     * because strings which are no longer referenced are removed by the
+     * garbage collector.
+     * 
+     * @return the size of the pool
+     */
+    public static int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+}